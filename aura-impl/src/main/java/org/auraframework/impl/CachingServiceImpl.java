@@ -17,11 +17,12 @@ package org.auraframework.impl;
 
 import java.lang.ref.WeakReference;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.ToIntBiFunction;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
@@ -36,10 +37,14 @@ import org.auraframework.def.ComponentDef;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.Definition;
 import org.auraframework.impl.cache.CacheImpl;
+import org.auraframework.impl.cache.IndexedDependencyCache;
+import org.auraframework.impl.cache.StripedReadWriteLock;
 import org.auraframework.impl.system.DefDescriptorImpl;
 import org.auraframework.impl.util.ModuleDefinitionUtil;
 import org.auraframework.service.CachingService;
+import org.auraframework.system.AccessCheckKey;
 import org.auraframework.system.DependencyEntry;
+import org.auraframework.system.DependencyKey;
 import org.auraframework.system.RegistrySet;
 import org.auraframework.system.RegistrySet.RegistrySetKey;
 import org.auraframework.system.SourceListener;
@@ -48,6 +53,8 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 public class CachingServiceImpl implements CachingService {
     private static final long serialVersionUID = -3311707270226573084L;
@@ -67,10 +74,16 @@ public class CachingServiceImpl implements CachingService {
 
     /** Default size of client lib caches, in number of entries */
     private final static int CLIENT_LIB_CACHE_SIZE = 30;
+
+    /** Default size of encoded resource caches, in number of entries */
+    private final static int ENCODED_RESOURCE_CACHE_SIZE = 1024;
     
     /** Default size of registry sets, in number of entries */
     private final static int REGISTRY_SET_CACHE_SIZE = 100;
 
+    /** Default size of the access check cache, in number of entries */
+    private final static int ACCESS_CHECK_CACHE_SIZE = 16 * 1024;
+
     @Configuration
     public static class BeanConfiguration {
         private static final CachingServiceImpl INSTANCE  = new CachingServiceImpl();
@@ -86,8 +99,13 @@ public class CachingServiceImpl implements CachingService {
 
     private ConfigAdapter configAdapter;
     
-    private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
-    private final WriteLock wLock = rwLock.writeLock();
+    /**
+     * Guards the caches against clearing while they are being read. Readers are spread over stripes, one per
+     * processor by default, so that they do not contend on a single reader count.
+     */
+    private final ReadWriteLock rwLock = new StripedReadWriteLock(
+            Integer.getInteger("aura.cache.lockStripes", Runtime.getRuntime().availableProcessors()));
+    private final Lock wLock = rwLock.writeLock();
 
     @Override
     public <K, T> CacheBuilder<K, T> getCacheBuilder() {
@@ -105,85 +123,136 @@ public class CachingServiceImpl implements CachingService {
      * plus with and without uid for faster lookups
      * However, most values will point to the same DependencyEntry where modules are not used.
      */
-    private Cache<String, DependencyEntry> depsCache;
+    private IndexedDependencyCache depsCache;
     private Cache<String, String> clientLibraryOutputCache;
+    private Cache<String, byte[]> encodedResourceCache;
     private Cache<DefDescriptor.DescriptorKey, DefDescriptor<? extends Definition>> defDescriptorByNameCache;
     private Cache<RegistrySet.RegistrySetKey, RegistrySet> registrySetCache;
+    private Cache<AccessCheckKey, Boolean> accessCheckCache;
 
     private static final Logger logger = Logger.getLogger(CachingServiceImpl.class);
 
+    /**
+     * Weighs string cache entries by their length in chars.
+     */
+    private static final ToIntBiFunction<String, String> STRING_WEIGHER = new ToIntBiFunction<String, String>() {
+        @Override
+        public int applyAsInt(String key, String value) {
+            return key.length() + value.length();
+        }
+    };
+
+    /**
+     * Weighs byte cache entries by their length in bytes.
+     */
+    private static final ToIntBiFunction<String, byte[]> BYTES_WEIGHER = new ToIntBiFunction<String, byte[]>() {
+        @Override
+        public int applyAsInt(String key, byte[] value) {
+            return key.length() + value.length;
+        }
+    };
+
     @PostConstruct
     void initializeCaches() {
+        // Frequency based (W-TinyLFU) eviction keeps hot definitions when warming caches or other scans
+        // stream through, and does not need soft values to stay within memory.
+        boolean frequencyBasedEviction = getCacheFlag("aura.cache.frequencyBasedEviction", false);
+        boolean softValues = getCacheFlag("aura.cache.softValues", !frequencyBasedEviction);
+
         int size = getCacheSize("aura.cache.existsCacheSize", DEFINITION_CACHE_SIZE);
         existsCache = this.<DefDescriptor<?>, Boolean> getCacheBuilder()
                 .setInitialSize(size)
                 .setLoggingAdapter(loggingAdapter)
+                .setFrequencyBasedEviction(frequencyBasedEviction)
                 .setMaximumSize(size)
                 .setRecordStats(true)
                 .setName("existsCache")
-                .setSoftValues(true).build();
+                .setSoftValues(softValues).build();
 
         size = getCacheSize("aura.cache.defsCacheSize", DEFINITION_CACHE_SIZE);
         defsCache = this
                 .<DefDescriptor<?>, Optional<? extends Definition>> getCacheBuilder()
                 .setInitialSize(size)
                 .setLoggingAdapter(loggingAdapter)
+                .setFrequencyBasedEviction(frequencyBasedEviction)
                 .setMaximumSize(size)
                 .setRecordStats(true)
                 .setName("defsCache")
-                .setSoftValues(true).build();
+                .setSoftValues(softValues).build();
 
         size = getCacheSize("aura.cache.stringsCacheSize", STRING_CACHE_SIZE);
-        stringsCache = this.<String, String> getCacheBuilder()
+        stringsCache = weighByLength(this.<String, String> getCacheBuilder()
                 .setInitialSize(size)
                 .setLoggingAdapter(loggingAdapter)
+                .setFrequencyBasedEviction(frequencyBasedEviction)
                 .setMaximumSize(size)
                 .setRecordStats(true)
                 .setName("stringsCache")
-                .setSoftValues(true).build();
+                .setSoftValues(softValues), "aura.cache.stringsCacheWeight").build();
 
         size = getCacheSize("aura.cache.altStringsCacheSize", ALT_STRINGS_CACHE_SIZE);
-        altStringsCache = this.<String, String> getCacheBuilder()
+        altStringsCache = weighByLength(this.<String, String> getCacheBuilder()
                 .setInitialSize(size)
                 .setLoggingAdapter(loggingAdapter)
+                .setFrequencyBasedEviction(frequencyBasedEviction)
                 .setMaximumSize(size)
                 .setRecordStats(true)
                 .setName("altStringsCache")
-                .setSoftValues(true).build();
+                .setUseSecondaryStorage(getCacheFlag("aura.cache.altStringsSecondaryStorage", false))
+                .setSoftValues(softValues), "aura.cache.altStringsCacheWeight").build();
 
         size = getCacheSize("aura.cache.filterCacheSize", FILTER_CACHE_SIZE);
         descriptorFilterCache = this
                 .<String, Set<DefDescriptor<?>>> getCacheBuilder()
                 .setInitialSize(size)
                 .setLoggingAdapter(loggingAdapter)
+                .setFrequencyBasedEviction(frequencyBasedEviction)
                 .setMaximumSize(size)
                 .setRecordStats(true)
                 .setName("descriptorFilterCache")
-                .setSoftValues(true).build();
+                .setSoftValues(softValues).build();
 
         size = getCacheSize("aura.cache.depsCacheSize", DEPENDENCY_CACHE_SIZE);
-        depsCache = this.<String, DependencyEntry> getCacheBuilder()
+        depsCache = new IndexedDependencyCache(new CacheImpl.Builder<DependencyKey, DependencyEntry>()
                 .setInitialSize(size)
                 .setLoggingAdapter(loggingAdapter)
+                .setFrequencyBasedEviction(frequencyBasedEviction)
                 .setMaximumSize(size)
                 .setRecordStats(true)
                 .setName("depsCache")
-                .setSoftValues(true).build();
+                .setSoftValues(softValues));
 
         size = getCacheSize("aura.cache.clientLibraryOutputCacheSize", CLIENT_LIB_CACHE_SIZE);
-        clientLibraryOutputCache = this.<String, String> getCacheBuilder()
+        clientLibraryOutputCache = weighByLength(this.<String, String> getCacheBuilder()
                 .setInitialSize(size)
                 .setLoggingAdapter(loggingAdapter)
+                .setFrequencyBasedEviction(frequencyBasedEviction)
                 .setMaximumSize(size)
-                .setSoftValues(true)
+                .setSoftValues(softValues)
                 .setName("clientLibraryOutputCache")
-                .setRecordStats(true).build();
+                .setRecordStats(true), "aura.cache.clientLibraryOutputCacheWeight").build();
+
+        size = getCacheSize("aura.cache.encodedResourceCacheSize", ENCODED_RESOURCE_CACHE_SIZE);
+        CacheBuilder<String, byte[]> encodedResourceCacheBuilder = this.<String, byte[]> getCacheBuilder()
+                .setInitialSize(size)
+                .setLoggingAdapter(loggingAdapter)
+                .setFrequencyBasedEviction(frequencyBasedEviction)
+                .setMaximumSize(size)
+                .setSoftValues(softValues)
+                .setName("encodedResourceCache")
+                .setRecordStats(true);
+        Long weight = getCacheWeight("aura.cache.encodedResourceCacheWeight");
+        if (weight != null) {
+            encodedResourceCacheBuilder.setMaximumWeight(weight, BYTES_WEIGHER);
+        }
+        encodedResourceCache = encodedResourceCacheBuilder.build();
 
         size = getCacheSize("aura.cache.defDescByNameCacheSize", DEFINITION_CACHE_SIZE);
         defDescriptorByNameCache =
                 this.<DefDescriptor.DescriptorKey, DefDescriptor<? extends Definition>> getCacheBuilder()
                         .setInitialSize(size)
                         .setLoggingAdapter(loggingAdapter)
+                        .setFrequencyBasedEviction(frequencyBasedEviction)
                         .setMaximumSize(size)
                         .setConcurrencyLevel(20)
                         .setName("defDescByNameCache")
@@ -194,11 +263,22 @@ public class CachingServiceImpl implements CachingService {
                this.<RegistrySet.RegistrySetKey, RegistrySet> getCacheBuilder()
                    .setInitialSize(size)
                    .setLoggingAdapter(loggingAdapter)
+                   .setFrequencyBasedEviction(frequencyBasedEviction)
                    .setMaximumSize(size)
-                   .setSoftValues(true)
+                   .setSoftValues(softValues)
                    .setName("registrySetCache")
                    .setRecordStats(true)
                    .build();
+
+        size = getCacheSize("aura.cache.accessCheckCacheSize", ACCESS_CHECK_CACHE_SIZE);
+        accessCheckCache = this.<AccessCheckKey, Boolean> getCacheBuilder()
+                .setInitialSize(size)
+                .setLoggingAdapter(loggingAdapter)
+                .setFrequencyBasedEviction(frequencyBasedEviction)
+                .setMaximumSize(size)
+                .setName("accessCheckCache")
+                .setRecordStats(true)
+                .build();
         
     }
 
@@ -228,7 +308,7 @@ public class CachingServiceImpl implements CachingService {
     }
 
     @Override
-    public final Cache<String, DependencyEntry> getDepsCache() {
+    public final Cache<DependencyKey, DependencyEntry> getDepsCache() {
         return depsCache;
     }
 
@@ -237,6 +317,11 @@ public class CachingServiceImpl implements CachingService {
         return clientLibraryOutputCache;
     }
 
+    @Override
+    public final Cache<String, byte[]> getEncodedResourceCache() {
+        return encodedResourceCache;
+    }
+
     @Override
     public final Cache<DefDescriptor.DescriptorKey, DefDescriptor<? extends Definition>> getDefDescriptorByNameCache() {
         return defDescriptorByNameCache;
@@ -246,6 +331,19 @@ public class CachingServiceImpl implements CachingService {
     public Cache<RegistrySetKey, RegistrySet> getRegistrySetCache() {
         return registrySetCache;
     }
+
+    @Override
+    public Cache<AccessCheckKey, Boolean> getAccessCheckCache() {
+        return accessCheckCache;
+    }
+
+    @Override
+    public void invalidateAccessChecks() {
+        // Namespaces may be configured before the caches are created.
+        if (accessCheckCache != null) {
+            accessCheckCache.invalidateAll();
+        }
+    }
     
     @Override
     public Lock getReadLock() {
@@ -263,8 +361,8 @@ public class CachingServiceImpl implements CachingService {
      * lock , it will log it as an non-fatal error, as it only results in staleness.
      *
      * @param listeners - collections of listeners to notify of source changes
-     * @param source - DefDescriptor that changed - for granular cache clear (currently not considered here, but other
-     *            listeners may make use of it)
+     * @param source - DefDescriptor that changed - for granular cache clear, only the dependencies and strings of
+     *            uids that include it are invalidated, unless it was created. Null clears everything.
      * @param event - what type of event triggered the change
      */
     @Override
@@ -296,7 +394,7 @@ public class CachingServiceImpl implements CachingService {
             }
 
             // successfully acquired the lock, start clearing caches
-            invalidateSourceRelatedCaches(source);
+            invalidateSourceRelatedCaches(source, event);
 
             // notify provided listeners, presumably to clear caches
             if (listeners != null) {
@@ -316,34 +414,74 @@ public class CachingServiceImpl implements CachingService {
         }
     }
 
-    private void invalidateSourceRelatedCaches(DefDescriptor<?> descriptor) {
-        
+    private void invalidateSourceRelatedCaches(DefDescriptor<?> descriptor, SourceListener.SourceMonitorEvent event) {
+        // Any change may change the access of a definition, or of the definitions parented by it.
+        accessCheckCache.invalidateAll();
+        if (descriptor == null) {
+            invalidateAllGeneratedCaches();
+            defsCache.invalidateAll();
+            existsCache.invalidateAll();
+            return;
+        }
+
+        Set<DefDescriptor<?>> changed = Sets.newLinkedHashSet();
+        for (DefDescriptor<?> current = descriptor; current != null; current = current.getBundle()) {
+            changed.add(current);
+            changed.add(new DefDescriptorImpl<>(current, ComponentDef.class, "markup"));
+            changed.add(new DefDescriptorImpl<>(current, ApplicationDef.class, "markup"));
+        }
+        for (DefDescriptor<?> desc : changed) {
+            defsCache.invalidate(desc);
+            existsCache.invalidate(desc);
+        }
+
+        if (event == SourceListener.SourceMonitorEvent.CHANGED || event == SourceListener.SourceMonitorEvent.DELETED) {
+            // Only the entries that include the descriptor change, along with the strings generated from them.
+            Set<String> uids = depsCache.invalidateDependents(changed);
+            invalidateUidKeys(stringsCache, uids);
+            invalidateUidKeys(altStringsCache, uids);
+            invalidateUidKeys(encodedResourceCache, uids);
+            if (event == SourceListener.SourceMonitorEvent.DELETED) {
+                descriptorFilterCache.invalidateAll();
+                registrySetCache.invalidateAll();
+            }
+        } else {
+            // A new descriptor may be picked up by any wildcard dependency.
+            invalidateAllGeneratedCaches();
+        }
+    }
+
+    private void invalidateAllGeneratedCaches() {
         depsCache.invalidateAll();
         descriptorFilterCache.invalidateAll();
         stringsCache.invalidateAll();
         altStringsCache.invalidateAll();
         clientLibraryOutputCache.invalidateAll();
+        encodedResourceCache.invalidateAll();
         registrySetCache.invalidateAll();
+    }
 
-        if (descriptor == null) {
-            defsCache.invalidateAll();
-            existsCache.invalidateAll();
-        } else {
-            DefDescriptor<ComponentDef> cdesc = new DefDescriptorImpl<>(descriptor, ComponentDef.class, "markup");
-            DefDescriptor<ApplicationDef> adesc = new DefDescriptorImpl<>(descriptor, ApplicationDef.class, "markup");
-
-            defsCache.invalidate(descriptor);
-            existsCache.invalidate(descriptor);
-            defsCache.invalidate(cdesc);
-            existsCache.invalidate(cdesc);
-            defsCache.invalidate(adesc);
-            existsCache.invalidate(adesc);
-
-            DefDescriptor<?> bundleParent = descriptor.getBundle();
-            if (bundleParent != null) {
-                invalidateSourceRelatedCaches(bundleParent);
+    /**
+     * Invalidate the keys of a string cache that are qualified by any of the given uids.
+     *
+     * Keys are qualified by a uid followed by an '@', possibly with a prefix.
+     */
+    private <T> void invalidateUidKeys(Cache<String, T> cache, Set<String> uids) {
+        if (uids.isEmpty()) {
+            return;
+        }
+        List<String> invalid = Lists.newArrayList();
+        for (String key : cache.getKeySet()) {
+            for (String uid : uids) {
+                if (key.contains(uid + "@")) {
+                    invalid.add(key);
+                    break;
+                }
             }
         }
+        if (!invalid.isEmpty()) {
+            cache.invalidate(invalid);
+        }
     }
 
     @Inject
@@ -356,6 +494,47 @@ public class CachingServiceImpl implements CachingService {
         this.configAdapter = configAdapter;
     }
 
+    /**
+     * Bounds a string cache by the total length of its entries if the given
+     * system property is set. Large generated strings then push out many small
+     * ones, rather than counting as a single entry.
+     */
+    private CacheBuilder<String, String> weighByLength(CacheBuilder<String, String> builder, String propName) {
+        Long weight = getCacheWeight(propName);
+        if (weight != null) {
+            builder.setMaximumWeight(weight, STRING_WEIGHER);
+        }
+        return builder;
+    }
+
+    /**
+     * Reads a maximum cache weight from a system property.
+     *
+     * @return the weight, or null if it is not set, in which case the cache stays bounded by size.
+     */
+    private Long getCacheWeight(String propName) {
+        String prop = System.getProperty(propName);
+        if (prop != null && !prop.isEmpty()) {
+            try {
+                return Long.parseLong(prop);
+            } catch (NumberFormatException e) {
+                // ne'ermind, stay bounded by size
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads a boolean cache setting from a system property.
+     */
+    private boolean getCacheFlag(String propName, boolean defaultValue) {
+        String prop = System.getProperty(propName);
+        if (prop == null || prop.isEmpty()) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(prop);
+    }
+
     /**
      * Computes a size for a given cache.  The defaults can be overridden
      * with system properties.
@@ -15,12 +15,20 @@
  */
 package org.auraframework.impl;
 
+import java.io.File;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 
@@ -45,6 +53,7 @@ import org.auraframework.def.DescriptorFilter;
 import org.auraframework.def.ParentedDef;
 import org.auraframework.def.RootDefinition;
 import org.auraframework.def.TypeDef;
+import org.auraframework.impl.cache.DefinitionCacheSnapshot;
 import org.auraframework.impl.controller.AuraGlobalControllerDefRegistry;
 import org.auraframework.impl.system.CompilingDefRegistry;
 import org.auraframework.impl.system.DefDescriptorImpl;
@@ -54,11 +63,13 @@ import org.auraframework.service.CachingService;
 import org.auraframework.service.ContextService;
 import org.auraframework.service.DefinitionService;
 import org.auraframework.service.LoggingService;
+import org.auraframework.system.AccessCheckKey;
 import org.auraframework.system.AuraContext;
 import org.auraframework.system.AuraContext.Authentication;
 import org.auraframework.system.BundleSource;
 import org.auraframework.system.DefRegistry;
 import org.auraframework.system.DependencyEntry;
+import org.auraframework.system.DependencyKey;
 import org.auraframework.system.Location;
 import org.auraframework.system.RegistrySet;
 import org.auraframework.system.Source;
@@ -89,6 +100,14 @@ public class DefinitionServiceImpl implements DefinitionService {
 
     private static final Logger logger = Logger.getLogger(DefinitionServiceImpl.class);
 
+    /** Number of threads used by {@link #warmCaches()}, one warms the caches on the calling thread */
+    private static final int WARM_CACHES_PARALLELISM = Integer.getInteger("aura.warmCaches.parallelism", 1);
+
+    /** File in which the caches warmed by {@link #warmCaches()} are kept across restarts, none if not set */
+    private static final String WARM_CACHES_SNAPSHOT = System.getProperty("aura.warmCaches.snapshot");
+
+    private static final DefType [] WARM_TYPES = new DefType [] { DefType.LIBRARY, DefType.COMPONENT, DefType.APPLICATION };
+
     private ContextService contextService;
 
     private CachingService cachingService;
@@ -134,7 +153,7 @@ public class DefinitionServiceImpl implements DefinitionService {
                     return (DefDescriptor<T>) typeDef.getDescriptor();
                 }
             }
-            result = new DefDescriptorImpl<>(qualifiedName, defClass, bundle);
+            result = DefDescriptorImpl.intern(new DefDescriptorImpl<>(qualifiedName, defClass, bundle));
 
             // Our input names may not be qualified, but we should ensure that
             // the fully-qualified is properly cached to the same object.
@@ -460,6 +479,7 @@ public class DefinitionServiceImpl implements DefinitionService {
                                 for (String ns : namespaces) {
                                     if (namespaceMatcher.match(ns)) {
                                         nsm = true;
+                                        break;
                                     }
                                 }
                             }
@@ -876,31 +896,49 @@ public class DefinitionServiceImpl implements DefinitionService {
         }
 
         DefDescriptor<?> desc = def.getDescriptor();
+        DefDescriptor<? extends RootDefinition> parentDescriptor = null;
 
         String namespace;
-        String target;
 
         if (def instanceof ParentedDef) {
             ParentedDef parentedDef = (ParentedDef) def;
-            DefDescriptor<? extends RootDefinition> parentDescriptor = parentedDef.getParentDescriptor();
+            parentDescriptor = parentedDef.getParentDescriptor();
             namespace = parentDescriptor.getNamespace();
-            target = String.format("%s:%s.%s", namespace, parentDescriptor.getName(), desc.getName());
         } else {
             namespace = desc.getNamespace();
-            target = String.format("%s:%s", namespace, desc.getName());
         }
 
-        // Cache key is of the form "referencingNamespace>defNamespace:defName[.subDefName].defTypeOrdinal"
+        // Cache key is the referencing namespace, the parent descriptor if any, the descriptor and its access
         DefType defType = desc.getDefType();
-        String key = String.format("%s>%s.%d", referencingNamespace == null ? "" : referencingNamespace, target,
-                defType.ordinal());
+        AccessCheckKey key = new AccessCheckKey(referencingNamespace, parentDescriptor, desc, access.isPrivate());
+
+        // The decision is shared by all requests, only the message of a denial is kept per request. The internal and
+        // privileged namespaces, which can change at any time, are checked above and never cached. A def that is
+        // local to this request, such as a dynamic def, is not what other requests see, so its decision is not shared.
+        AuraContext context = contextService.getCurrentContext();
+        Cache<AccessCheckKey, Boolean> globalAccessCheckCache = null;
+        Boolean allowed = null;
+        if (!context.isLocalDefNotCacheable(desc)
+                && (parentDescriptor == null || !context.isLocalDefNotCacheable(parentDescriptor))) {
+            globalAccessCheckCache = cachingService.getAccessCheckCache();
+            allowed = globalAccessCheckCache.getIfPresent(key);
+            if (Boolean.TRUE.equals(allowed)) {
+                return null;
+            }
+        }
 
-        Cache<String, String> accessCheckCache = contextService.getCurrentContext().getAccessCheckCache();
+        Cache<AccessCheckKey, String> accessCheckCache = context.getAccessCheckCache();
         String status = accessCheckCache.getIfPresent(key);
         if (status == null) {
             // System.out.printf("** MDR.miss.assertAccess() cache miss for: %s\n", key);
             // We may re-enter this code, but only in race conditions. We should generate the
             // same string, and the only way to protect against this is to lock it.
+            String target;
+            if (parentDescriptor != null) {
+                target = String.format("%s:%s.%s", namespace, parentDescriptor.getName(), desc.getName());
+            } else {
+                target = String.format("%s:%s", namespace, desc.getName());
+            }
 
             DefDescriptor<? extends Definition> descriptor = def.getDescriptor();
             if (!configAdapter.isUnsecuredNamespace(namespace)
@@ -926,6 +964,9 @@ public class DefinitionServiceImpl implements DefinitionService {
                 status = "";
             }
             accessCheckCache.put(key, status);
+            if (globalAccessCheckCache != null && allowed == null) {
+                globalAccessCheckCache.put(key, Boolean.valueOf(status.isEmpty()));
+            }
         } else {
             // System.out.printf("** MDR.hit.assertAccess() cache hit for: %s\n", key);
         }
@@ -937,29 +978,18 @@ public class DefinitionServiceImpl implements DefinitionService {
 
     /**
      * Creates a key for the localDependencies, using DefType, FQN, and modules
+     *
+     * This is also the key for the global {@link CachingServiceImpl#depsCache} without a uid.
      * */
-    private String makeLocalKey(@Nonnull DefDescriptor<?> descriptor, boolean modulesEnabled) {
-        String key = descriptor.getDefType().toString() + ":" + descriptor.getQualifiedName().toLowerCase();
-        if (modulesEnabled) {
-            key += ":m";
-        }
-        return key;
+    private DependencyKey makeLocalKey(@Nonnull DefDescriptor<?> descriptor, boolean modulesEnabled) {
+        return new DependencyKey(null, descriptor, modulesEnabled);
     }
 
     /**
      * Creates a key for the global {@link CachingServiceImpl#defsCache}, using UID, type, FQN, and modules
      */
-    private String makeGlobalKey(String uid, @Nonnull DefDescriptor<?> descriptor, boolean modulesEnabled) {
-        return uid + "/" + makeLocalKey(descriptor, modulesEnabled);
-    }
-
-    /**
-     * Creates a key for the global {@link CachingServiceImpl#defsCache}, using only descriptor (and Mode internally).
-     *
-     * @param descriptor - the descriptor use for the key
-     */
-    private String makeNonUidGlobalKey(@Nonnull DefDescriptor<?> descriptor, boolean modulesEnabled) {
-        return makeLocalKey(descriptor, modulesEnabled);
+    private DependencyKey makeGlobalKey(String uid, @Nonnull DefDescriptor<?> descriptor, boolean modulesEnabled) {
+        return new DependencyKey(uid, descriptor, modulesEnabled);
     }
 
     /**
@@ -990,7 +1020,7 @@ public class DefinitionServiceImpl implements DefinitionService {
         CompileContext currentCC = threadContext.get();
         AuraContext context = contextService.getCurrentContext();
         boolean modulesEnabled = context.isModulesEnabled();
-        String key = makeLocalKey(descriptor, modulesEnabled);
+        DependencyKey key = makeLocalKey(descriptor, modulesEnabled);
         Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache = cachingService.getDefsCache();
 
         if (currentCC != null) {
@@ -998,10 +1028,28 @@ public class DefinitionServiceImpl implements DefinitionService {
                     + " trying to build " + descriptor);
         }
 
+        //
+        // If another thread is already compiling this descriptor, wait for it and build from its entry.
+        // We only get an entry back if it was cacheable, otherwise we compile it ourselves as before.
+        //
+        CompletableFuture<DependencyEntry> flight = new CompletableFuture<>();
+        CompletableFuture<DependencyEntry> leader = compilesInFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            flight = null;
+            DependencyEntry de = awaitCompile(leader);
+            if (de != null) {
+                buildDE(de, descriptor);
+                // See localDependencies comment
+                context.addLocalDependencyEntry(key, de);
+                return de;
+            }
+        }
+
+        DependencyEntry shared = null;
         List<ClientLibraryDef> clientLibs = Lists.newArrayList();
-        currentCC = new CompileContext(descriptor, context, defsCache, clientLibs);
-        threadContext.set(currentCC);
         try {
+            currentCC = new CompileContext(descriptor, context, defsCache, clientLibs);
+            threadContext.set(currentCC);
             currentCC.addMap(globalControllerDefRegistry.getAll());
             Definition def = compileDef(descriptor, currentCC, false);
 
@@ -1046,6 +1094,8 @@ public class DefinitionServiceImpl implements DefinitionService {
             }
             // UID is calculated with ALL defs of both component and module so the UID remains the same
             String uid = globalBuilder.build().toString();
+            CompilingDef<T> cd = currentCC.getCompiling(descriptor);
+            boolean shareable = cd.cacheable && currentCC.shouldCacheDependencies;
 
             //
             // Now try a re-lookup. This may catch existing cached
@@ -1053,20 +1103,23 @@ public class DefinitionServiceImpl implements DefinitionService {
             //
             DependencyEntry de = getDE(uid, descriptor);
             if (de != null) {
+                if (shareable) {
+                    shared = de;
+                }
                 return de;
             }
 
             de = createDependencyEntry(compiled, uid, clientLibs);
 
-            CompilingDef<T> cd = currentCC.getCompiling(descriptor);
-            Cache<String, DependencyEntry> depsCache = cachingService.getDepsCache();
+            Cache<DependencyKey, DependencyEntry> depsCache = cachingService.getDepsCache();
             if (cd.cacheable) {
                 // put UID-qualified descriptor key for dependency
                 depsCache.put(makeGlobalKey(de.uid, descriptor, modulesEnabled), de);
 
                 // put unqualified descriptor key for dependency
                 if (currentCC.shouldCacheDependencies) {
-                    depsCache.put(makeNonUidGlobalKey(descriptor, modulesEnabled), de);
+                    depsCache.put(key, de);
+                    shared = de;
                 }
             }
 
@@ -1080,9 +1133,31 @@ public class DefinitionServiceImpl implements DefinitionService {
             throw qfe;
         } finally {
             threadContext.set(null);
+            if (flight != null) {
+                compilesInFlight.remove(key, flight);
+                flight.complete(shared);
+            }
         }
     }
 
+    /**
+     * Wait for a compile on another thread.
+     *
+     * @param compile the compile to wait for.
+     * @return the entry it compiled if other threads may use it, or null if we should compile it ourselves.
+     */
+    @CheckForNull
+    private DependencyEntry awaitCompile(@Nonnull Future<DependencyEntry> compile) {
+        try {
+            return compile.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ee) {
+            // the compiling thread reports its own failure.
+        }
+        return null;
+    }
+
     private DependencyEntry createDependencyEntry(List<CompilingDef<?>> compiled, String uid,
                                                   List<ClientLibraryDef> clientLibs) {
         Set<DefDescriptor<? extends Definition>> deps = Sets.newLinkedHashSet();
@@ -1117,8 +1192,8 @@ public class DefinitionServiceImpl implements DefinitionService {
         // See localDependencies comment
         AuraContext context = contextService.getCurrentContext();
         boolean modulesEnabled = context.isModulesEnabled();
-        Cache<String, DependencyEntry> depsCache = cachingService.getDepsCache();
-        String key = makeLocalKey(descriptor, modulesEnabled);
+        Cache<DependencyKey, DependencyEntry> depsCache = cachingService.getDepsCache();
+        DependencyKey key = makeLocalKey(descriptor, modulesEnabled);
         DependencyEntry de;
 
         if (uid != null) {
@@ -1134,7 +1209,7 @@ public class DefinitionServiceImpl implements DefinitionService {
             if (de != null) {
                 return de;
             }
-            de = depsCache.getIfPresent(makeNonUidGlobalKey(descriptor, modulesEnabled));
+            de = depsCache.getIfPresent(key);
         }
         if (de != null) {
             // See localDependencies comment
@@ -1322,6 +1397,15 @@ public class DefinitionServiceImpl implements DefinitionService {
 
     private final ThreadLocal<CompileContext> threadContext = new ThreadLocal<>();
 
+    /**
+     * Top level compiles in progress, by the deps cache key their entry is shared under.
+     *
+     * A thread that needs a descriptor another thread is compiling waits for that compile rather than doing the same
+     * work again. Only the compiling thread holds a compile context, so a thread that is waiting never blocks one
+     * that is compiling.
+     */
+    private final ConcurrentMap<DependencyKey, CompletableFuture<DependencyEntry>> compilesInFlight = new ConcurrentHashMap<>();
+
     /**
      * Temporary fix to get sub definitions.
      *
@@ -1640,50 +1724,175 @@ public class DefinitionServiceImpl implements DefinitionService {
 
     @Override
     public void warmCaches() {
+        DefinitionCacheSnapshot snapshot = restoreCacheSnapshot();
+
+        if (WARM_CACHES_PARALLELISM > 1) {
+            ForkJoinPool pool = new ForkJoinPool(WARM_CACHES_PARALLELISM);
+            try {
+                warmNamespaces(pool);
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            warmNamespaces();
+        }
+        saveCacheSnapshot(snapshot);
+    }
+
+    @Override
+    public void warmCaches(ExecutorService executor) {
+        DefinitionCacheSnapshot snapshot = restoreCacheSnapshot();
+
+        warmNamespaces(executor);
+        saveCacheSnapshot(snapshot);
+    }
+
+    /**
+     * Restore the definition caches from the snapshot, if one is configured.
+     *
+     * @return the snapshot, or null if there is none.
+     */
+    @CheckForNull
+    private DefinitionCacheSnapshot restoreCacheSnapshot() {
+        if (WARM_CACHES_SNAPSHOT == null) {
+            return null;
+        }
+        DefinitionCacheSnapshot snapshot = new DefinitionCacheSnapshot(new File(WARM_CACHES_SNAPSHOT),
+                configAdapter.getAuraFrameworkNonce());
+        snapshot.restore(contextService.getCurrentContext().getRegistries(), cachingService.getDefsCache(),
+                cachingService.getDepsCache());
+        return snapshot;
+    }
+
+    private void saveCacheSnapshot(@CheckForNull DefinitionCacheSnapshot snapshot) {
+        if (snapshot != null) {
+            snapshot.save(contextService.getCurrentContext().getRegistries(), cachingService.getDefsCache(),
+                    cachingService.getDepsCache());
+        }
+    }
+
+    private void warmNamespaces() {
         AuraContext context = contextService.getCurrentContext();
-        Cache<DefDescriptor<?>, Optional<? extends Definition>> defCaches = cachingService.getDefsCache();
-        List<ClientLibraryDef> clientLibs = Lists.newArrayList();
-        CompileContext cc = new CompileContext(null, context, defCaches, clientLibs);
-        cc.addMap(globalControllerDefRegistry.getAll());
+        CompileContext cc = newWarmingContext(context);
         long startTime = System.currentTimeMillis();
         long incremental;
 
-        DefType [] types = new DefType [] { DefType.LIBRARY, DefType.COMPONENT, DefType.APPLICATION };
-
         for (DefRegistry registry : context.getRegistries().getAllRegistries()) {
             if (registry instanceof CompilingDefRegistry) {
                 incremental = System.currentTimeMillis();
                 for (String namespace : registry.getNamespaces()) {
-                    for (DefType type : types) {
-                        DescriptorFilter filter = new DescriptorFilter(namespace+":*", type);
-                        Set<DefDescriptor<?>> descriptors = registry.find(filter);
-
-                        for (DefDescriptor<?> descriptor : descriptors) {
-                            if (defCaches.getIfPresent(descriptor) == null) {
-                                try {
-                                    compileDef(descriptor, cc, false);
-                                } catch (Throwable t) {
-                                    // we totally ignore errors, we are just trying to warm the caches.
-                                    cleanupValidation(cc);
-                                }
-                            }
-                        }
-                    }
+                    warmNamespace(registry, namespace, cc);
                 }
                 incremental = System.currentTimeMillis() - incremental;
                 logger.info("warmCaches: PROCESSED CompilingDefRegistry with namespaces = "+registry.getNamespaces()
                         +", time = "+incremental);
             } else {
-                logger.warn("warmCaches: SKIP "+registry.getClass().getSimpleName()
-                            +" with prefixes="+registry.getPrefixes()
-                            +" with namespace="+registry.getNamespaces()
-                            +" with defTypes="+registry.getDefTypes());
+                logSkippedRegistry(registry);
             }
         }
         long elapsedTime = System.currentTimeMillis() - startTime;
         logger.info("warmCaches(END): Total time ="+elapsedTime);
     }
 
+    private void warmNamespaces(ExecutorService executor) {
+        final AuraContext context = contextService.getCurrentContext();
+        long startTime = System.currentTimeMillis();
+        List<Future<?>> namespaces = Lists.newArrayList();
+
+        for (DefRegistry registry : context.getRegistries().getAllRegistries()) {
+            if (registry instanceof CompilingDefRegistry) {
+                for (String namespace : registry.getNamespaces()) {
+                    namespaces.add(executor.submit(() -> warmNamespace(context, registry, namespace)));
+                }
+            } else {
+                logSkippedRegistry(registry);
+            }
+        }
+        for (Future<?> namespace : namespaces) {
+            try {
+                namespace.get();
+            } catch (ExecutionException ee) {
+                logger.error("warmCaches: Failed to warm namespace", ee.getCause());
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                for (Future<?> toCancel : namespaces) {
+                    toCancel.cancel(true);
+                }
+                logger.warn("warmCaches: Interrupted");
+                break;
+            }
+        }
+        long elapsedTime = System.currentTimeMillis() - startTime;
+        logger.info("warmCaches(END): Total time ="+elapsedTime+", namespaces = "+namespaces.size());
+    }
+
+    /**
+     * Warm a namespace on a worker thread, with its own context and compile context.
+     *
+     * The worker gets a context like that of the caller, unless the executor runs the task on a thread that
+     * already has one, e.g. the calling thread.
+     */
+    private void warmNamespace(AuraContext callerContext, DefRegistry registry, String namespace) {
+        boolean started = false;
+
+        if (!contextService.isEstablished()) {
+            contextService.startContext(callerContext.getMode(), callerContext.getFormat(),
+                    callerContext.getAccess(), callerContext.getApplicationDescriptor());
+            started = true;
+        }
+        try {
+            long startTime = System.currentTimeMillis();
+            int count = warmNamespace(registry, namespace, newWarmingContext(contextService.getCurrentContext()));
+            logger.info("warmCaches: PROCESSED namespace = "+namespace+", descriptors = "+count
+                    +", time = "+(System.currentTimeMillis() - startTime));
+        } finally {
+            if (started) {
+                contextService.endContext();
+            }
+        }
+    }
+
+    /**
+     * Compile all of the libraries, components and applications in a namespace that are not yet cached.
+     *
+     * @return the number of descriptors found.
+     */
+    private int warmNamespace(DefRegistry registry, String namespace, CompileContext cc) {
+        int count = 0;
+
+        for (DefType type : WARM_TYPES) {
+            DescriptorFilter filter = new DescriptorFilter(namespace+":*", type);
+            Set<DefDescriptor<?>> descriptors = registry.find(filter);
+
+            count += descriptors.size();
+            for (DefDescriptor<?> descriptor : descriptors) {
+                if (cc.defsCache.getIfPresent(descriptor) == null) {
+                    try {
+                        compileDef(descriptor, cc, false);
+                    } catch (Throwable t) {
+                        // we totally ignore errors, we are just trying to warm the caches.
+                        cleanupValidation(cc);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private CompileContext newWarmingContext(AuraContext context) {
+        List<ClientLibraryDef> clientLibs = Lists.newArrayList();
+        CompileContext cc = new CompileContext(null, context, cachingService.getDefsCache(), clientLibs);
+        cc.addMap(globalControllerDefRegistry.getAll());
+        return cc;
+    }
+
+    private void logSkippedRegistry(DefRegistry registry) {
+        logger.warn("warmCaches: SKIP "+registry.getClass().getSimpleName()
+                    +" with prefixes="+registry.getPrefixes()
+                    +" with namespace="+registry.getNamespaces()
+                    +" with defTypes="+registry.getDefTypes());
+    }
+
     private void cleanupValidation(CompileContext cc) {
         //
         // !!!EXTREMELY HACKISH!!!!
@@ -24,6 +24,7 @@ import org.auraframework.system.LoggingContext.KeyValueLogger;
 import org.auraframework.util.json.Json;
 
 import javax.inject.Inject;
+import java.util.Collections;
 import java.util.Map;
 
 /**
@@ -61,6 +62,23 @@ public class LoggingServiceImpl implements LoggingService {
         }
     }
 
+    @Override
+    public Map<String, Map<String, Long>> getActionStats() {
+        LoggingContext lc = getLoggingContext();
+        if (lc == null) {
+            return Collections.emptyMap();
+        }
+        return lc.getActionStats();
+    }
+
+    @Override
+    public void addActionStats(Map<String, Map<String, Long>> stats) {
+        LoggingContext lc = getLoggingContext();
+        if (lc != null) {
+            lc.addActionStats(stats);
+        }
+    }
+
     @Override
     public void startAction(String actionName, Action action) {
         LoggingContext lc = getLoggingContext();
@@ -16,10 +16,16 @@
 package org.auraframework.impl;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -55,6 +61,7 @@ import org.auraframework.impl.source.resource.ResourceSourceLoader;
 import org.auraframework.impl.system.CompilingDefRegistry;
 import org.auraframework.impl.system.NonCachingDefRegistryImpl;
 import org.auraframework.impl.system.PassThroughDefRegistry;
+import org.auraframework.impl.system.RegistriesFile;
 import org.auraframework.impl.system.RegistryTrie;
 import org.auraframework.impl.system.StaticDefRegistryImpl;
 import org.auraframework.impl.type.AuraStaticTypeDefRegistry;
@@ -191,69 +198,75 @@ public class RegistryServiceImpl implements RegistryService, SourceListener {
     }
 
     /**
-     * Get an input stream from a file name.
+     * Map a registries file into memory, so that its definitions are only read as they are used.
      *
-     * @param path the path to open.
+     * @param file the file to map.
      */
-    private InputStream getFileInputStream(String path) {
-        File file = new File(path);
-        FileInputStream fis = null;
+    private ByteBuffer mapFile(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
 
+    /**
+     * Copy a resource that is not a plain file, e.g. one in a jar, to a temporary file and map that, so that it is not
+     * kept on the heap either.
+     */
+    private ByteBuffer mapCopy(InputStream in) throws IOException {
+        File temp = File.createTempFile("aura-registries", ".tmp");
         try {
-            fis = new FileInputStream(file);
-        } catch (Throwable t) {
-            // don't die.
-            // This can occur because the file is unreadable, or doesn't exist. We only
-            // log an error if the file exists.
-            if (file.exists()) {
-                _log.error("Unable to open registries file", t);
+            Files.copy(in, temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return mapFile(temp);
+        } finally {
+            // a mapping stays valid without its file, where the file system lets a mapped file be deleted
+            if (!temp.delete()) {
+                temp.deleteOnExit();
             }
         }
-        return fis;
     }
 
-    private DefRegistry[] getStaticRegistries(ComponentLocationAdapter location) {
-        InputStream ris = null;
-
+    /**
+     * Get the registries file of a location, mapped when it is a file or copied to one, or null if there is none.
+     */
+    private ByteBuffer getRegistriesBuffer(ComponentLocationAdapter location) throws IOException {
         String pkg = location.getComponentSourcePackageAlways();
         if (pkg != null) {
-            ris = location.getClass().getClassLoader().getResourceAsStream(pkg + "/.registries");
-        } else {
-            File compSource = location.getComponentSourceDir();
-            if (compSource != null && compSource.canRead()) {
-                ris = getFileInputStream(compSource + "/.registries");
+            URL url = location.getClass().getClassLoader().getResource(pkg + "/.registries");
+            if (url == null) {
+                return null;
             }
-        }
-        if (ris != null) {
-            ObjectInputStream ois = null;
-
-            try {
-                ois = new ObjectInputStream(ris);
-                Object o = ois.readObject();
-                if (o instanceof List) {
-                    @SuppressWarnings("unchecked")
-                    List<DefRegistry> l = (List<DefRegistry>)o;
-                    return l.toArray(new DefRegistry[l.size()]);
-                }
-                return (DefRegistry[]) ois.readObject();
-            } catch (Exception e) {
-                // Do not fail here, just act as if we don't have a registries file.
-                // You'd have to create a bad registries file...
-                _log.error("Unable to read registries file", e);
-            } finally {
+            if ("file".equals(url.getProtocol())) {
                 try {
-                    ris.close();
-                } catch (IOException e) {
-                    throw new AuraRuntimeException(e);
-                }
-                if (ois != null) {
-                    try {
-                        ois.close();
-                    } catch (IOException e) {
-                        throw new AuraRuntimeException(e);
-                    }
+                    return mapFile(new File(url.toURI()));
+                } catch (URISyntaxException | IllegalArgumentException e) {
+                    // not a plain file after all, read it like any other resource.
                 }
             }
+            try (InputStream in = url.openStream()) {
+                return mapCopy(in);
+            }
+        }
+        File compSource = location.getComponentSourceDir();
+        if (compSource != null && compSource.canRead()) {
+            File file = new File(compSource, ".registries");
+            // a location without a registries file is not an error, only one that cannot be read
+            if (file.exists()) {
+                return mapFile(file);
+            }
+        }
+        return null;
+    }
+
+    private DefRegistry[] getStaticRegistries(ComponentLocationAdapter location) {
+        try {
+            ByteBuffer buffer = getRegistriesBuffer(location);
+            if (buffer != null) {
+                return RegistriesFile.read(buffer);
+            }
+        } catch (Exception e) {
+            // Do not fail here, just act as if we don't have a registries file.
+            // You'd have to create a bad registries file...
+            _log.error("Unable to read registries file", e);
         }
         return null;
     }
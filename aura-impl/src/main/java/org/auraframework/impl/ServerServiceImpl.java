@@ -16,13 +16,26 @@
 package org.auraframework.impl;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
@@ -61,14 +74,18 @@ import org.auraframework.service.MetricsService;
 import org.auraframework.service.SerializationService;
 import org.auraframework.service.ServerService;
 import org.auraframework.system.AuraContext;
+import org.auraframework.system.AuraContext.Authentication;
 import org.auraframework.system.AuraContext.Format;
 import org.auraframework.system.AuraContext.Mode;
+import org.auraframework.system.Client;
 import org.auraframework.system.DependencyEntry;
 import org.auraframework.system.LoggingContext.KeyValueLogger;
 import org.auraframework.system.Message;
 import org.auraframework.throwable.AuraExecutionException;
+import org.auraframework.throwable.AuraRuntimeException;
 import org.auraframework.throwable.quickfix.QuickFixException;
 import org.auraframework.util.javascript.Literal;
+import org.auraframework.util.json.CborEncoder;
 import org.auraframework.util.json.JsonEncoder;
 import org.auraframework.util.json.JsonSerializationContext;
 
@@ -121,6 +138,18 @@ public class ServerServiceImpl implements ServerService {
 
     private static final long serialVersionUID = -2779745160285710414L;
 
+    /**
+     * The number of threads used to run concurrent actions, if less than two, all actions run on the request thread.
+     */
+    private static final int ACTION_CONCURRENCY = Integer.getInteger("aura.actions.concurrency", 0);
+
+    /**
+     * The number of concurrent actions that can wait for a thread, beyond which they run on the request thread.
+     */
+    private static final int ACTION_QUEUE_SIZE = 16 * ACTION_CONCURRENCY;
+
+    private ExecutorService actionExecutor;
+
     private Cache<String, String> stringsCache;
 
     private Cache<String, String> altStringsCache;
@@ -131,16 +160,50 @@ public class ServerServiceImpl implements ServerService {
         this.altStringsCache = cachingService.getAltStringsCache();
     }
 
+    @PostConstruct
+    private void createActionExecutor() {
+        if (ACTION_CONCURRENCY > 1) {
+            final AtomicInteger threads = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(ACTION_CONCURRENCY, ACTION_CONCURRENCY,
+                    60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(ACTION_QUEUE_SIZE), runnable -> {
+                        Thread thread = new Thread(runnable, "aura-action-" + threads.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }, new ThreadPoolExecutor.AbortPolicy());
+            executor.allowCoreThreadTimeOut(true);
+            this.actionExecutor = executor;
+        }
+    }
+
+    /**
+     * Set the executor used to run concurrent actions.
+     *
+     * @param actionExecutor the executor, or null to run all actions on the request thread.
+     */
+    public void setActionExecutor(ExecutorService actionExecutor) {
+        this.actionExecutor = actionExecutor;
+    }
+
     @Override
     public void run(Message message, AuraContext context, Writer out, Map<?,?> extras) throws IOException {
-        loggingService.startTimer(LoggingService.TIMER_AURA_RUN);
+        if (message == null) {
+            return;
+        }
+        run(message, context, JsonEncoder.createJsonStream(out, context.getJsonSerializationContext()), extras);
+    }
 
+    @Override
+    public void run(Message message, AuraContext context, OutputStream out, Map<?,?> extras) throws IOException {
         if (message == null) {
             return;
         }
+        run(message, context, CborEncoder.createCborStream(out, context.getJsonSerializationContext()), extras);
+    }
+
+    private void run(Message message, AuraContext context, JsonEncoder json, Map<?,?> extras) throws IOException {
+        loggingService.startTimer(LoggingService.TIMER_AURA_RUN);
+
         List<Action> actions = message.getActions();
-        JsonSerializationContext serializationContext = context.getJsonSerializationContext();
-        JsonEncoder json = JsonEncoder.createJsonStream(out, serializationContext);
         try {
             json.writeMapBegin();
             if (extras != null && extras.size() > 0) {
@@ -150,7 +213,7 @@ public class ServerServiceImpl implements ServerService {
             }
             json.writeMapKey("actions");
             json.writeArrayBegin();
-            run(actions, json, 0);
+            run(actions, json, 0, configAdapter.isActionFlushEnabled());
             json.writeArrayEnd();
 
             loggingService.startTimer(LoggingService.TIMER_SERIALIZATION);
@@ -188,48 +251,316 @@ public class ServerServiceImpl implements ServerService {
         }
     }
 
-    private int run(List<Action> actions, JsonEncoder json, int idx) throws IOException {
+    private int run(List<Action> actions, JsonEncoder json, int idx, boolean flush) throws IOException {
         AuraContext context = contextService.getCurrentContext();
-        for (Action action : actions) {
-            StringBuffer actionAndParams = new StringBuffer(action.getDescriptor().getQualifiedName());
-            KeyValueLogger logger = loggingService.getKeyValueLogger(actionAndParams);
-            if (logger != null) {
-                action.logParams(logger);
+        int next = 0;
+        while (next < actions.size()) {
+            int end = getConcurrentEnd(actions, next);
+            if (end - next > 1) {
+                idx = runConcurrently(context, actions.subList(next, end), json, idx, flush);
+                next = end;
+            } else {
+                Action action = actions.get(next++);
+                runAction(context, action, ++idx);
+                idx = writeAction(action, json, idx, flush);
             }
-            String aap = String.valueOf(++idx)+"$"+actionAndParams.toString();
-            loggingService.startAction(aap, action);
-            Action oldAction = context.setCurrentAction(action);
-            try {
-                action.run();
-            } catch (AuraExecutionException x) {
-                exceptionAdapter.handleException(x, action);
-            } finally {
-                context.setCurrentAction(oldAction);
-                loggingService.stopAction(aap);
+        }
+        return idx;
+    }
+
+    /**
+     * Find the end of the run of concurrent actions that starts at an index.
+     *
+     * The run stops at the first action that is not concurrent, or that is already in the run, so that an action
+     * is never run twice at the same time.
+     *
+     * @return the index after the last action in the run, always past the start.
+     */
+    private int getConcurrentEnd(List<Action> actions, int start) {
+        if (actionExecutor == null) {
+            return start + 1;
+        }
+        Set<Action> group = Sets.newIdentityHashSet();
+        int end = start;
+        while (end < actions.size() && actions.get(end).isConcurrent() && group.add(actions.get(end))) {
+            end++;
+        }
+        return Math.max(end, start + 1);
+    }
+
+    private void runAction(AuraContext context, Action action, int idx) {
+        StringBuffer actionAndParams = new StringBuffer(action.getDescriptor().getQualifiedName());
+        KeyValueLogger logger = loggingService.getKeyValueLogger(actionAndParams);
+        if (logger != null) {
+            action.logParams(logger);
+        }
+        String aap = String.valueOf(idx)+"$"+actionAndParams.toString();
+        loggingService.startAction(aap, action);
+        Action oldAction = context.setCurrentAction(action);
+        try {
+            action.run();
+        } catch (AuraExecutionException x) {
+            exceptionAdapter.handleException(x, action);
+        } finally {
+            context.setCurrentAction(oldAction);
+            loggingService.stopAction(aap);
+        }
+    }
+
+    /**
+     * Write an action and run the actions it created.
+     *
+     * @param flush whether to flush the response after each action.
+     */
+    private int writeAction(Action action, JsonEncoder json, int idx, boolean flush) throws IOException {
+        loggingService.startTimer(LoggingService.TIMER_SERIALIZATION);
+        loggingService.startTimer(LoggingService.TIMER_SERIALIZATION_AURA);
+        try {
+            json.writeArrayEntry(action);
+        } finally {
+            loggingService.stopTimer(LoggingService.TIMER_SERIALIZATION_AURA);
+            loggingService.stopTimer(LoggingService.TIMER_SERIALIZATION);
+        }
+        if (flush) {
+            json.flush();
+        }
+
+        List<Action> additionalActions = action.getActions();
+
+        // Recursively process any additional actions created by the
+        // action
+        if (additionalActions != null && !additionalActions.isEmpty()) {
+            idx = run(additionalActions, json, idx, flush);
+        }
+        return idx;
+    }
+
+    /**
+     * Run a group of concurrent actions on the action executor, and write them in order as they finish.
+     *
+     * Each pooled action starts with the defs of the request context, which is not changed until all of them have
+     * started. Before an action is written, the defs it loaded or created, its client events and its stats are added
+     * to the request context, so that it is serialized in the same state as if it had run on the request thread. An
+     * action the executor has no room for runs on the request thread when its turn comes.
+     *
+     * Additional actions created by the group are run after the whole group, in the order of the group.
+     */
+    private int runConcurrently(AuraContext context, List<Action> actions, JsonEncoder json, int idx, boolean flush)
+            throws IOException {
+        final ActionContextSettings settings = new ActionContextSettings(context);
+        final CountDownLatch started = new CountDownLatch(actions.size());
+        List<Future<ConcurrentResult>> results = Lists.newArrayListWithCapacity(actions.size());
+        int[] indexes = new int[actions.size()];
+        try {
+            for (int i = 0; i < actions.size(); i++) {
+                final Action action = actions.get(i);
+                final int actionIdx = indexes[i] = ++idx;
+                Future<ConcurrentResult> result = null;
+                try {
+                    result = actionExecutor.submit(() -> runConcurrentAction(settings, context, action, actionIdx,
+                            started));
+                } catch (RejectedExecutionException ree) {
+                    started.countDown();
+                }
+                results.add(result);
             }
-            loggingService.startTimer(LoggingService.TIMER_SERIALIZATION);
-            loggingService.startTimer(LoggingService.TIMER_SERIALIZATION_AURA);
+            awaitStarted(started);
+            for (int i = 0; i < actions.size(); i++) {
+                Future<ConcurrentResult> future = results.get(i);
+                if (future == null) {
+                    runAction(context, actions.get(i), indexes[i]);
+                } else {
+                    ConcurrentResult result = getResult(future);
+                    context.merge(result.context);
+                    loggingService.addActionStats(result.actionStats);
+                    for (Event event : result.clientEvents) {
+                        addClientEvent(context, event);
+                    }
+                }
+                idx = writeAction(actions.get(i), json, idx, flush);
+            }
+        } finally {
+            for (Future<?> result : results) {
+                if (result != null) {
+                    result.cancel(true);
+                }
+            }
+        }
+        return idx;
+    }
+
+    /**
+     * Run an action on a worker thread, with its own context and logging context.
+     *
+     * The context starts with the defs of the request context, copied before the action is counted as started.
+     *
+     * @return the context of the action, the client events it fired and the stats logged for it, to be added to the
+     *         request.
+     */
+    private ConcurrentResult runConcurrentAction(ActionContextSettings settings, AuraContext requestContext,
+            Action action, int idx, CountDownLatch started) {
+        loggingService.establish();
+        try {
             try {
-                json.writeArrayEntry(action);
+                AuraContext context;
+                try {
+                    context = settings.startContext(contextService);
+                    context.merge(requestContext);
+                } finally {
+                    started.countDown();
+                }
+                runAction(context, action, idx);
+                return new ConcurrentResult(context, Lists.newArrayList(context.getClientEvents()),
+                        Maps.newHashMap(loggingService.getActionStats()));
             } finally {
-                loggingService.stopTimer(LoggingService.TIMER_SERIALIZATION_AURA);
-                loggingService.stopTimer(LoggingService.TIMER_SERIALIZATION);
+                if (contextService.isEstablished()) {
+                    contextService.endContext();
+                }
             }
+        } finally {
+            loggingService.release();
+        }
+    }
 
-            List<Action> additionalActions = action.getActions();
+    private void awaitStarted(CountDownLatch started) {
+        try {
+            started.await();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new AuraRuntimeException("Interrupted while running actions", ie);
+        }
+    }
 
-            // Recursively process any additional actions created by the
-            // action
-            if (additionalActions != null && !additionalActions.isEmpty()) {
-                idx = run(additionalActions, json, idx);
+    private void addClientEvent(AuraContext context, Event event) {
+        try {
+            context.addClientApplicationEvent(event);
+        } catch (Exception e) {
+            Throwables.propagateIfPossible(e);
+            throw new AuraRuntimeException(e);
+        }
+    }
+
+    private ConcurrentResult getResult(Future<ConcurrentResult> result) {
+        try {
+            return result.get();
+        } catch (ExecutionException ee) {
+            Throwables.propagateIfPossible(ee.getCause());
+            throw new AuraRuntimeException(ee.getCause());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new AuraRuntimeException("Interrupted while running actions", ie);
+        }
+    }
+
+    /**
+     * What a concurrent action leaves for the request thread.
+     */
+    private static class ConcurrentResult {
+        private final AuraContext context;
+        private final List<Event> clientEvents;
+        private final Map<String, Map<String, Long>> actionStats;
+
+        private ConcurrentResult(AuraContext context, List<Event> clientEvents,
+                Map<String, Map<String, Long>> actionStats) {
+            this.context = context;
+            this.clientEvents = clientEvents;
+            this.actionStats = actionStats;
+        }
+    }
+
+    /**
+     * The parts of the request context that a concurrent action sees, copied on the request thread.
+     */
+    private static class ActionContextSettings {
+        private final Mode mode;
+        private final Format format;
+        private final Authentication access;
+        private final DefDescriptor<? extends BaseComponentDef> appDesc;
+        private final DefDescriptor<? extends BaseComponentDef> loadingAppDesc;
+        private final String num;
+        private final String fwUID;
+        private final String contextPath;
+        private final Client client;
+        private final List<Locale> requestedLocales;
+        private final boolean modulesEnabled;
+        private final boolean useCompatSource;
+        private final Map<DefDescriptor<?>, String> clientLoaded;
+        private final Map<String, Object> globals = Maps.newHashMap();
+
+        private ActionContextSettings(AuraContext context) {
+            this.mode = context.getMode();
+            this.format = context.getFormat();
+            this.access = context.getAccess();
+            this.appDesc = context.getApplicationDescriptor();
+            this.loadingAppDesc = context.getLoadingApplicationDescriptor();
+            this.num = context.getNum();
+            this.fwUID = context.getFrameworkUID();
+            this.contextPath = context.getContextPath();
+            this.client = context.getClient();
+            this.requestedLocales = context.getRequestedLocales();
+            this.modulesEnabled = context.isModulesEnabled();
+            this.useCompatSource = context.useCompatSource();
+            this.clientLoaded = Maps.newLinkedHashMap(context.getClientLoaded());
+            for (Map.Entry<String, AuraContext.GlobalValue> entry : context.getGlobals().entrySet()) {
+                globals.put(entry.getKey(), entry.getValue().getValue());
             }
         }
-        return idx;
+
+        private AuraContext startContext(ContextService contextService) {
+            AuraContext context = contextService.startContext(mode, format, access, appDesc);
+            context.setLoadingApplicationDescriptor(loadingAppDesc);
+            context.setNum(num);
+            context.setFrameworkUID(fwUID);
+            context.setContextPath(contextPath);
+            context.setClient(client);
+            context.setRequestedLocales(requestedLocales);
+            context.setModulesEnabled(modulesEnabled);
+            context.setUseCompatSource(useCompatSource);
+            context.setClientLoaded(clientLoaded);
+            for (Map.Entry<String, Object> entry : globals.entrySet()) {
+                context.setGlobalValue(entry.getKey(), entry.getValue());
+            }
+            return context;
+        }
     }
 
     @Override
     public void writeAppCss(final Set<DefDescriptor<?>> dependencies, Writer out) throws IOException, QuickFixException {
         AuraContext context = contextService.getCurrentContext();
+        StyleContext styleContext = context.getStyleContext();
+        DefDescriptor<?> appDesc = context.getLoadingApplicationDescriptor();
+        final String uid = context.getUid(appDesc);
+        final String key = getAppCssKey(context);
+        context.setPreloading(true);
+
+        final boolean skipCache = styleContext.getTokens().hasDynamicTokens(); // TODONM undo this cache skipping
+        if (skipCache) {
+            String cached = getAppCssString(dependencies);
+            if (out != null) {
+                out.append(cached);
+            }
+        } else {
+            writeAltCachedString(uid, appDesc, key,
+                new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return getAppCssString(dependencies);
+                    }
+                }, out
+            );
+        }
+    }
+
+    @Override
+    public String getAppCssCacheKey() {
+        AuraContext context = contextService.getCurrentContext();
+        if (context.getStyleContext().getTokens().hasDynamicTokens()) {
+            return null;
+        }
+        return getCacheKey(context, getAppCssKey(context));
+    }
+
+    private String getAppCssKey(AuraContext context) {
         boolean minify = context.getMode().minify();
 
         StyleContext styleContext = context.getStyleContext();
@@ -269,30 +600,9 @@ public class ServerServiceImpl implements ServerService {
 
         // app uid
         DefDescriptor<?> appDesc = context.getLoadingApplicationDescriptor();
-        final String uid = context.getUid(appDesc);
-        keyBuilder.append(uid);
-
-        final String key = keyBuilder.toString();
-        context.setPreloading(true);
+        keyBuilder.append(context.getUid(appDesc));
 
-        String cached = null;
-        final boolean skipCache = styleContext.getTokens().hasDynamicTokens(); // TODONM undo this cache skipping
-        if (skipCache) {
-            cached = getAppCssString(dependencies);
-        } else {
-            cached = getAltCachedString(uid, appDesc, key,
-                new Callable<String>() {
-                    @Override
-                    public String call() throws Exception {
-                        return getAppCssString(dependencies);
-                    }
-                }
-            );
-        }
-
-        if (out != null) {
-            out.append(cached);
-        }
+        return keyBuilder.toString();
     }
 
     private String getAppCssString(Set<DefDescriptor<?>> dependencies) throws QuickFixException, IOException {
@@ -351,33 +661,173 @@ public class ServerServiceImpl implements ServerService {
     public void writeDefinitions(final Set<DefDescriptor<?>> dependencies, Writer out)
             throws IOException, QuickFixException {
         AuraContext context = contextService.getCurrentContext();
-        final boolean minify = context.getMode().minify();
 
         context.setPreloading(true);
         DefDescriptor<?> appDesc = context.getLoadingApplicationDescriptor();
 
-        final String mKey = minify ? "MIN:" : "DEV:";
         final String uid = context.getUid(appDesc);
-        final String lockerServiceCacheBuster  = configAdapter.getLockerServiceCacheBuster();
-        // modules definitions will be present with modules enabled so needs to be cached separately
-        final String modules = context.isModulesEnabled() ? ":m" : "";
-        final String key = "JS:" + mKey + uid + ":" + lockerServiceCacheBuster + modules;
-                
-        String cached = getAltCachedString(uid, appDesc, key,
+        final String key = getDefinitionsKey(context);
+
+        if (out != null && configAdapter.isStreamingDefinitionsEnabled()
+                && writeStreamingDefinitions(dependencies, uid, appDesc, key, out)) {
+            return;
+        }
+
+        writeAltCachedString(uid, appDesc, key,
                 () -> {
                     String res = getDefinitionsString(dependencies, key);
                     //log the cache miss here
                     cachingService.getAltStringsCache().logCacheStatus("cache miss for key: "+key+";");
                     return res;
-                });
+                }, out);
+    }
 
-        if (out != null) {
-           out.append(cached);
+    @Override
+    public String getDefinitionsCacheKey() {
+        AuraContext context = contextService.getCurrentContext();
+        return getCacheKey(context, getDefinitionsKey(context));
+    }
+
+    private String getDefinitionsKey(AuraContext context) {
+        final boolean minify = context.getMode().minify();
+        final String mKey = minify ? "MIN:" : "DEV:";
+        final String uid = context.getUid(context.getLoadingApplicationDescriptor());
+        final String lockerServiceCacheBuster  = configAdapter.getLockerServiceCacheBuster();
+        // modules definitions will be present with modules enabled so needs to be cached separately
+        final String modules = context.isModulesEnabled() ? ":m" : "";
+        return "JS:" + mKey + uid + ":" + lockerServiceCacheBuster + modules;
+    }
+
+    /**
+     * Write the definitions straight to the response on a cache miss, capturing them for the cache as they go.
+     *
+     * The first client after a deploy gets bytes as soon as the first definition is serialized. The copy for the
+     * cache is captured by the alt strings cache, which stores it off the heap in chunks, so that the definitions
+     * are never whole on the heap. Without secondary storage the capture would be a second copy of the definitions
+     * next to the one that is cached, so they are built once and written instead. Only one thread streams the definitions of a
+     * key at a time, concurrent misses wait for it and write what it cached, or stream the definitions themselves
+     * if it could not cache them.
+     *
+     * All definitions are loaded before anything is written and each statement is written whole, so that a
+     * failure leaves only complete statements in the response, after which the error is written. Nothing is
+     * cached then.
+     *
+     * @return false if the definitions are not cacheable, or the alt strings cache has no secondary storage, in
+     *         which case nothing was written.
+     */
+    private boolean writeStreamingDefinitions(Set<DefDescriptor<?>> dependencies, String uid,
+            DefDescriptor<?> appDesc, String key, Writer out) throws QuickFixException, IOException {
+        if (!altStringsCache.hasSecondaryStorage()) {
+            return false;
+        }
+        DependencyEntry de = (uid != null) ? contextService.getCurrentContext().getLocalDependencyEntry(uid) : null;
+        if (de == null) {
+            return false;
+        }
+        String cacheKey = getKey(de, appDesc, key);
+        if (altStringsCache.writeIfPresent(cacheKey, out)) {
+            return true;
+        }
+        CompletableFuture<Boolean> streaming = new CompletableFuture<>();
+        CompletableFuture<Boolean> leader = definitionsInFlight.putIfAbsent(cacheKey, streaming);
+        if (leader != null) {
+            streaming = null;
+            if (awaitStreaming(leader) && altStringsCache.writeIfPresent(cacheKey, out)) {
+                return true;
+            }
+        }
+        boolean cached = false;
+        try {
+            // another thread may have cached them just before we started
+            if (streaming != null && altStringsCache.writeIfPresent(cacheKey, out)) {
+                cached = true;
+                return true;
+            }
+            Writer captured = altStringsCache.getValueWriter(cacheKey);
+            writeDefinitionsString(dependencies, new TeeAppender(out, captured));
+            captured.close();
+            cached = true;
+            altStringsCache.logCacheStatus("cache miss for key: "+key+";");
+        } finally {
+            if (streaming != null) {
+                definitionsInFlight.remove(cacheKey, streaming);
+                streaming.complete(cached);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wait for another thread streaming definitions.
+     *
+     * @param streaming the streaming to wait for.
+     * @return true if the other thread cached the definitions.
+     */
+    private boolean awaitStreaming(Future<Boolean> streaming) {
+        try {
+            return streaming.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ee) {
+            // the streaming thread reports its own failure.
+        }
+        return false;
+    }
+
+    /**
+     * The definitions being streamed, by cache key, completed with whether they were cached.
+     */
+    private final ConcurrentMap<String, CompletableFuture<Boolean>> definitionsInFlight = new ConcurrentHashMap<>();
+
+    /**
+     * An appendable that writes to another one and to the writer capturing a copy of what was written.
+     */
+    private static class TeeAppender implements Appendable {
+        private final Appendable out;
+        private final Writer captured;
+
+        TeeAppender(Appendable out, Writer captured) {
+            this.out = out;
+            this.captured = captured;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            out.append(csq);
+            captured.append(csq);
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            out.append(csq, start, end);
+            captured.append(csq, start, end);
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            out.append(c);
+            captured.append(c);
+            return this;
         }
     }
 
     private String getDefinitionsString (Set<DefDescriptor<?>> dependencies, String key)
             throws QuickFixException, IOException {
+        StringBuilder sb = new StringBuilder();
+        writeDefinitionsString(dependencies, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Write the definitions, one whole statement at a time.
+     *
+     * The definitions are all loaded first, and each statement is built before it is appended, so that if the
+     * definitions are streamed to a response a failure never leaves part of a statement in it.
+     */
+    private void writeDefinitionsString(Set<DefDescriptor<?>> dependencies, Appendable out)
+            throws QuickFixException, IOException {
 
         AuraContext context = contextService.getCurrentContext();
         boolean minify = context.getMode().minify();
@@ -385,23 +835,32 @@ public class ServerServiceImpl implements ServerService {
         JsonSerializationContext serializationContext = context.getJsonSerializationContext();
         serializationContext.pushFormatRootItems();
 
-        StringBuilder sb = new StringBuilder();
-
         // Process Libraries with a lower granularity level, to prevent duplication of external includes.
         Collection<LibraryDef> libraryDefs = filterAndLoad(LibraryDef.class, dependencies, null);
+        Collection<BaseComponentDef> componentDefs = filterAndLoad(BaseComponentDef.class, dependencies, null);
+        Collection<EventDef> events = filterAndLoad(EventDef.class, dependencies, null);
+        // Dunno how this got to be this way. The code in the Format adaptor was twisted and stupid,
+        // as it walked the namespaces looking up the same descriptor, with a string.format that had
+        // the namespace but did not use it. This ends up just getting a single controller.
+        Collection<ControllerDef> controllers = filterAndLoad(ControllerDef.class, dependencies, ACF);
+        // Prevents caching of module defs when modules are disabled.
+        Collection<ModuleDef> modules = context.isModulesEnabled()
+                ? filterAndLoad(ModuleDef.class, dependencies, null) : null;
+
+        StringBuilder sb = new StringBuilder();
         for (LibraryDef libraryDef : libraryDefs) {
             List<IncludeDefRef> includeDefs = libraryDef.getIncludes();
             for (IncludeDefRef defRef : includeDefs) {
                 sb.append("$A.componentService.addLibraryExporter(\"" + defRef.getClientDescriptor() + "\", (function (){/*");
                 sb.append(defRef.getCode(minify));
                 sb.append("*/}));");
+                appendStatement(sb, out);
 
                 context.setClientClassLoaded(defRef.getDescriptor(), true);
             }
         }
 
         // Append component classes.
-        Collection<BaseComponentDef> componentDefs = filterAndLoad(BaseComponentDef.class, dependencies, null);
         for (BaseComponentDef def : componentDefs) {
             sb.append("$A.componentService.addComponent(\"" + def.getDescriptor() + "\", (function (){/*");
 
@@ -417,37 +876,39 @@ public class ServerServiceImpl implements ServerService {
                 sb.append(";");
 
             sb.append("*/}));\n");
+            appendStatement(sb, out);
         }
 
         // Append event definitions
         sb.append("$A.componentService.initEventDefs(");
-        Collection<EventDef> events = filterAndLoad(EventDef.class, dependencies, null);
         serializationService.writeCollection(events, EventDef.class, sb, "JSON");
         sb.append(");\n");
+        appendStatement(sb, out);
 
         // Append library definitions
         sb.append("$A.componentService.initLibraryDefs(");
         serializationService.writeCollection(libraryDefs, LibraryDef.class, sb, "JSON");
         sb.append(");\n");
+        appendStatement(sb, out);
 
         // Append controller definitions
-        // Dunno how this got to be this way. The code in the Format adaptor was twisted and stupid,
-        // as it walked the namespaces looking up the same descriptor, with a string.format that had
-        // the namespace but did not use it. This ends up just getting a single controller.
         sb.append("$A.componentService.initControllerDefs(");
-        Collection<ControllerDef> controllers = filterAndLoad(ControllerDef.class, dependencies, ACF);
         serializationService.writeCollection(controllers, ControllerDef.class, sb, "JSON");
         sb.append(");\n");
+        appendStatement(sb, out);
 
-        if (context.isModulesEnabled()) { // Prevents caching of module defs when modules are disabled.
+        if (modules != null) {
             // modules
             sb.append("$A.componentService.initModuleDefs(");
-            Collection<ModuleDef> modules = filterAndLoad(ModuleDef.class, dependencies, null);
             serializationService.writeCollection(modules, ModuleDef.class, sb, "JSON");
             sb.append(");\n");
+            appendStatement(sb, out);
         }
+    }
 
-        return sb.toString();
+    private static void appendStatement(StringBuilder statement, Appendable out) throws IOException {
+        out.append(statement);
+        statement.setLength(0);
     }
 
     @Override
@@ -532,18 +993,32 @@ public class ServerServiceImpl implements ServerService {
     }
 
     /**
-     * Get a named string from the alternate cache for a cacheable definition.
+     * Write a named string from the alternate cache for a cacheable definition.
+     *
+     * Cached strings are streamed to the writer, so that strings held in secondary storage are
+     * not rebuilt on the heap.
      *
      * @param uid the UID for the definition (must have called {@link DefinitionService#getUid(String, DefDescriptor)}).
      * @param descriptor the descriptor.
      * @param key the key.
      * @param loader the loader for the string
+     * @param out the writer, or null to only fill the cache
      * @throws QuickFixException
      * @throws IOException 
      */
-    private String getAltCachedString(String uid, DefDescriptor<?> descriptor, String key, Callable<String> loader)
-            throws QuickFixException, IOException {
-        return getCachedString(altStringsCache, uid, descriptor, key, loader);
+    private void writeAltCachedString(String uid, DefDescriptor<?> descriptor, String key, Callable<String> loader,
+            Writer out) throws QuickFixException, IOException {
+        if (out != null && uid != null) {
+            DependencyEntry de = contextService.getCurrentContext().getLocalDependencyEntry(uid);
+
+            if (de != null && altStringsCache.writeIfPresent(getKey(de, descriptor, key), out)) {
+                return;
+            }
+        }
+        String cached = getCachedString(altStringsCache, uid, descriptor, key, loader);
+        if (out != null) {
+            out.append(cached);
+        }
     }
 
     private String getCachedString(Cache<String, String> cache, String uid, DefDescriptor<?> descriptor, String key, Callable<String> loader) throws QuickFixException, IOException {
@@ -578,6 +1053,19 @@ public class ServerServiceImpl implements ServerService {
         return null;
     }
 
+    /**
+     * Get the full cache key for a string of the loading application, or null if it is not cacheable.
+     */
+    private String getCacheKey(AuraContext context, String key) {
+        DefDescriptor<?> appDesc = context.getLoadingApplicationDescriptor();
+        String uid = context.getUid(appDesc);
+        DependencyEntry de = (uid != null) ? context.getLocalDependencyEntry(uid) : null;
+        if (de == null) {
+            return null;
+        }
+        return getKey(de, appDesc, key);
+    }
+
     private String getKey(DependencyEntry de, DefDescriptor<?> descriptor, String key) {
         return String.format("%s@%s@%s", de.uid, descriptor.getQualifiedName().toLowerCase(), key);
     }
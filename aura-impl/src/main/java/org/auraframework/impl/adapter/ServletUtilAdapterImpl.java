@@ -69,6 +69,7 @@ import org.auraframework.throwable.NoAccessException;
 import org.auraframework.throwable.quickfix.DefinitionNotFoundException;
 import org.auraframework.throwable.quickfix.QuickFixException;
 import org.auraframework.util.AuraTextUtil;
+import org.auraframework.util.json.CborEncoder;
 import org.auraframework.util.json.JsonEncoder;
 
 import com.google.common.collect.Lists;
@@ -195,6 +196,21 @@ public class ServletUtilAdapterImpl implements ServletUtilAdapter {
             throw (IOException)t;
         }
 
+        if (format == Format.CBOR) {
+            if (written) {
+                // Part of the binary response is out, and there is no way to mark it bad, so all we can do is log.
+                try {
+                    exceptionAdapter.handleException(mappedEx);
+                } finally {
+                    this.contextService.endContext();
+                }
+                return;
+            }
+            // Errors are written as json, the client can tell from the content type.
+            format = Format.JSON;
+            response.setContentType(getContentType(format));
+        }
+
         try {
             //
             // If we have written out data, We are kinda toast in this case.
@@ -706,6 +722,8 @@ public class ServletUtilAdapterImpl implements ServletUtilAdapter {
             return JAVASCRIPT_CONTENT_TYPE;
         case JSON:
             return JsonEncoder.MIME_TYPE;
+        case CBOR:
+            return CborEncoder.MIME_TYPE;
         case HTML:
             return HTML_CONTENT_TYPE;
         case SVG:
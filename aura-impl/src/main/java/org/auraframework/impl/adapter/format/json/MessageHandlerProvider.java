@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.adapter.format.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.auraframework.def.ActionDef;
+import org.auraframework.def.ValueDef;
+import org.auraframework.impl.java.controller.BoundParams;
+import org.auraframework.impl.java.controller.JavaActionDef;
+import org.auraframework.throwable.quickfix.QuickFixException;
+import org.auraframework.util.json.JsonArrayHandler;
+import org.auraframework.util.json.JsonHandlerProvider;
+import org.auraframework.util.json.JsonHandlerProviderImpl;
+import org.auraframework.util.json.JsonObjectHandler;
+import org.auraframework.util.json.JsonStreamReader;
+import org.auraframework.util.json.JsonStreamReader.JsonParseException;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Handler provider for an action message, that reads each action straight into an {@link ActionRequest} as it is
+ * parsed, without building maps for the message or its actions.
+ *
+ * The def of an action is found as soon as its descriptor is read. The params of a java action that follow it are
+ * then bound to the types of the action parameters one by one, as each param is complete. Params read before the
+ * descriptor, or of other actions, are kept as they were read and converted when the action runs.
+ *
+ * A provider keeps the action being read, so it is used for a single message.
+ */
+class MessageHandlerProvider extends JsonHandlerProviderImpl {
+    private final Function<String, ActionDef> actionDefs;
+
+    private final ActionProvider action = new ActionProvider();
+
+    private final JsonHandlerProvider actions = new JsonHandlerProviderImpl() {
+        @Override
+        public JsonHandlerProvider getArrayEntryHandlerProvider() {
+            return action;
+        }
+
+        @Override
+        public JsonArrayHandler getArrayHandler() {
+            return new ActionsHandler();
+        }
+    };
+
+    /**
+     * @param actionDefs finds the def of an action by its qualified name, or returns null.
+     */
+    MessageHandlerProvider(Function<String, ActionDef> actionDefs) {
+        this.actionDefs = actionDefs;
+    }
+
+    /**
+     * Read the action requests in a message.
+     *
+     * @param in the message.
+     * @return the requests, in the order of the message.
+     * @throws JsonParseException if the message is not an object, or is badly formed.
+     */
+    List<ActionRequest> read(Reader in) {
+        JsonStreamReader reader = new JsonStreamReader(in, this);
+        try {
+            reader.next();
+        } catch (IOException e) {
+            throw new JsonParseException(e);
+        }
+        Object value = reader.getValue();
+        if (!(value instanceof MessageHandler)) {
+            throw new JsonParseException("Invalid message, expected an object");
+        }
+        return ((MessageHandler) value).actions;
+    }
+
+    @Override
+    public JsonHandlerProvider getObjectEntryHandlerProvider(String key) {
+        return "actions".equals(key) ? actions : null;
+    }
+
+    @Override
+    public JsonObjectHandler getObjectHandler() {
+        return new MessageHandler();
+    }
+
+    /**
+     * The parts of an action in a message, from which the action instance is created.
+     */
+    static final class ActionRequest {
+        String descriptor;
+        String id;
+        Map<String, Object> params;
+        String callingDescriptor;
+        String version;
+
+        /** The def found for the descriptor, or null */
+        ActionDef def;
+    }
+
+    private static class MessageHandler extends JsonObjectHandler {
+        private List<ActionRequest> actions = Collections.emptyList();
+
+        @Override
+        public void put(String key, Object value) throws JsonValidationException {
+            if ("actions".equals(key) && value != null) {
+                if (!(value instanceof ActionsHandler)) {
+                    throw new JsonValidationException("Invalid message, actions must be an array");
+                }
+                actions = ((ActionsHandler) value).actions;
+            }
+        }
+
+        @Override
+        public Object getValue() {
+            return this;
+        }
+    }
+
+    private static class ActionsHandler extends JsonArrayHandler {
+        private final List<ActionRequest> actions = Lists.newArrayList();
+
+        @Override
+        public void add(Object o) throws JsonValidationException {
+            if (!(o instanceof ActionRequest)) {
+                throw new JsonValidationException("Invalid message, each action must be an object");
+            }
+            actions.add((ActionRequest) o);
+        }
+
+        @Override
+        public Object getValue() {
+            return this;
+        }
+    }
+
+    /**
+     * Provides the handler for each action, and for the params of the action being read.
+     */
+    private class ActionProvider extends JsonHandlerProviderImpl {
+        private ActionHandler current;
+
+        @Override
+        public JsonObjectHandler getObjectHandler() {
+            current = new ActionHandler();
+            return current;
+        }
+
+        @Override
+        public JsonHandlerProvider getObjectEntryHandlerProvider(String key) {
+            if ("params".equals(key) && current != null && current.parameters != null) {
+                return new ParamsProvider(current.parameters);
+            }
+            return null;
+        }
+    }
+
+    private class ActionHandler extends JsonObjectHandler {
+        private final ActionRequest request = new ActionRequest();
+
+        /** The parameters of a java action by name, once its descriptor is read */
+        private Map<String, ValueDef> parameters;
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void put(String key, Object value) throws JsonValidationException {
+            switch (key) {
+            case "descriptor":
+                request.descriptor = getString(key, value);
+                request.def = (request.descriptor != null) ? actionDefs.apply(request.descriptor) : null;
+                parameters = (request.def instanceof JavaActionDef) ? indexParameters(request.def) : null;
+                break;
+            case "id":
+                request.id = getString(key, value);
+                break;
+            case "callingDescriptor":
+                request.callingDescriptor = getString(key, value);
+                break;
+            case "version":
+                request.version = getString(key, value);
+                break;
+            case "params":
+                if (value != null && !(value instanceof Map)) {
+                    throw new JsonValidationException("Invalid action, params must be an object");
+                }
+                request.params = (Map<String, Object>) value;
+                break;
+            default:
+                break;
+            }
+        }
+
+        private String getString(String key, Object value) throws JsonValidationException {
+            if (value != null && !(value instanceof String)) {
+                throw new JsonValidationException("Invalid action, " + key + " must be a string");
+            }
+            return (String) value;
+        }
+
+        @Override
+        public Object getValue() {
+            return request;
+        }
+    }
+
+    private static Map<String, ValueDef> indexParameters(ActionDef def) {
+        List<ValueDef> list = def.getParameters();
+        Map<String, ValueDef> parameters = Maps.newHashMapWithExpectedSize(list.size());
+        for (ValueDef parameter : list) {
+            parameters.put(parameter.getName(), parameter);
+        }
+        return parameters;
+    }
+
+    private static class ParamsProvider extends JsonHandlerProviderImpl {
+        private final Map<String, ValueDef> parameters;
+
+        ParamsProvider(Map<String, ValueDef> parameters) {
+            this.parameters = parameters;
+        }
+
+        @Override
+        public JsonObjectHandler getObjectHandler() {
+            return new ParamsHandler(parameters);
+        }
+    }
+
+    /**
+     * Binds each param to the type of its parameter as soon as it is read.
+     */
+    private static class ParamsHandler extends JsonObjectHandler {
+        private final Map<String, ValueDef> parameters;
+
+        private final BoundParams params = new BoundParams();
+
+        ParamsHandler(Map<String, ValueDef> parameters) {
+            this.parameters = parameters;
+        }
+
+        @Override
+        public void put(String key, Object value) {
+            ValueDef parameter = parameters.get(key);
+            if (parameter != null) {
+                try {
+                    params.putBound(key, parameter.getType().valueOf(value));
+                    return;
+                } catch (QuickFixException | RuntimeException e) {
+                    // kept as read, the action reports it when it runs
+                }
+            }
+            params.put(key, value);
+        }
+
+        @Override
+        public Object getValue() {
+            return params;
+        }
+    }
+}
@@ -19,16 +19,18 @@ import com.google.common.collect.Lists;
 import org.auraframework.annotations.Annotations.ServiceComponent;
 import org.auraframework.def.ActionDef;
 import org.auraframework.def.ComponentDef;
+import org.auraframework.def.ControllerDef;
 import org.auraframework.def.DefDescriptor;
+import org.auraframework.impl.adapter.format.json.MessageHandlerProvider.ActionRequest;
 import org.auraframework.instance.Action;
 import org.auraframework.service.ContextService;
 import org.auraframework.service.DefinitionService;
 import org.auraframework.service.InstanceService;
 import org.auraframework.system.AuraContext;
 import org.auraframework.system.Message;
+import org.auraframework.system.SubDefDescriptor;
 import org.auraframework.throwable.quickfix.QuickFixException;
 import org.auraframework.util.json.JsonEncoder;
-import org.auraframework.util.json.JsonReader;
 
 import javax.annotation.concurrent.ThreadSafe;
 import javax.inject.Inject;
@@ -55,39 +57,54 @@ public class MessageJSONFormatAdapter extends JSONFormatAdapter<Message> {
         return Message.class;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public Message read(Reader in) throws IOException, QuickFixException {
-        Map<?, ?> message = (Map<?, ?>) new JsonReader().read(in);
-
-        List<?> actions = (List<?>) message.get("actions");
-        List<Action> actionList = Lists.newArrayList();
-        if (actions != null) {
-            for (Object action : actions) {
-                Map<?, ?> map = (Map<?, ?>) action;
-
+        List<ActionRequest> requests = new MessageHandlerProvider(this::getActionDef).read(in);
+        List<Action> actionList = Lists.newArrayListWithCapacity(requests.size());
+        for (ActionRequest request : requests) {
+            Action instance;
+            if (request.def != null) {
+                instance = (Action) instanceService.getInstance(request.def, request.params);
+            } else {
                 // FIXME: ints are getting translated into BigDecimals here.
-                Map<String, Object> params = (Map<String, Object>) map.get("params");
-
-                Action instance = (Action) instanceService.getInstance((String) map.get("descriptor"),
-                        ActionDef.class, params);
-                instance.setId((String) map.get("id"));
-                String cd = (String) map.get("callingDescriptor");
-                if (cd != null && !cd.equals("UNKNOWN")) {
-                    DefDescriptor<ComponentDef> callingDescriptor = definitionService.getDefDescriptor(cd, ComponentDef.class);
-                    instance.setCallingDescriptor(callingDescriptor);
-                }
-                String v = (String) map.get("version");
-                if (v != null) {
-                    instance.setCallerVersion(v);
-                }
-                actionList.add(instance);
+                instance = (Action) instanceService.getInstance(request.descriptor, ActionDef.class, request.params);
+            }
+            instance.setId(request.id);
+            String cd = request.callingDescriptor;
+            if (cd != null && !cd.equals("UNKNOWN")) {
+                DefDescriptor<ComponentDef> callingDescriptor = definitionService.getDefDescriptor(cd, ComponentDef.class);
+                instance.setCallingDescriptor(callingDescriptor);
+            }
+            String v = request.version;
+            if (v != null) {
+                instance.setCallerVersion(v);
             }
+            actionList.add(instance);
         }
 
         return new Message(actionList);
     }
 
+    /**
+     * Find the def of an action while the message is read, so that its params can be bound as they are read.
+     *
+     * @return the def, or null if it is not found, in which case creating the action throws why.
+     */
+    private ActionDef getActionDef(String qualifiedName) {
+        try {
+            DefDescriptor<ActionDef> descriptor = definitionService.getDefDescriptor(qualifiedName, ActionDef.class);
+            if (!(descriptor instanceof SubDefDescriptor)) {
+                return null;
+            }
+            @SuppressWarnings("unchecked")
+            SubDefDescriptor<ActionDef, ControllerDef> actionDesc = (SubDefDescriptor<ActionDef, ControllerDef>) descriptor;
+            ControllerDef controller = definitionService.getDefinition(actionDesc.getParentDescriptor());
+            return controller.getSubDefinition(actionDesc);
+        } catch (QuickFixException | RuntimeException e) {
+            return null;
+        }
+    }
+
     @Override
     public void write(Message value, Map<String, Object> attributes, Appendable out) throws IOException {
         AuraContext c = contextService.getCurrentContext();
@@ -42,7 +42,7 @@ public class CacheEvictionListenerImpl<K, T> implements RemovalListener<K, T> {
     private final LoggingAdapter loggingAdapter;
 
     /** The cache for this listener, to fetch statistics. */
-    private com.google.common.cache.Cache<K, T> cache;
+    private StatsSource cache;
 
     /** Count of log-worth evictions, to avoid spamming the log*/
     private long evictions = 0;
@@ -80,8 +80,31 @@ public class CacheEvictionListenerImpl<K, T> implements RemovalListener<K, T> {
         this.nextLogThreshold = interval;
     }
 
-    public void setCache(com.google.common.cache.Cache<K, T> cache) {
-        this.cache = cache;
+    /**
+     * The statistics of a cache, so that caches not backed by guava can share this listener.
+     */
+    interface StatsSource {
+        CacheStats stats();
+
+        long size();
+    }
+
+    public void setCache(final com.google.common.cache.Cache<K, T> cache) {
+        this.cache = new StatsSource() {
+            @Override
+            public CacheStats stats() {
+                return cache.stats();
+            }
+
+            @Override
+            public long size() {
+                return cache.size();
+            }
+        };
+    }
+
+    void setStatsSource(StatsSource source) {
+        this.cache = source;
     }
 
     public void onRemoval(boolean isSize) {
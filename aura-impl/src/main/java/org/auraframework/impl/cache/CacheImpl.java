@@ -16,29 +16,37 @@
 package org.auraframework.impl.cache;
 
 import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
 import org.auraframework.adapter.LoggingAdapter;
 import org.auraframework.annotations.Annotations.ServiceComponent;
 import org.auraframework.cache.Cache;
 import org.auraframework.system.LoggingContext;
 
 import javax.inject.Inject;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.ToIntBiFunction;
 
 @ServiceComponent
 public class CacheImpl<K, T> implements Cache<K, T> {
     private LoggingAdapter loggingAdapter;
 
     /** A default name string */
-    private static final String UNNAMED = "(unnamed)";
+    static final String UNNAMED = "(unnamed)";
 
     /** Longest interval at which to log cache stats in "normal" operation */
-    private static final long ONE_HOUR = 1000 * 60 * 60;
+    static final long ONE_HOUR = 1000 * 60 * 60;
 
     /** Shortest interval at which to log cache stats in "normal" operation */
-    private static final long ONE_MINUTE = 1000 * 60;
+    static final long ONE_MINUTE = 1000 * 60;
 
     private com.google.common.cache.Cache<K, T> cache;
     private String name;
@@ -58,16 +66,31 @@ public class CacheImpl<K, T> implements Cache<K, T> {
     }
 
     public CacheImpl(Builder<K, T> builder) {
+        this(builder, builder.evictionHandler);
+    }
+
+    /**
+     * Build the cache with the given handler for entries evicted for size, in place of the builder's own.
+     */
+    CacheImpl(Builder<K, T> builder, final BiConsumer<K, T> evictionHandler) {
         this.loggingAdapter = builder.loggingAdapter;
-        
-        // if builder.useSecondaryStorage is true, we should try to use a
-        // non-quava secondary-storage cache with streaming ability
 
         com.google.common.cache.CacheBuilder<Object, Object> cb = com.google.common.cache.CacheBuilder
                 .newBuilder().initialCapacity(builder.initialCapacity)
-                .maximumSize(builder.maximumSize)
                 .concurrencyLevel(builder.concurrencyLevel);
 
+        if (builder.weigher != null) {
+            final ToIntBiFunction<? super K, ? super T> weigher = builder.weigher;
+            cb.maximumWeight(builder.maximumWeight).weigher(new Weigher<K, T>() {
+                @Override
+                public int weigh(K key, T value) {
+                    return weigher.applyAsInt(key, value);
+                }
+            });
+        } else {
+            cb = cb.maximumSize(builder.maximumSize);
+        }
+
         if (builder.recordStats) {
             cb = cb.recordStats();
         }
@@ -81,10 +104,27 @@ public class CacheImpl<K, T> implements Cache<K, T> {
             name = builder.name;
         }
 
-        CacheEvictionListenerImpl<K, T> listener;
+        final CacheEvictionListenerImpl<K, T> listener;
        
         listener = new CacheEvictionListenerImpl<>(name, this.loggingAdapter, ONE_MINUTE, ONE_HOUR, 1000);
-        cb.removalListener(listener);
+        if (evictionHandler != null || builder.evictedKeyHandler != null) {
+            final Consumer<K> evictedKeyHandler = builder.evictedKeyHandler;
+            cb.removalListener(new RemovalListener<K, T>() {
+                @Override
+                public void onRemoval(RemovalNotification<K, T> notification) {
+                    listener.onRemoval(notification);
+                    if (evictionHandler != null && notification.getCause() == RemovalCause.SIZE
+                            && notification.getValue() != null) {
+                        evictionHandler.accept(notification.getKey(), notification.getValue());
+                    }
+                    if (evictedKeyHandler != null && notification.wasEvicted() && notification.getKey() != null) {
+                        evictedKeyHandler.accept(notification.getKey());
+                    }
+                }
+            });
+        } else {
+            cb.removalListener(listener);
+        }
         cache = cb.build();
         listener.setCache(cache);
     }
@@ -167,6 +207,12 @@ public class CacheImpl<K, T> implements Cache<K, T> {
         boolean recordStats = false;
         boolean softValues = true;
         boolean useSecondaryStorage = false;
+        boolean frequencyBasedEviction = false;
+        long maximumWeight = -1;
+        ToIntBiFunction<? super K, ? super T> weigher;
+        BiConsumer<K, T> evictionHandler;
+        /** Told the key of every entry the cache drops on its own, for size, expiry or collection */
+        Consumer<K> evictedKeyHandler;
         String name;
 
         public Builder() {
@@ -216,6 +262,35 @@ public class CacheImpl<K, T> implements Cache<K, T> {
             return this;
         }
 
+        @Override
+        public Builder<K, T> setFrequencyBasedEviction(boolean frequencyBasedEviction) {
+            this.frequencyBasedEviction = frequencyBasedEviction;
+            return this;
+        }
+
+        @Override
+        public Builder<K, T> setMaximumWeight(long maximumWeight, ToIntBiFunction<? super K, ? super T> weigher) {
+            this.maximumWeight = maximumWeight;
+            this.weigher = weigher;
+            return this;
+        }
+
+        /**
+         * Tell the handler about each entry the cache evicts for size, after any handler added before it.
+         */
+        Builder<K, T> addEvictionHandler(BiConsumer<K, T> handler) {
+            this.evictionHandler = evictionHandler == null ? handler : evictionHandler.andThen(handler);
+            return this;
+        }
+
+        /**
+         * Tell the handler the key of each entry the cache drops on its own, after any handler added before it.
+         */
+        Builder<K, T> addEvictedKeyHandler(Consumer<K> handler) {
+            this.evictedKeyHandler = evictedKeyHandler == null ? handler : evictedKeyHandler.andThen(handler);
+            return this;
+        }
+
         @Override
         public Builder<K, T> setName(String name) {
             this.name = name;
@@ -223,8 +298,25 @@ public class CacheImpl<K, T> implements Cache<K, T> {
         }
 
         @Override
-        public CacheImpl<K, T> build() {
-            return new CacheImpl<>(this);
+        public Cache<K, T> build() {
+            if (useSecondaryStorage) {
+                String directory = OffHeapStringStore.DEFAULT_DIRECTORY;
+                OffHeapStringStore<K> store = new OffHeapStringStore<>(OffHeapStringStore.DEFAULT_CAPACITY,
+                        directory != null ? new File(directory) : null);
+
+                // the heap cache spills into secondary storage, which is consulted on a heap miss
+                BiConsumer<K, T> spill = store::spill;
+                Cache<K, T> heap = buildHeapCache(evictionHandler == null ? spill : evictionHandler.andThen(spill));
+                return new SecondaryStorageCacheImpl<>(heap, store, OffHeapStringStore.DEFAULT_THRESHOLD);
+            }
+            return buildHeapCache(evictionHandler);
+        }
+
+        private Cache<K, T> buildHeapCache(BiConsumer<K, T> evictionHandler) {
+            if (frequencyBasedEviction) {
+                return new CaffeineCacheImpl<>(this, evictionHandler);
+            }
+            return new CacheImpl<>(this, evictionHandler);
         }
     }
 }
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.ToIntBiFunction;
+
+import org.auraframework.adapter.LoggingAdapter;
+import org.auraframework.cache.Cache;
+import org.auraframework.system.LoggingContext;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.RemovalListener;
+import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * A cache backed by caffeine.
+ *
+ * Caffeine admits and evicts with W-TinyLFU, which keeps frequently used entries around
+ * when a burst of one-off lookups (e.g. warming caches) would flush an LRU cache. It is
+ * built by {@link CacheImpl.Builder} when frequency based eviction is requested, and
+ * reports through the same eviction listener and log lines as {@link CacheImpl}, with
+ * exceptions from loaders wrapped the same way guava does.
+ */
+public class CaffeineCacheImpl<K, T> implements Cache<K, T> {
+    private final LoggingAdapter loggingAdapter;
+
+    private final com.github.benmanes.caffeine.cache.Cache<K, T> cache;
+
+    private final String name;
+
+    CaffeineCacheImpl(com.github.benmanes.caffeine.cache.Cache<K, T> cache, LoggingAdapter loggingAdapter) {
+        this.cache = cache;
+        this.loggingAdapter = loggingAdapter;
+        this.name = CacheImpl.UNNAMED;
+    }
+
+    CaffeineCacheImpl(CacheImpl.Builder<K, T> builder, final BiConsumer<K, T> evictionHandler) {
+        this.loggingAdapter = builder.loggingAdapter;
+        if (builder.name == null) {
+            name = CacheImpl.UNNAMED;
+        } else {
+            name = builder.name;
+        }
+
+        final CacheEvictionListenerImpl<K, T> listener;
+
+        listener = new CacheEvictionListenerImpl<>(name, this.loggingAdapter, CacheImpl.ONE_MINUTE,
+                CacheImpl.ONE_HOUR, 1000);
+        final Consumer<K> evictedKeyHandler = builder.evictedKeyHandler;
+        RemovalListener<K, T> removalListener = (key, value, cause) -> {
+            listener.onRemoval(cause == RemovalCause.SIZE);
+            if (evictionHandler != null && cause == RemovalCause.SIZE && value != null) {
+                evictionHandler.accept(key, value);
+            }
+            if (evictedKeyHandler != null && cause.wasEvicted() && key != null) {
+                evictedKeyHandler.accept(key);
+            }
+        };
+
+        Caffeine<K, T> cb = Caffeine.newBuilder()
+                .initialCapacity(builder.initialCapacity)
+                .removalListener(removalListener);
+
+        if (builder.weigher != null) {
+            final ToIntBiFunction<? super K, ? super T> weigher = builder.weigher;
+            cb.maximumWeight(builder.maximumWeight).weigher((K key, T value) -> weigher.applyAsInt(key, value));
+        } else {
+            cb.maximumSize(builder.maximumSize);
+        }
+
+        if (builder.recordStats) {
+            cb.recordStats();
+        }
+
+        if (builder.softValues) {
+            cb.softValues();
+        }
+
+        cache = cb.build();
+        listener.setStatsSource(new CacheEvictionListenerImpl.StatsSource() {
+            @Override
+            public CacheStats stats() {
+                return CaffeineCacheImpl.this.stats();
+            }
+
+            @Override
+            public long size() {
+                return cache.estimatedSize();
+            }
+        });
+    }
+
+    /**
+     * Caffeine statistics, converted so that they can be logged alongside guava caches.
+     */
+    CacheStats stats() {
+        com.github.benmanes.caffeine.cache.stats.CacheStats stats = cache.stats();
+        return new CacheStats(stats.hitCount(), stats.missCount(), stats.loadSuccessCount(),
+                stats.loadFailureCount(), stats.totalLoadTime(), stats.evictionCount());
+    }
+
+    @Override
+    public void logCacheStatus(String extraMessage) {
+        LoggingContext loggingCtx = this.loggingAdapter.getLoggingContext();
+        CacheStats stats = stats();
+        loggingCtx.logCacheInfo(name,
+                String.format(extraMessage+"hit rate=%.3f", stats.hitRate()),
+                cache.estimatedSize(), stats);
+    }
+
+    @Override
+    public T getIfPresent(K key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * Thrown out of the mapping function to carry a checked exception through caffeine.
+     */
+    private static class LoaderException extends RuntimeException {
+        private static final long serialVersionUID = 4093256472398436135L;
+
+        LoaderException(Exception cause) {
+            super(cause);
+        }
+    }
+
+    @Override
+    public T get(K key, final Callable<T> loader) throws ExecutionException {
+        T value;
+
+        try {
+            value = cache.get(key, k -> {
+                try {
+                    return loader.call();
+                } catch (RuntimeException re) {
+                    throw new UncheckedExecutionException(re);
+                } catch (Error e) {
+                    throw new ExecutionError(e);
+                } catch (Exception e) {
+                    throw new LoaderException(e);
+                }
+            });
+        } catch (LoaderException le) {
+            throw new ExecutionException(le.getCause());
+        }
+        if (value == null) {
+            throw new InvalidCacheLoadException("CacheLoader returned null for key " + key + ".");
+        }
+        return value;
+    }
+
+    @Override
+    public void put(K key, T data) {
+        cache.put(key, data);
+    }
+
+    @Override
+    public void invalidate(K key) {
+        cache.invalidate(key);
+    }
+
+    @Override
+    public void invalidate(Iterable<K> keys) {
+        cache.invalidateAll(keys);
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public Set<K> getKeySet() {
+        return cache.asMap().keySet();
+    }
+
+    @Override
+    public void invalidatePartial(String keyBeginsWith) {
+        // everything is a match if the match length is zero
+        if (keyBeginsWith == null || keyBeginsWith.length() == 0) {
+            invalidateAll();
+            return;
+        }
+
+        ArrayList<K> invalidItems = new ArrayList<>();
+        for (K key : getKeySet()) {
+            if (key.toString().startsWith(keyBeginsWith)) {
+                invalidItems.add(key);
+            }
+        }
+
+        if (!invalidItems.isEmpty()) {
+            cache.invalidateAll(invalidItems);
+        }
+    }
+
+    @Override
+    public Object getPrivateUnderlyingCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.apache.log4j.Logger;
+import org.auraframework.cache.Cache;
+import org.auraframework.def.ClientLibraryDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.Definition;
+import org.auraframework.system.BundleSource;
+import org.auraframework.system.DefRegistry;
+import org.auraframework.system.DependencyEntry;
+import org.auraframework.system.DependencyKey;
+import org.auraframework.system.RegistrySet;
+import org.auraframework.system.Source;
+import org.auraframework.util.text.Hash;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * A snapshot of the compiled definition and dependency caches, kept in a file so that they survive a restart.
+ *
+ * Each definition is saved along with a hash of its source. On restore, a definition is only put back in the
+ * definitions cache if the hash of its current source still matches, and a dependency entry only if the sources
+ * of all of its dependencies still match. Definitions and entries whose sources can't be hashed are not saved. The whole snapshot
+ * is dropped if it was written by a different framework version.
+ *
+ * Definitions from registries that are not cacheable, such as compound controllers, are built again on every use from
+ * their own dependencies, so they are not saved and are left out of the check of an entry.
+ *
+ * The snapshot is only read back with the classes of definitions and of the values they hold, so a file planted at the
+ * configured path can't make the server load any other serializable class.
+ *
+ * Failures to read or write the file are logged and otherwise ignored, the caches simply fill as usual.
+ */
+public class DefinitionCacheSnapshot {
+    private static final Logger logger = Logger.getLogger(DefinitionCacheSnapshot.class);
+
+    /** The packages of the classes a snapshot may hold */
+    private static final String[] ALLOWED_PACKAGES = { "org.auraframework.", "java.lang.", "java.util.", "java.math.",
+            "com.google.common.base.", "com.google.common.collect." };
+
+    private final File file;
+
+    private final String version;
+
+    /**
+     * @param file the file holding the snapshot.
+     * @param version the framework version, a snapshot is only restored by the version that saved it.
+     */
+    public DefinitionCacheSnapshot(@Nonnull File file, @Nonnull String version) {
+        this.file = file;
+        this.version = version;
+    }
+
+    /**
+     * Restore the caches from the snapshot, if there is one.
+     *
+     * @param registries the registries used to check the sources of definitions.
+     * @param defsCache the cache to restore definitions into.
+     * @param depsCache the cache to restore dependency entries into.
+     * @return the number of definitions restored.
+     */
+    public int restore(@Nonnull RegistrySet registries,
+            @Nonnull Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache,
+            @Nonnull Cache<DependencyKey, DependencyEntry> depsCache) {
+        if (!file.isFile()) {
+            return 0;
+        }
+        Snapshot snapshot;
+        try (ObjectInputStream in = new SnapshotInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            snapshot = (Snapshot) in.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            logger.warn("Unable to read definition cache snapshot " + file, e);
+            return 0;
+        }
+        if (!version.equals(snapshot.version)) {
+            logger.info("Ignoring definition cache snapshot " + file + " from version " + snapshot.version);
+            return 0;
+        }
+
+        Map<DefDescriptor<?>, Boolean> unchanged = Maps.newHashMap();
+        int restored = 0;
+        for (Map.Entry<DefDescriptor<?>, Definition> entry : snapshot.definitions.entrySet()) {
+            if (isUnchanged(registries, snapshot, entry.getKey(), unchanged)) {
+                defsCache.put(entry.getKey(), Optional.of(entry.getValue()));
+                restored++;
+            }
+        }
+        for (Map.Entry<DependencyKey, Dependencies> entry : snapshot.dependencies.entrySet()) {
+            Dependencies dependencies = entry.getValue();
+            boolean valid = true;
+            for (DefDescriptor<?> dependency : dependencies.descriptors) {
+                if (!isUnchanged(registries, snapshot, dependency, unchanged)) {
+                    valid = false;
+                    break;
+                }
+            }
+            if (valid) {
+                depsCache.put(entry.getKey(), dependencies.toEntry());
+            }
+        }
+        logger.info("Restored " + restored + " of " + snapshot.definitions.size()
+                + " definitions from snapshot " + file);
+        return restored;
+    }
+
+    /**
+     * Save the caches to the snapshot, replacing any previous one.
+     *
+     * @param registries the registries used to find the sources of definitions.
+     * @param defsCache the cache to save definitions from.
+     * @param depsCache the cache to save dependency entries from.
+     * @return the number of definitions saved.
+     */
+    public int save(@Nonnull RegistrySet registries,
+            @Nonnull Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache,
+            @Nonnull Cache<DependencyKey, DependencyEntry> depsCache) {
+        Snapshot snapshot = new Snapshot(version);
+
+        for (DefDescriptor<?> descriptor : defsCache.getKeySet()) {
+            Optional<? extends Definition> def = defsCache.getIfPresent(descriptor);
+            if (def == null || !def.isPresent()) {
+                continue;
+            }
+            String hash = getSourceHash(registries.getRegistryFor(descriptor), descriptor);
+            if (hash != null) {
+                snapshot.definitions.put(descriptor, def.get());
+                snapshot.hashes.put(descriptor, hash);
+            }
+        }
+        for (DependencyKey key : depsCache.getKeySet()) {
+            DependencyEntry de = depsCache.getIfPresent(key);
+            if (de != null && de.uid != null && de.dependencies != null && addHashes(registries, snapshot, de)) {
+                snapshot.dependencies.put(key, new Dependencies(de));
+            }
+        }
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        File temp = null;
+        try {
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            temp = File.createTempFile(file.getName(), ".tmp", parent);
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeObject(snapshot);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ioe) {
+            logger.warn("Unable to write definition cache snapshot " + file, ioe);
+            if (temp != null) {
+                temp.delete();
+            }
+            return 0;
+        }
+        logger.info("Saved " + snapshot.definitions.size() + " definitions to snapshot " + file);
+        return snapshot.definitions.size();
+    }
+
+    /**
+     * Record the source hashes of all of the dependencies of an entry.
+     *
+     * @return false if one of the sources can't be checked, in which case the entry can't be saved.
+     */
+    private boolean addHashes(RegistrySet registries, Snapshot snapshot, DependencyEntry de) {
+        for (DefDescriptor<?> dependency : de.dependencies) {
+            if (!snapshot.hashes.containsKey(dependency)) {
+                DefRegistry registry = registries.getRegistryFor(dependency);
+                if (registry != null && !registry.isCacheable()) {
+                    continue;
+                }
+                String hash = getSourceHash(registry, dependency);
+                if (hash == null) {
+                    return false;
+                }
+                snapshot.hashes.put(dependency, hash);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check whether the source of a descriptor is the same as when the snapshot was saved.
+     */
+    private boolean isUnchanged(RegistrySet registries, Snapshot snapshot, DefDescriptor<?> descriptor,
+            Map<DefDescriptor<?>, Boolean> unchanged) {
+        Boolean result = unchanged.get(descriptor);
+        if (result == null) {
+            DefRegistry registry = registries.getRegistryFor(descriptor);
+            String saved = snapshot.hashes.get(descriptor);
+            if (saved == null) {
+                // only dependencies from registries that are not cacheable are saved without a hash
+                result = registry != null && !registry.isCacheable();
+            } else {
+                result = saved.equals(getSourceHash(registry, descriptor));
+            }
+            unchanged.put(descriptor, result);
+        }
+        return result;
+    }
+
+    /**
+     * Get the hash of the current source for a descriptor.
+     *
+     * A bundle is hashed over all of its parts, so that changing, adding or removing any file in the bundle
+     * changes the hash.
+     *
+     * @return the hash, or null if the source can't be checked.
+     */
+    @CheckForNull
+    private String getSourceHash(@CheckForNull DefRegistry registry, DefDescriptor<?> descriptor) {
+        if (registry == null || !registry.isCacheable()) {
+            return null;
+        }
+        Source<?> source;
+        try {
+            source = registry.getSource(descriptor);
+        } catch (RuntimeException e) {
+            // e.g. factories that build definitions without a source
+            return null;
+        }
+        if (source == null) {
+            // definitions backed by classes, or from static registries, can change without a source to tell
+            return null;
+        }
+        if (!(source instanceof BundleSource)) {
+            return source.getHash();
+        }
+        Map<DefDescriptor<?>, Source<?>> parts = ((BundleSource<?>) source).getBundledParts();
+        List<DefDescriptor<?>> descriptors = Lists.newArrayList(parts.keySet());
+        Collections.sort(descriptors);
+        Hash.StringBuilder builder = new Hash.StringBuilder();
+        for (DefDescriptor<?> part : descriptors) {
+            String hash = parts.get(part).getHash();
+            if (hash == null) {
+                return null;
+            }
+            builder.addString(part.getQualifiedName() + "@" + part.getDefType() + "|" + hash + ",");
+        }
+        return builder.build().toString();
+    }
+
+    /**
+     * Reads a snapshot, refusing any class outside of {@link #ALLOWED_PACKAGES}, and any proxy.
+     */
+    private static final class SnapshotInputStream extends ObjectInputStream {
+        private SnapshotInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            String name = desc.getName();
+            int dimensions = 0;
+            while (name.charAt(dimensions) == '[') {
+                dimensions++;
+            }
+            // arrays of primitives are allowed, arrays of objects are checked by their element class
+            boolean allowed = dimensions > 0 && name.length() == dimensions + 1;
+            String element = dimensions > 0 ? name.substring(dimensions + 1, name.length() - 1) : name;
+            for (int i = 0; !allowed && i < ALLOWED_PACKAGES.length; i++) {
+                allowed = element.startsWith(ALLOWED_PACKAGES[i]);
+            }
+            if (!allowed) {
+                throw new InvalidClassException(name, "not allowed in a definition cache snapshot");
+            }
+            return super.resolveClass(desc);
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces) throws IOException {
+            throw new InvalidClassException("proxy", "not allowed in a definition cache snapshot");
+        }
+    }
+
+    private static class Snapshot implements Serializable {
+        private static final long serialVersionUID = 2306214837140712563L;
+
+        private final String version;
+
+        private final Map<DefDescriptor<?>, Definition> definitions = Maps.newHashMap();
+
+        /** The source hashes of the definitions, and of the dependencies of the entries */
+        private final Map<DefDescriptor<?>, String> hashes = Maps.newHashMap();
+
+        private final Map<DependencyKey, Dependencies> dependencies = Maps.newHashMap();
+
+        private Snapshot(String version) {
+            this.version = version;
+        }
+    }
+
+    /**
+     * The serializable parts of a dependency entry, entries with a quick fix are never saved.
+     */
+    private static class Dependencies implements Serializable {
+        private static final long serialVersionUID = -4967063361428563312L;
+
+        private final String uid;
+
+        /** In the order of the entry, which is significant */
+        private final ArrayList<DefDescriptor<?>> descriptors;
+
+        private final ArrayList<ClientLibraryDef> clientLibraries;
+
+        private Dependencies(DependencyEntry de) {
+            this.uid = de.uid;
+            this.descriptors = Lists.newArrayList(de.dependencies);
+            this.clientLibraries = Lists.newArrayList(de.clientLibraries);
+        }
+
+        private DependencyEntry toEntry() {
+            Set<DefDescriptor<? extends Definition>> deps = Sets.newLinkedHashSet(descriptors);
+            return new DependencyEntry(uid, Collections.unmodifiableSet(deps), clientLibraries);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import org.auraframework.cache.Cache;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.system.DependencyEntry;
+import org.auraframework.system.DependencyKey;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * A dependency cache with a reverse index from each descriptor to the entries that depend on it.
+ *
+ * When a source changes, only the entries for uids that include the changed descriptor need to go, along with
+ * the strings cached under those uids. A key is indexed again after each change to it, including the evictions
+ * the cache notifies, so entries leave the index when they leave the cache and the index never outgrows it.
+ *
+ * The index is kept in concurrent maps, and each key is indexed while computing its entry, so puts of different
+ * keys do not contend.
+ */
+public class IndexedDependencyCache implements Cache<DependencyKey, DependencyEntry> {
+    private final Cache<DependencyKey, DependencyEntry> cache;
+
+    /** A view of the cache to check what is in it, without counting in its stats */
+    private final Map<DependencyKey, DependencyEntry> entries;
+
+    /** The uid of each indexed cache key */
+    private final ConcurrentMap<DependencyKey, String> uidsByKey = new ConcurrentHashMap<>();
+
+    /** The cache keys holding each uid */
+    private final ConcurrentMap<String, Set<DependencyKey>> keysByUid = new ConcurrentHashMap<>();
+
+    /** The dependencies of each uid */
+    private final ConcurrentMap<String, Set<DefDescriptor<?>>> descriptorsByUid = new ConcurrentHashMap<>();
+
+    /** The uids that depend on each descriptor */
+    private final ConcurrentMap<DefDescriptor<?>, Set<String>> uidsByDescriptor = new ConcurrentHashMap<>();
+
+    /**
+     * Build the cache, which tells the index about the entries it evicts.
+     *
+     * @param builder the builder for the underlying cache.
+     */
+    @SuppressWarnings("unchecked")
+    public IndexedDependencyCache(CacheImpl.Builder<DependencyKey, DependencyEntry> builder) {
+        builder.addEvictedKeyHandler(this::index);
+        this.cache = builder.build();
+        Object underlying = cache.getPrivateUnderlyingCache();
+        if (underlying instanceof com.github.benmanes.caffeine.cache.Cache) {
+            entries = ((com.github.benmanes.caffeine.cache.Cache<DependencyKey, DependencyEntry>) underlying).asMap();
+        } else {
+            entries = ((com.google.common.cache.Cache<DependencyKey, DependencyEntry>) underlying).asMap();
+        }
+    }
+
+    /**
+     * Invalidate the entries that depend on any of the given descriptors.
+     *
+     * @param descriptors the changed descriptors.
+     * @return the uids of the invalidated entries.
+     */
+    public Set<String> invalidateDependents(Iterable<DefDescriptor<?>> descriptors) {
+        Set<String> uids = Sets.newHashSet();
+
+        for (DefDescriptor<?> descriptor : descriptors) {
+            Set<String> dependents = uidsByDescriptor.get(descriptor);
+            if (dependents != null) {
+                uids.addAll(dependents);
+            }
+        }
+        for (String uid : uids) {
+            Set<DependencyKey> indexed = keysByUid.get(uid);
+            if (indexed != null) {
+                List<DependencyKey> keys = ImmutableList.copyOf(indexed);
+                cache.invalidate(keys);
+                for (DependencyKey key : keys) {
+                    index(key);
+                }
+            }
+        }
+        return uids;
+    }
+
+    private static boolean isIndexed(DependencyEntry de) {
+        return de != null && de.uid != null && de.dependencies != null;
+    }
+
+    /**
+     * Index a key as it is in the cache.
+     *
+     * Changes to a key may be indexed out of order, evictions in particular are notified late and on another thread.
+     * So the cache is read again once the key is indexed, and the key is indexed again if it changed meanwhile. The
+     * last change to a key is then always indexed last.
+     */
+    private void index(DependencyKey key) {
+        DependencyEntry de = entries.get(key);
+        while (true) {
+            final DependencyEntry indexed = de;
+            uidsByKey.compute(key, (k, previous) -> {
+                String uid = isIndexed(indexed) ? indexed.uid : null;
+                if (previous != null && !previous.equals(uid)) {
+                    removeKey(previous, k);
+                }
+                if (uid != null) {
+                    addKey(uid, k, indexed.dependencies);
+                }
+                return uid;
+            });
+            de = entries.get(key);
+            if (de == indexed) {
+                return;
+            }
+        }
+    }
+
+    private void addKey(String uid, DependencyKey key, Set<DefDescriptor<?>> dependencies) {
+        keysByUid.compute(uid, (u, keys) -> {
+            if (keys == null) {
+                keys = ConcurrentHashMap.newKeySet();
+                descriptorsByUid.put(u, dependencies);
+                for (DefDescriptor<?> dependency : dependencies) {
+                    uidsByDescriptor.compute(dependency, (d, dependents) -> {
+                        if (dependents == null) {
+                            dependents = ConcurrentHashMap.newKeySet();
+                        }
+                        dependents.add(u);
+                        return dependents;
+                    });
+                }
+            }
+            keys.add(key);
+            return keys;
+        });
+    }
+
+    private void removeKey(String uid, DependencyKey key) {
+        keysByUid.computeIfPresent(uid, (u, keys) -> {
+            keys.remove(key);
+            if (!keys.isEmpty()) {
+                return keys;
+            }
+            Set<DefDescriptor<?>> dependencies = descriptorsByUid.remove(u);
+            if (dependencies != null) {
+                for (DefDescriptor<?> dependency : dependencies) {
+                    uidsByDescriptor.computeIfPresent(dependency, (d, dependents) -> {
+                        dependents.remove(u);
+                        return dependents.isEmpty() ? null : dependents;
+                    });
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public DependencyEntry getIfPresent(DependencyKey key) {
+        return cache.getIfPresent(key);
+    }
+
+    @Override
+    public DependencyEntry get(DependencyKey key, Callable<DependencyEntry> loader) throws ExecutionException {
+        DependencyEntry de = cache.get(key, loader);
+        // a hit was indexed when it was put
+        if (!Objects.equals(isIndexed(de) ? de.uid : null, uidsByKey.get(key))) {
+            index(key);
+        }
+        return de;
+    }
+
+    @Override
+    public void put(DependencyKey key, DependencyEntry data) {
+        cache.put(key, data);
+        index(key);
+    }
+
+    @Override
+    public void invalidate(DependencyKey key) {
+        cache.invalidate(key);
+        index(key);
+    }
+
+    @Override
+    public void invalidate(Iterable<DependencyKey> keys) {
+        cache.invalidate(keys);
+        for (DependencyKey key : keys) {
+            index(key);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.invalidateAll();
+        uidsByKey.clear();
+        keysByUid.clear();
+        descriptorsByUid.clear();
+        uidsByDescriptor.clear();
+    }
+
+    @Override
+    public Set<DependencyKey> getKeySet() {
+        return cache.getKeySet();
+    }
+
+    @Override
+    public void invalidatePartial(String keyBeginsWith) {
+        // everything is a match if the match length is zero
+        if (keyBeginsWith == null || keyBeginsWith.length() == 0) {
+            invalidateAll();
+            return;
+        }
+        List<DependencyKey> invalid = Lists.newArrayList();
+        for (DependencyKey key : cache.getKeySet()) {
+            if (key.toString().startsWith(keyBeginsWith)) {
+                invalid.add(key);
+            }
+        }
+        if (!invalid.isEmpty()) {
+            invalidate(invalid);
+        }
+    }
+
+    @Override
+    public Object getPrivateUnderlyingCache() {
+        return cache.getPrivateUnderlyingCache();
+    }
+
+    @Override
+    public void logCacheStatus(String extraMessage) {
+        cache.logCacheStatus(String.format("%sindexed descriptors=%d, ", extraMessage, uidsByDescriptor.size()));
+    }
+}
@@ -0,0 +1,442 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Sets;
+
+/**
+ * A bounded store of strings kept outside of the java heap.
+ *
+ * Strings are stored UTF-8 encoded, either in direct buffers or, if a directory is given, in
+ * memory-mapped files that the OS can page out. Entries are evicted in least recently used
+ * order once the capacity in bytes is exceeded. Buffers are never written after they are
+ * stored, so readers decode them outside of the lock, and an evicted buffer stays valid
+ * until the last reader drops it.
+ */
+public class OffHeapStringStore<K> {
+    /** Default capacity of a store, in bytes */
+    static final long DEFAULT_CAPACITY = Long.getLong("aura.cache.secondaryStorageCapacity", 256L * 1024 * 1024);
+
+    /** Strings of at least this many chars are kept only in secondary storage */
+    static final int DEFAULT_THRESHOLD = Integer.getInteger("aura.cache.secondaryStorageThreshold", 64 * 1024);
+
+    /** Directory for memory-mapped files, direct buffers are used if this is not set */
+    static final String DEFAULT_DIRECTORY = System.getProperty("aura.cache.secondaryStorageDir");
+
+    /** Size of the char buffer used to stream entries */
+    private static final int CHUNK_SIZE = 8192;
+
+    /** Size of the buffers a string is encoded into by a writer, in bytes */
+    private static final int WRITE_CHUNK_SIZE = 256 * 1024;
+
+    private final long capacity;
+
+    private final File directory;
+
+    private final LinkedHashMap<K, ByteBuffer> buffers = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long used = 0;
+
+    /**
+     * Create a store.
+     *
+     * @param capacity the maximum number of bytes to hold.
+     * @param directory the directory for memory-mapped files, or null to use direct buffers.
+     */
+    public OffHeapStringStore(long capacity, File directory) {
+        this.capacity = capacity;
+        this.directory = directory;
+    }
+
+    /**
+     * Store a string, evicting the least recently used entries to make room.
+     *
+     * @param key the key.
+     * @param value the value to store.
+     * @return false if the value does not fit in the store.
+     */
+    public boolean put(K key, CharSequence value) throws IOException {
+        int length = getEncodedLength(value);
+        if (length > capacity) {
+            invalidate(key);
+            return false;
+        }
+        ByteBuffer buffer = allocate(length);
+        CharsetEncoder encoder = newEncoder();
+        CoderResult result = encoder.encode(CharBuffer.wrap(value), buffer, true);
+        if (!result.isUnderflow()) {
+            result.throwException();
+        }
+        encoder.flush(buffer);
+        buffer.flip();
+        store(key, buffer);
+        return true;
+    }
+
+    /**
+     * Get a writer that stores what is written to it once it is closed.
+     *
+     * The string is encoded into direct buffers as it is written, so it is never whole on the heap, and
+     * is copied into a buffer of its own when the writer is closed. If it outgrows the capacity of the
+     * store, what was written is dropped and nothing is stored. Nothing is stored either if the writer
+     * is not closed.
+     *
+     * @param key the key.
+     * @param onStored run once the string is stored.
+     * @return the writer.
+     */
+    public Writer getWriter(K key, Runnable onStored) {
+        return new ChunkedWriter(key, onStored);
+    }
+
+    private synchronized void store(K key, ByteBuffer buffer) {
+        ByteBuffer old = buffers.put(key, buffer);
+        if (old != null) {
+            used -= old.limit();
+        }
+        used += buffer.limit();
+        Iterator<Map.Entry<K, ByteBuffer>> iterator = buffers.entrySet().iterator();
+        while (used > capacity && iterator.hasNext()) {
+            Map.Entry<K, ByteBuffer> eldest = iterator.next();
+            if (!eldest.getKey().equals(key)) {
+                used -= eldest.getValue().limit();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Store an entry evicted from a heap cache, if it is a string.
+     *
+     * Failures are ignored, as they only lose the entry, just as if there was no secondary storage.
+     */
+    public void spill(K key, Object value) {
+        if (value instanceof CharSequence) {
+            try {
+                put(key, (CharSequence) value);
+            } catch (IOException ioe) {
+                // drop it
+            }
+        }
+    }
+
+    /**
+     * Get a stored string.
+     *
+     * This builds the whole string on the heap, {@link #writeTo(Object, Writer)} should be preferred.
+     *
+     * @param key the key.
+     * @return the string, or null if it is not stored.
+     */
+    public String get(K key) {
+        ByteBuffer buffer = lookup(key);
+        if (buffer == null) {
+            return null;
+        }
+        return StandardCharsets.UTF_8.decode(buffer).toString();
+    }
+
+    /**
+     * Stream a stored string to a writer in chunks.
+     *
+     * @param key the key.
+     * @param out the writer.
+     * @return false if the string is not stored.
+     */
+    public boolean writeTo(K key, Writer out) throws IOException {
+        ByteBuffer buffer = lookup(key);
+        if (buffer == null) {
+            return false;
+        }
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+        CoderResult result;
+        do {
+            result = decoder.decode(buffer, chars, true);
+            drain(chars, out);
+        } while (result.isOverflow());
+        while (decoder.flush(chars).isOverflow()) {
+            drain(chars, out);
+        }
+        drain(chars, out);
+        return true;
+    }
+
+    private void drain(CharBuffer chars, Writer out) throws IOException {
+        chars.flip();
+        out.write(chars.array(), chars.arrayOffset(), chars.remaining());
+        chars.clear();
+    }
+
+    public synchronized boolean contains(K key) {
+        return buffers.containsKey(key);
+    }
+
+    public synchronized void invalidate(K key) {
+        ByteBuffer old = buffers.remove(key);
+        if (old != null) {
+            used -= old.limit();
+        }
+    }
+
+    public synchronized void invalidate(Iterable<K> keys) {
+        for (K key : keys) {
+            invalidate(key);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        buffers.clear();
+        used = 0;
+    }
+
+    /**
+     * Invalidate the keys whose toString begins with the given string.
+     */
+    public synchronized void invalidatePartial(String keyBeginsWith) {
+        List<K> invalidItems = new ArrayList<>();
+        for (K key : buffers.keySet()) {
+            if (key.toString().startsWith(keyBeginsWith)) {
+                invalidItems.add(key);
+            }
+        }
+        invalidate(invalidItems);
+    }
+
+    public synchronized Set<K> getKeySet() {
+        return Sets.newHashSet(buffers.keySet());
+    }
+
+    public synchronized int size() {
+        return buffers.size();
+    }
+
+    public synchronized long getUsedBytes() {
+        return used;
+    }
+
+    private synchronized ByteBuffer lookup(K key) {
+        ByteBuffer buffer = buffers.get(key);
+        if (buffer == null) {
+            return null;
+        }
+        // readers get their own position and limit
+        return buffer.duplicate();
+    }
+
+    private static CharsetEncoder newEncoder() {
+        return StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    private ByteBuffer allocate(int length) throws IOException {
+        if (length == 0) {
+            return ByteBuffer.allocate(0);
+        }
+        if (directory == null) {
+            return ByteBuffer.allocateDirect(length);
+        }
+        File file = File.createTempFile("aura-cache", ".bin", directory);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // the mapping stays valid after the channel is closed and the file is unlinked
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+        } finally {
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * The number of bytes needed to encode a string as UTF-8, counting a replacement byte
+     * for each unpaired surrogate, as the encoder does.
+     */
+    static int getEncodedLength(CharSequence value) {
+        int length = 0;
+        int count = value.length();
+        for (int i = 0; i < count; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < count
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * A writer that encodes into a list of direct buffers, and stores them as one entry when closed.
+     */
+    private class ChunkedWriter extends Writer {
+        private final K key;
+
+        private final Runnable onStored;
+
+        private final CharsetEncoder encoder = newEncoder();
+
+        /** Chars not encoded yet, including the high surrogate of a pair split between writes */
+        private final CharBuffer pending = CharBuffer.allocate(CHUNK_SIZE);
+
+        /** The buffers encoded so far, or null once the string outgrew the store */
+        private List<ByteBuffer> chunks = new ArrayList<>();
+
+        private ByteBuffer current;
+
+        private long allocated = 0;
+
+        private boolean closed = false;
+
+        ChunkedWriter(K key, Runnable onStored) {
+            this.key = key;
+            this.onStored = onStored;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            ensureOpen();
+            while (len > 0) {
+                int count = Math.min(len, pending.remaining());
+                pending.put(cbuf, off, count);
+                off += count;
+                len -= count;
+                if (!pending.hasRemaining()) {
+                    encode(false);
+                }
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            ensureOpen();
+            while (len > 0) {
+                int count = Math.min(len, pending.remaining());
+                pending.put(str, off, off + count);
+                off += count;
+                len -= count;
+                if (!pending.hasRemaining()) {
+                    encode(false);
+                }
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            encode(true);
+            while (chunks != null && (current == null || encoder.flush(current).isOverflow())) {
+                nextChunk();
+            }
+            if (chunks == null) {
+                return;
+            }
+            int length = 0;
+            for (ByteBuffer chunk : chunks) {
+                length += chunk.position();
+            }
+            ByteBuffer buffer = allocate(length);
+            for (ByteBuffer chunk : chunks) {
+                chunk.flip();
+                buffer.put(chunk);
+            }
+            buffer.flip();
+            chunks = null;
+            current = null;
+            store(key, buffer);
+            onStored.run();
+        }
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("Writer closed");
+            }
+        }
+
+        private void encode(boolean endOfInput) throws CharacterCodingException {
+            pending.flip();
+            while (chunks != null) {
+                if (current != null) {
+                    CoderResult result = encoder.encode(pending, current, endOfInput);
+                    if (!result.isOverflow()) {
+                        if (result.isError()) {
+                            result.throwException();
+                        }
+                        break;
+                    }
+                }
+                nextChunk();
+            }
+            if (chunks == null) {
+                pending.clear();
+            } else {
+                pending.compact();
+            }
+        }
+
+        /**
+         * Start a new buffer, or drop the string if there is no room left for it in the store.
+         */
+        private void nextChunk() {
+            long size = Math.min(WRITE_CHUNK_SIZE, Math.min(capacity, Integer.MAX_VALUE) - allocated);
+            if (size <= 0) {
+                chunks = null;
+                current = null;
+                return;
+            }
+            current = ByteBuffer.allocateDirect((int) size);
+            chunks.add(current);
+            allocated += size;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.auraframework.cache.Cache;
+
+import com.google.common.collect.Sets;
+
+/**
+ * A cache with an off-heap tier for large strings.
+ *
+ * Strings of at least the threshold length are kept only in secondary storage, and strings
+ * evicted from the heap cache for size are spilled to it, so they are not lost to garbage
+ * collection and regenerated. Values that are not strings only use the heap cache.
+ *
+ * Only size evictions spill. A soft value cleared by the garbage collector is already gone
+ * when the heap cache is notified, so it is lost and regenerated as without this tier; use
+ * the threshold to keep the largest strings off the heap from the start.
+ */
+public class SecondaryStorageCacheImpl<K, T> implements Cache<K, T> {
+    private final Cache<K, T> cache;
+
+    private final OffHeapStringStore<K> secondary;
+
+    private final int threshold;
+
+    SecondaryStorageCacheImpl(Cache<K, T> cache, OffHeapStringStore<K> secondary, int threshold) {
+        this.cache = cache;
+        this.secondary = secondary;
+        this.threshold = threshold;
+    }
+
+    private boolean isOversized(T value) {
+        return value instanceof String && ((String) value).length() >= threshold;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T getIfPresent(K key) {
+        T value = cache.getIfPresent(key);
+        if (value == null) {
+            // only strings are ever stored in secondary storage
+            value = (T) secondary.get(key);
+        }
+        return value;
+    }
+
+    @Override
+    public T get(K key, Callable<T> loader) throws ExecutionException {
+        T value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        // load through the heap cache so that concurrent loads of a key are done once
+        value = cache.get(key, loader);
+        if (isOversized(value)) {
+            moveToSecondary(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public boolean writeIfPresent(K key, Writer out) throws IOException {
+        T value = cache.getIfPresent(key);
+        if (value != null) {
+            out.append(value.toString());
+            return true;
+        }
+        return secondary.writeTo(key, out);
+    }
+
+    @Override
+    public boolean hasSecondaryStorage() {
+        return true;
+    }
+
+    /**
+     * The value is kept only in secondary storage, as an oversized value would be. Unlike a value
+     * that is put, a value too large for secondary storage is not cached at all, as it was never on
+     * the heap.
+     */
+    @Override
+    public Writer getValueWriter(K key) {
+        return secondary.getWriter(key, () -> cache.invalidate(key));
+    }
+
+    @Override
+    public void put(K key, T data) {
+        if (isOversized(data)) {
+            moveToSecondary(key, data);
+        } else {
+            secondary.invalidate(key);
+            cache.put(key, data);
+        }
+    }
+
+    private void moveToSecondary(K key, T value) {
+        try {
+            if (secondary.put(key, (String) value)) {
+                cache.invalidate(key);
+                return;
+            }
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+        // too large for secondary storage, keep it on the heap
+        cache.put(key, value);
+    }
+
+    @Override
+    public Set<K> getKeySet() {
+        Set<K> keys = Sets.newHashSet(cache.getKeySet());
+        keys.addAll(secondary.getKeySet());
+        return keys;
+    }
+
+    @Override
+    public void invalidate(K key) {
+        cache.invalidate(key);
+        secondary.invalidate(key);
+    }
+
+    @Override
+    public void invalidate(Iterable<K> keys) {
+        cache.invalidate(keys);
+        secondary.invalidate(keys);
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.invalidateAll();
+        secondary.invalidateAll();
+    }
+
+    @Override
+    public void invalidatePartial(String partial) {
+        cache.invalidatePartial(partial);
+        if (partial == null || partial.length() == 0) {
+            secondary.invalidateAll();
+        } else {
+            secondary.invalidatePartial(partial);
+        }
+    }
+
+    @Override
+    public Object getPrivateUnderlyingCache() {
+        return cache.getPrivateUnderlyingCache();
+    }
+
+    @Override
+    public void logCacheStatus(String extraMessage) {
+        cache.logCacheStatus(String.format("%ssecondary entries=%d, secondary bytes=%d, ", extraMessage,
+                secondary.size(), secondary.getUsedBytes()));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A read/write lock split into stripes, so that readers do not all update the same reader count.
+ *
+ * Each thread reads through the stripe picked by its id, while the write lock takes the write lock of every
+ * stripe, in order. Readers on different stripes share no state, which keeps the read path from bouncing one
+ * cache line between all cores, at the cost of a slower write lock. As with {@link ReentrantReadWriteLock},
+ * locks are reentrant, a writer may also read, and a reader cannot upgrade to writing.
+ */
+public class StripedReadWriteLock implements ReadWriteLock {
+    private final ReentrantReadWriteLock[] stripes;
+
+    private final Lock readLock = new ReadLock();
+
+    private final Lock writeLock = new WriteLock();
+
+    public StripedReadWriteLock(int stripeCount) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("stripeCount must be at least 1, was " + stripeCount);
+        }
+        stripes = new ReentrantReadWriteLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    @Override
+    public Lock readLock() {
+        return readLock;
+    }
+
+    @Override
+    public Lock writeLock() {
+        return writeLock;
+    }
+
+    /**
+     * The stripe for the current thread, which must not change between lock and unlock.
+     */
+    private Lock getReadStripe() {
+        long id = Thread.currentThread().getId();
+        return stripes[(int) (id % stripes.length)].readLock();
+    }
+
+    private class ReadLock implements Lock {
+        @Override
+        public void lock() {
+            getReadStripe().lock();
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            getReadStripe().lockInterruptibly();
+        }
+
+        @Override
+        public boolean tryLock() {
+            return getReadStripe().tryLock();
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            return getReadStripe().tryLock(time, unit);
+        }
+
+        @Override
+        public void unlock() {
+            getReadStripe().unlock();
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private class WriteLock implements Lock {
+        @Override
+        public void lock() {
+            for (ReentrantReadWriteLock stripe : stripes) {
+                stripe.writeLock().lock();
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            int locked = 0;
+            try {
+                for (ReentrantReadWriteLock stripe : stripes) {
+                    stripe.writeLock().lockInterruptibly();
+                    locked++;
+                }
+            } finally {
+                if (locked < stripes.length) {
+                    unlock(locked);
+                }
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            int locked = 0;
+            while (locked < stripes.length && stripes[locked].writeLock().tryLock()) {
+                locked++;
+            }
+            if (locked < stripes.length) {
+                unlock(locked);
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(time);
+            int locked = 0;
+            try {
+                while (locked < stripes.length
+                        && stripes[locked].writeLock().tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    locked++;
+                }
+            } finally {
+                if (locked < stripes.length) {
+                    unlock(locked);
+                }
+            }
+            return locked == stripes.length;
+        }
+
+        @Override
+        public void unlock() {
+            unlock(stripes.length);
+        }
+
+        /**
+         * Release the first count stripes, in reverse order.
+         */
+        private void unlock(int count) {
+            for (int i = count - 1; i >= 0; i--) {
+                stripes[i].writeLock().unlock();
+            }
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
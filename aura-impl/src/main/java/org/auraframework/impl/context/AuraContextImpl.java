@@ -19,6 +19,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 import java.io.IOException;
+import java.security.SecureRandom;
 import java.util.*;
 
 import org.apache.log4j.Logger;
@@ -41,9 +42,11 @@ import org.auraframework.instance.Event;
 import org.auraframework.instance.GlobalValueProvider;
 import org.auraframework.instance.InstanceStack;
 import org.auraframework.service.DefinitionService;
+import org.auraframework.system.AccessCheckKey;
 import org.auraframework.system.AuraContext;
 import org.auraframework.system.Client;
 import org.auraframework.system.DependencyEntry;
+import org.auraframework.system.DependencyKey;
 import org.auraframework.system.LoggingContext.KeyValueLogger;
 import org.auraframework.system.RegistrySet;
 import org.auraframework.test.TestContext;
@@ -122,6 +125,12 @@ public class AuraContextImpl implements AuraContext {
     private Deque<DefDescriptor<?>> callingDescriptorStack = Lists.newLinkedList();
 
     private static final int MAX_COMPONENT_COUNT = 10000;
+
+    /**
+     * A CSP nonce must not be predictable. One generator is shared by all contexts, as seeding one for each is slow.
+     */
+    private static final SecureRandom NONCE_RANDOM = new SecureRandom();
+
     private int componentCount;
 
     private static final Map<String, GlobalValue> allowedGlobalValues = new HashMap<>();
@@ -149,6 +158,7 @@ public class AuraContextImpl implements AuraContext {
             this.defs = new HashMap<>();
             this.dynamicDescs = new HashSet<>();
             this.localDependencies = new HashMap<>();
+            this.keyedDependencies = new HashMap<>();
             this.defNotCacheable = new HashSet<>();
         }
 
@@ -165,21 +175,56 @@ public class AuraContextImpl implements AuraContext {
          * The two keys stored in the local cache are:
          * <ul>
          * <li>The UID, which should be sufficiently unique for a single request.</li>
-         * <li>The type+qualified name of the descriptor. We store this to avoid construction in the case where we don't
-         * have a UID. This is presumed safe because we assume that a single session will have a consistent set of
-         * permissions</li>
+         * <li>The descriptor key, see {@link #keyedDependencies}.</li>
          * </ul>
          */
         private final Map<String, DependencyEntry> localDependencies;
+
+        /**
+         * The local dependencies by descriptor key.
+         *
+         * We store this to avoid construction in the case where we don't have a UID. This is presumed safe because
+         * we assume that a single session will have a consistent set of permissions. Every entry that has
+         * dependencies is also in {@link #localDependencies} by uid.
+         */
+        private final Map<DependencyKey, DependencyEntry> keyedDependencies;
+
+        /**
+         * Add the defs and dependency entries of another set. A dynamic def replaces a def with the same
+         * descriptor, as it does when it is added, everything else is only added if missing.
+         */
+        void merge(LocalDefs other) {
+            for (Map.Entry<DefDescriptor<? extends Definition>, Optional<Definition>> entry : other.defs.entrySet()) {
+                if (other.dynamicDescs.contains(entry.getKey())) {
+                    defs.put(entry.getKey(), entry.getValue());
+                } else {
+                    defs.putIfAbsent(entry.getKey(), entry.getValue());
+                }
+            }
+            dynamicDescs.addAll(other.dynamicDescs);
+            defNotCacheable.addAll(other.defNotCacheable);
+            for (Map.Entry<String, DependencyEntry> entry : other.localDependencies.entrySet()) {
+                localDependencies.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<DependencyKey, DependencyEntry> entry : other.keyedDependencies.entrySet()) {
+                keyedDependencies.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
     }
 
     private final LocalDefs userDefs;
-    private final LocalDefs systemDefs;
+    /**
+     * Created when system mode is first entered, as most requests never do.
+     */
+    private LocalDefs systemDefs;
     private LocalDefs currentDefs;
 
     private final Map<String, Boolean> clientClassesLoaded;
 
-    private final Cache<String, String> accessCheckCache;
+    /**
+     * Created on first use, as it is large, and requests that check no access do not need it.
+     */
+    private Cache<AccessCheckKey, String> accessCheckCache;
 
     private final RegistrySet registries;
 
@@ -203,24 +248,17 @@ public class AuraContextImpl implements AuraContext {
         this.testContextAdapter = testContextAdapter;
         this.globalValues = new HashMap<>();
         this.userDefs = new LocalDefs();
-        this.systemDefs = new LocalDefs();
         this.currentDefs = userDefs;
         this.clientClassesLoaded = new HashMap<>();
-        // Why is this a cache and not just a map?
-        this.accessCheckCache = new CacheImpl.Builder<String, String>()
-                .setInitialSize(ACCESS_CHECK_CACHE_SIZE)
-                .setMaximumSize(ACCESS_CHECK_CACHE_SIZE)
-                .setRecordStats(true)
-                .setSoftValues(true)
-                .build();
-        Random r = new Random();
-        this.nonce = new UUID(r.nextLong(), r.nextLong()).toString();
     }
 
     @Override
     public void setSystemMode(boolean systemMode) {
         isSystem = systemMode;
         if (isSystem) {
+            if (systemDefs == null) {
+                systemDefs = new LocalDefs();
+            }
             this.currentDefs = systemDefs;
         } else {
             this.currentDefs = userDefs;
@@ -297,6 +335,29 @@ public class AuraContextImpl implements AuraContext {
         currentDefs.dynamicDescs.add(desc);
     }
 
+    @Override
+    public void merge(AuraContext other) {
+        if (!(other instanceof AuraContextImpl)) {
+            AuraContext.super.merge(other);
+            return;
+        }
+        AuraContextImpl from = (AuraContextImpl) other;
+        loaded.putAll(from.loaded);
+        userDefs.merge(from.userDefs);
+        if (from.systemDefs != null) {
+            if (systemDefs == null) {
+                systemDefs = new LocalDefs();
+            }
+            systemDefs.merge(from.systemDefs);
+        }
+        clientClassesLoaded.putAll(from.clientClassesLoaded);
+        for (String hash : from.scriptHashes) {
+            if (!scriptHashes.contains(hash)) {
+                scriptHashes.add(hash);
+            }
+        }
+    }
+
     @Override
     public void addDynamicMatches(Set<DefDescriptor<?>> matched, DescriptorFilter matcher) {
         for (DefDescriptor<? extends Definition> desc : userDefs.dynamicDescs) {
@@ -421,6 +482,9 @@ public class AuraContextImpl implements AuraContext {
 
     @Override
     public String getScriptNonce() {
+        if (nonce == null) {
+            nonce = new UUID(NONCE_RANDOM.nextLong(), NONCE_RANDOM.nextLong()).toString();
+        }
         return nonce;
     }
 
@@ -915,20 +979,31 @@ public class AuraContextImpl implements AuraContext {
     }
 
     @Override
-    public void addLocalDependencyEntry(String key, DependencyEntry de) {
+    public void addLocalDependencyEntry(DependencyKey key, DependencyEntry de) {
         if (de.uid != null) {
             currentDefs.localDependencies.put(de.uid, de);
         }
-        currentDefs.localDependencies.put(key, de);
+        currentDefs.keyedDependencies.put(key, de);
+    }
+
+    @Override
+    public DependencyEntry getLocalDependencyEntry(String uid) {
+        DependencyEntry entry;
+
+        entry = userDefs.localDependencies.get(uid);
+        if (entry == null && isSystem) {
+            entry = systemDefs.localDependencies.get(uid);
+        }
+        return entry;
     }
 
     @Override
-    public DependencyEntry getLocalDependencyEntry(String key) {
+    public DependencyEntry getLocalDependencyEntry(DependencyKey key) {
         DependencyEntry entry;
 
-        entry = userDefs.localDependencies.get(key);
+        entry = userDefs.keyedDependencies.get(key);
         if (entry == null && isSystem) {
-            entry = systemDefs.localDependencies.get(key);
+            entry = systemDefs.keyedDependencies.get(key);
         }
         return entry;
     }
@@ -970,7 +1045,16 @@ public class AuraContextImpl implements AuraContext {
     }
 
     @Override
-    public Cache<String, String> getAccessCheckCache() {
+    public Cache<AccessCheckKey, String> getAccessCheckCache() {
+        if (accessCheckCache == null) {
+            // Why is this a cache and not just a map?
+            accessCheckCache = new CacheImpl.Builder<AccessCheckKey, String>()
+                    .setInitialSize(ACCESS_CHECK_CACHE_SIZE)
+                    .setMaximumSize(ACCESS_CHECK_CACHE_SIZE)
+                    .setRecordStats(true)
+                    .setSoftValues(true)
+                    .build();
+        }
         return accessCheckCache;
     }
 
@@ -66,9 +66,15 @@ public class LoggingContextImpl implements LoggingContext {
         startTimer(LoggingService.TIMER_ACTION + actionName, ImmutableMap.of("id", actionId));
     }
     
-    protected Map<String, Map<String, Long>> getActionStats() {
+    @Override
+    public Map<String, Map<String, Long>> getActionStats() {
         return actionStats;
-    } 
+    }
+
+    @Override
+    public void addActionStats(Map<String, Map<String, Long>> stats) {
+        actionStats.putAll(stats);
+    }
     
     @Override
     public void stopAction(String actionName) {
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.java.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+/**
+ * The params of a java action, some of which are already converted to the types of their parameters.
+ *
+ * The action message is read with the params bound to the parameter types as they are parsed, so that the maps and
+ * lists read for a param are dropped as soon as it is complete. {@link JavaAction} does not convert a bound param
+ * again. A param that failed to convert is kept as it was read, and fails again when the action runs, as an error for
+ * that action alone.
+ */
+public class BoundParams extends LinkedHashMap<String, Object> {
+    private static final long serialVersionUID = -3177270569926427046L;
+
+    private final Map<String, Object> bound = Maps.newHashMap();
+
+    /**
+     * Put a param that is converted to the type of its parameter.
+     */
+    public void putBound(String name, Object value) {
+        put(name, value);
+        bound.put(name, value);
+    }
+
+    /**
+     * @return true if the current value of a param is the one converted to the type of its parameter.
+     */
+    public boolean isBound(String name) {
+        Object value = get(name);
+        return value != null && bound.get(name) == value;
+    }
+}
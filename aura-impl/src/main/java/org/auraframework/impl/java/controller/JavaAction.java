@@ -76,6 +76,11 @@ public class JavaAction extends AbstractActionImpl<JavaActionDef> {
 
         for (ValueDef valueDef : actionDef.getParameters()) {
             Object param = paramValues.get(valueDef.getName());
+            if (paramValues instanceof BoundParams && ((BoundParams) paramValues).isBound(valueDef.getName())) {
+                // converted while the message was read
+                args[i++] = param;
+                continue;
+            }
             try {
                 param = valueDef.getType().valueOf(param);
             } catch (QuickFixException qfe) {
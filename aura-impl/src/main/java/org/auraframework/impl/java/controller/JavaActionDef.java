@@ -39,6 +39,7 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
     private final Method method;
     private final boolean background;
     private final boolean caboose;
+    private final boolean concurrent;
 
     protected JavaActionDef(Builder builder) {
         super(builder);
@@ -49,6 +50,7 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
         this.method = builder.method;
         this.background = builder.background;
         this.caboose = builder.caboose;
+        this.concurrent = builder.concurrent;
     }
 
     @Override
@@ -92,6 +94,11 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
     	return caboose;
     }
 
+    @Override
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
     @Override
     public void serialize(Json json) throws IOException {
         json.writeMapBegin();
@@ -118,6 +125,7 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
         private Method method;
         private boolean background = false;
         private boolean caboose = false;
+        private boolean concurrent = false;
 
         @Override
         public JavaActionDef build() {
@@ -171,5 +179,9 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
         public void setCaboose(boolean caboose) {
             this.caboose = caboose;
         }
+
+        public void setConcurrent(boolean concurrent) {
+            this.concurrent = concurrent;
+        }
     }
 }
@@ -41,6 +41,7 @@ import org.auraframework.service.DefinitionService;
 import org.auraframework.system.Annotations.AuraEnabled;
 import org.auraframework.system.Annotations.BackgroundAction;
 import org.auraframework.system.Annotations.CabooseAction;
+import org.auraframework.system.Annotations.ConcurrentAction;
 import org.auraframework.system.Annotations.Key;
 import org.auraframework.system.AuraContext;
 import org.auraframework.system.AuraContext.Access;
@@ -145,6 +146,7 @@ public class JavaControllerDefFactory implements DefinitionFactory<JavaSourceImp
         
         actionBuilder.setBackground(method.isAnnotationPresent(BackgroundAction.class));
         actionBuilder.setCaboose(method.isAnnotationPresent(CabooseAction.class));
+        actionBuilder.setConcurrent(method.isAnnotationPresent(ConcurrentAction.class));
 
         actionBuilder.setAccess(new DefinitionAccessImpl(Access.INTERNAL));
 
@@ -20,6 +20,9 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.auraframework.Aura;
 import org.auraframework.def.DefDescriptor;
@@ -46,6 +49,17 @@ import org.auraframework.util.json.Json;
  * which are static).
  */
 public class JavaModel implements Model {
+    /**
+     * The getters of each class by property name, looked up once and shared. An empty value means no getter.
+     */
+    private static final ClassValue<ConcurrentMap<String, Optional<Method>>> GETTERS =
+            new ClassValue<ConcurrentMap<String, Optional<Method>>>() {
+                @Override
+                protected ConcurrentMap<String, Optional<Method>> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+
     private final Object bean;
     private final JavaModelDefImpl modelDef;
     private final String path;
@@ -160,18 +174,13 @@ public class JavaModel implements Model {
                 }
             }
             else {
-                Method meth = null;
-                try {
-                    meth = root.getClass().getMethod("get" + AuraTextUtil.initCap(part));
-                } catch (NoSuchMethodException e) {
-                    try {
-                        meth = root.getClass().getMethod("is" + AuraTextUtil.initCap(part));
-                    } catch (NoSuchMethodException nme) {
-                        throw makeException("no such property: " + part, e, def);
-                    }
+                Method getter = getGetter(root.getClass(), part);
+                if (getter == null) {
+                    throw makeException("no such property: " + part, new NoSuchMethodException(
+                            root.getClass().getName() + ".get" + AuraTextUtil.initCap(part) + "()"), def);
                 }
                 try {
-                    ret = meth.invoke(root);
+                    ret = getter.invoke(root);
                 } catch (IllegalAccessException iae) {
                     throw makeException("no such property: " + part, iae, def);
                 } catch (InvocationTargetException ite) {
@@ -201,6 +210,36 @@ public class JavaModel implements Model {
         return ret;
     }
 
+    /**
+     * Get the public getter for a property of a class, "get" or else "is" followed by the property name.
+     *
+     * @param type the class of the object that has the property.
+     * @param property the name of the property.
+     * @return the getter, or null if the class has no such public getter.
+     */
+    static Method getGetter(Class<?> type, String property) {
+        ConcurrentMap<String, Optional<Method>> getters = GETTERS.get(type);
+        Optional<Method> getter = getters.get(property);
+        if (getter == null) {
+            getter = Optional.ofNullable(findGetter(type, property));
+            getters.putIfAbsent(property, getter);
+        }
+        return getter.orElse(null);
+    }
+
+    private static Method findGetter(Class<?> type, String property) {
+        String name = AuraTextUtil.initCap(property);
+        try {
+            return type.getMethod(JavaValueDef.GET + name);
+        } catch (NoSuchMethodException e) {
+            try {
+                return type.getMethod(JavaValueDef.IS + name);
+            } catch (NoSuchMethodException nme) {
+                return null;
+            }
+        }
+    }
+
     private static AuraRuntimeException makeException(String message, Throwable cause, ModelDef def) {
         if (def != null) {
             return new AuraExecutionException(message,def.getLocation(),cause);
@@ -30,6 +30,7 @@ import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.DefDescriptor.DefType;
 import org.auraframework.def.Definition;
 import org.auraframework.def.DescriptorFilter;
+import org.auraframework.impl.system.DescriptorIndex;
 import org.auraframework.system.BundleSource;
 import org.auraframework.system.FileBundleSourceBuilder;
 import org.auraframework.system.InternalNamespaceSourceLoader;
@@ -63,12 +64,14 @@ public class FileBundleSourceLoader implements SourceLoader, InternalNamespaceSo
     protected final File base;
     protected Set<String> namespaces;
     protected Map<String,FileEntry> fileMap;
+    private volatile DescriptorIndex<FileEntry> fileIndex;
     private final Collection<FileBundleSourceBuilder> builders;
 
     private void updateFileMap() {
         synchronized (this) {
             Set<String> tnamespaces = Sets.newHashSet();
             Map<String,FileEntry> tfileMap = new ConcurrentHashMap<String,FileEntry>();
+            DescriptorIndex<FileEntry> tfileIndex = new DescriptorIndex<>();
             for (File namespace : base.listFiles()) {
                 if (namespace.isDirectory()) {
                     tnamespaces.add(namespace.getName());
@@ -80,11 +83,13 @@ public class FileBundleSourceLoader implements SourceLoader, InternalNamespaceSo
                         entry.file = file;
                         entry.source = null;
                         tfileMap.put(entry.qualified.toLowerCase(), entry);
+                        tfileIndex.add(entry.namespace, entry.name, entry);
                     }
                 }
             }
             namespaces = tnamespaces;
             fileMap = tfileMap;
+            fileIndex = tfileIndex;
         }
     }
 
@@ -186,21 +191,20 @@ public class FileBundleSourceLoader implements SourceLoader, InternalNamespaceSo
                 ret.add(descriptor);
             }
         } else {
-            for (FileEntry entry : fileMap.values()) {
-                if (matcher.matchNamespace(entry.namespace) && matcher.matchName(entry.name)) {
-                    BundleSource<?> source = createSource(entry);
-                    if (source != null) {
-                        if (matcher.matchDescriptor(source.getDescriptor())) {
-                           ret.add(source.getDescriptor());
-                        }
-                        /*
-                        for (DefDescriptor<?> descriptor : source.getBundledParts().keySet()) {
-                            if (matcher.matchDescriptor(descriptor)) {
-                               ret.add(descriptor);
-                            }
+            // only the entries with a matching namespace and name come from the index
+            for (FileEntry entry : fileIndex.find(matcher)) {
+                BundleSource<?> source = createSource(entry);
+                if (source != null) {
+                    if (matcher.matchDescriptor(source.getDescriptor())) {
+                       ret.add(source.getDescriptor());
+                    }
+                    /*
+                    for (DefDescriptor<?> descriptor : source.getBundledParts().keySet()) {
+                        if (matcher.matchDescriptor(descriptor)) {
+                           ret.add(descriptor);
                         }
-                        */
                     }
+                    */
                 }
             }
         }
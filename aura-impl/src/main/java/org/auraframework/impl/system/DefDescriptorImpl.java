@@ -26,12 +26,22 @@ import org.auraframework.throwable.AuraRuntimeException;
 import org.auraframework.throwable.quickfix.QuickFixException;
 import org.auraframework.util.AuraTextUtil;
 import org.auraframework.util.json.Json;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
 import java.io.IOException;
 
 /**
  */
 public class DefDescriptorImpl<T extends Definition> implements DefDescriptor<T> {
     private static final long serialVersionUID = 3030118554156737974L;
+
+    /**
+     * The canonical descriptors, held weakly so that descriptors no longer in use can be collected.
+     */
+    private static final Interner<DefDescriptorImpl<?>> INTERNER = Interners.newWeakInterner();
+
     private final DefDescriptor<?> bundle;
     protected final String namespace;
     protected final String name;
@@ -243,6 +253,43 @@ public class DefDescriptorImpl<T extends Definition> implements DefDescriptor<T>
         return value;
     }
 
+    /**
+     * Get the canonical instance of a descriptor, so that equal descriptors are the same instance, and map lookups
+     * with them are decided by identity rather than by comparing names.
+     *
+     * Descriptors are equal ignoring case, but keep the case they were created with, so the canonical instance is
+     * only returned when it is spelt the same way. A descriptor spelt another way is returned as it is.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Definition> DefDescriptor<T> intern(DefDescriptor<T> descriptor) {
+        if (!(descriptor instanceof DefDescriptorImpl)) {
+            return descriptor;
+        }
+        DefDescriptorImpl<?> canonical = INTERNER.intern((DefDescriptorImpl<?>) descriptor);
+        if (canonical == descriptor || isSameSpelling(canonical, descriptor)) {
+            return (DefDescriptor<T>) canonical;
+        }
+        return descriptor;
+    }
+
+    private static boolean isSameSpelling(DefDescriptor<?> dd1, DefDescriptor<?> dd2) {
+        if (dd1 == dd2) {
+            return true;
+        }
+        if (dd1 == null || dd2 == null) {
+            return false;
+        }
+        return dd1.getQualifiedName().equals(dd2.getQualifiedName())
+                && isSameSpelling(dd1.getBundle(), dd2.getBundle());
+    }
+
+    /**
+     * Read descriptors as their canonical instances, so that definitions read from a registry share them.
+     */
+    protected Object readResolve() {
+        return intern(this);
+    }
+
     private int createHashCode() {
         return (bundle == null ? 0 : bundle.hashCode())
                 + AuraUtil.hashCodeLowerCase(name, namespace, prefix, defType.ordinal());
@@ -290,6 +337,13 @@ public class DefDescriptorImpl<T extends Definition> implements DefDescriptor<T>
 
     @Override
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        // the hash codes are kept, and equal descriptors have equal hash codes, so this only saves comparing names
+        if (o instanceof DefDescriptorImpl && hashCode != ((DefDescriptorImpl<?>) o).hashCode) {
+            return false;
+        }
         if (o instanceof DefDescriptor) {
             return compare(this, (DefDescriptor<?>)o) == 0;
         }
@@ -337,7 +391,7 @@ public class DefDescriptorImpl<T extends Definition> implements DefDescriptor<T>
         if (desc == null) {
             throw new AuraRuntimeException("descriptor is null");
         }
-        return new DefDescriptorImpl<>(desc, defClass, newPrefix);
+        return intern(new DefDescriptorImpl<>(desc, defClass, newPrefix));
     }
 
     /**
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.system;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+import org.auraframework.def.DescriptorFilter;
+import org.auraframework.util.text.GlobMatcher;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * An index of values by namespace and name, to find the values that match a descriptor filter without looking at
+ * every one of them.
+ *
+ * Names are kept sorted within their namespace, so a constant name is a lookup, and a name glob only looks at the
+ * names that start with the text before its first star. Namespaces and names are matched ignoring case, like the
+ * filters. Only the namespace and the name are matched: the def types of a bundle share its name, so the caller is
+ * left few values on which to check the rest of the filter.
+ *
+ * An index is filled before it is shared, and only read after that. A source that changes builds a new index and
+ * replaces the old one, the same way as its other maps.
+ *
+ * @param <V> the values, such as descriptors.
+ */
+public final class DescriptorIndex<V> {
+    private final Map<String, NavigableMap<String, List<V>>> namespaces = Maps.newHashMap();
+
+    /**
+     * Add a value, while the index is filled.
+     */
+    public void add(String namespace, String name, V value) {
+        namespaces.computeIfAbsent(toKey(namespace), k -> Maps.newTreeMap())
+                .computeIfAbsent(toKey(name), k -> Lists.newArrayListWithCapacity(1))
+                .add(value);
+    }
+
+    /**
+     * Find the values with a namespace and a name that match a filter.
+     *
+     * @param filter the filter, of which only the namespace and the name are matched.
+     * @return the values, in no particular order.
+     */
+    public List<V> find(DescriptorFilter filter) {
+        List<V> found = new ArrayList<>();
+        GlobMatcher namespaceMatch = filter.getNamespaceMatch();
+        if (namespaceMatch.isConstant()) {
+            addMatches(namespaces.get(toKey(namespaceMatch.toString())), filter.getNameMatch(), found);
+        } else {
+            for (Map.Entry<String, NavigableMap<String, List<V>>> entry : namespaces.entrySet()) {
+                if (namespaceMatch.match(entry.getKey())) {
+                    addMatches(entry.getValue(), filter.getNameMatch(), found);
+                }
+            }
+        }
+        return found;
+    }
+
+    private void addMatches(NavigableMap<String, List<V>> names, GlobMatcher nameMatch, List<V> found) {
+        if (names == null) {
+            return;
+        }
+        if (nameMatch.isConstant()) {
+            List<V> values = names.get(toKey(nameMatch.toString()));
+            if (values != null) {
+                found.addAll(values);
+            }
+            return;
+        }
+        String prefix = toKey(nameMatch.getPrefix());
+        if (!prefix.isEmpty()) {
+            names = names.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        }
+        for (Map.Entry<String, List<V>> entry : names.entrySet()) {
+            if (nameMatch.match(entry.getKey())) {
+                found.addAll(entry.getValue());
+            }
+        }
+    }
+
+    private static String toKey(String string) {
+        return string == null ? "" : string.toLowerCase();
+    }
+}
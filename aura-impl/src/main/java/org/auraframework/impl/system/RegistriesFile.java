@@ -0,0 +1,361 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.system;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.DefDescriptor.DefType;
+import org.auraframework.def.Definition;
+import org.auraframework.system.DefRegistry;
+import org.auraframework.throwable.AuraRuntimeException;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Reads and writes the precompiled registries of a component location, the ".registries" file.
+ *
+ * The file starts with a header and the definitions, each serialized on its own, and ends with an index of the
+ * registries: their def types, prefixes and namespaces, their descriptors, and where the definition of each descriptor
+ * is in the file.
+ * <pre>
+ * int magic, int version, int index offset, int CRC-32 of the definitions
+ * definitions
+ * int registry count, then for each registry:
+ *     def types, prefixes, namespaces (int count, then a UTF string for each)
+ *     int length, then the serialized list of descriptors
+ *     int offset and int length of the definition of each descriptor
+ * </pre>
+ *
+ * Reading a file only reads the index, so the registries can answer find and exists straight away. A definition is
+ * deserialized the first time it is asked for. The file is read from a buffer, which can be a mapped file, so the
+ * definitions that are never used are never read into the heap.
+ *
+ * The index and the checksum of the definitions are checked when the file is read, so that a damaged file is
+ * rejected at startup, while the sources can still be used instead, rather than when a definition is first asked for.
+ *
+ * Files written before this format, a serialized list of registries, are still read, all at once.
+ */
+public final class RegistriesFile {
+
+    /**
+     * "AURG". A serialized object stream starts with 0xACED, so it cannot be mistaken for this.
+     */
+    static final int MAGIC = 0x41555247;
+
+    /**
+     * To be changed whenever the layout of the file changes.
+     */
+    static final int VERSION = 2;
+
+    static final int HEADER_LENGTH = 16;
+
+    private RegistriesFile() {
+    }
+
+    /**
+     * Write registries to a stream. The stream is not closed.
+     */
+    public static void write(List<StaticDefRegistryImpl> registries, OutputStream out) throws IOException {
+        ByteArrayOutputStream definitions = new ByteArrayOutputStream();
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        DataOutputStream indexOut = new DataOutputStream(index);
+
+        indexOut.writeInt(registries.size());
+        for (StaticDefRegistryImpl registry : registries) {
+            List<String> defTypes = new ArrayList<>();
+            for (DefType defType : registry.getDefTypes()) {
+                defTypes.add(defType.name());
+            }
+            writeStrings(indexOut, defTypes);
+            writeStrings(indexOut, registry.getPrefixes());
+            writeStrings(indexOut, registry.getNamespaces());
+
+            List<DefDescriptor<?>> descriptors = new ArrayList<>(registry.defs.keySet());
+            byte[] serialized = serialize(descriptors);
+            indexOut.writeInt(serialized.length);
+            indexOut.write(serialized);
+
+            for (DefDescriptor<?> descriptor : descriptors) {
+                serialized = serialize(registry.defs.get(descriptor));
+                indexOut.writeInt(HEADER_LENGTH + definitions.size());
+                indexOut.writeInt(serialized.length);
+                definitions.write(serialized);
+            }
+        }
+        indexOut.flush();
+
+        byte[] definitionBytes = definitions.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(definitionBytes);
+
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.writeInt(MAGIC);
+        dataOut.writeInt(VERSION);
+        dataOut.writeInt(HEADER_LENGTH + definitionBytes.length);
+        dataOut.writeInt((int) crc.getValue());
+        dataOut.write(definitionBytes);
+        index.writeTo(dataOut);
+        dataOut.flush();
+    }
+
+    /**
+     * Read the registries in a buffer, which holds a whole file, either in this format or in the serialized list of
+     * registries that came before it.
+     *
+     * The registries keep the buffer, to read their definitions from it, so it must not be changed afterwards.
+     *
+     * @throws IOException if the file is of another version, or its index or definitions are damaged.
+     */
+    public static DefRegistry[] read(ByteBuffer buffer) throws IOException, ClassNotFoundException {
+        if (!hasMagic(buffer)) {
+            return readSerialized(buffer);
+        }
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer, 4));
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported registries file version " + version + ", expected " + VERSION);
+        }
+        int indexOffset = in.readInt();
+        if (indexOffset < HEADER_LENGTH || indexOffset > buffer.limit()) {
+            throw new IOException("Invalid registries file, index at " + indexOffset + " of " + buffer.limit());
+        }
+        int checksum = in.readInt();
+        ByteBuffer definitions = buffer.duplicate();
+        definitions.position(HEADER_LENGTH);
+        definitions.limit(indexOffset);
+        CRC32 crc = new CRC32();
+        crc.update(definitions);
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Invalid registries file, the definitions do not match their checksum");
+        }
+
+        in = new DataInputStream(new ByteBufferInputStream(buffer, indexOffset));
+        int count = in.readInt();
+        DefRegistry[] registries = new DefRegistry[count];
+        for (int i = 0; i < count; i++) {
+            Set<DefType> defTypes = EnumSet.noneOf(DefType.class);
+            for (String defType : readStrings(in)) {
+                defTypes.add(DefType.valueOf(defType));
+            }
+            Set<String> prefixes = readStrings(in);
+            Set<String> namespaces = readStrings(in);
+
+            byte[] serialized = new byte[in.readInt()];
+            in.readFully(serialized);
+            @SuppressWarnings("unchecked")
+            List<DefDescriptor<?>> descriptors = (List<DefDescriptor<?>>) deserialize(serialized);
+
+            Map<DefDescriptor<?>, int[]> positions = new LinkedHashMap<>(descriptors.size() * 4 / 3 + 1);
+            for (DefDescriptor<?> descriptor : descriptors) {
+                int offset = in.readInt();
+                int length = in.readInt();
+                if (offset < HEADER_LENGTH || length <= 0 || (long) offset + length > indexOffset) {
+                    throw new IOException("Invalid registries file, " + descriptor + " is outside of the definitions");
+                }
+                positions.put(descriptor, new int[] { offset, length });
+            }
+            registries[i] = new StaticDefRegistryImpl(defTypes, prefixes, namespaces,
+                    new LazyDefinitionMap(buffer, positions));
+        }
+        return registries;
+    }
+
+    /**
+     * @return true if the buffer starts like a file in this format, of any version.
+     */
+    public static boolean hasMagic(ByteBuffer buffer) {
+        return buffer.limit() >= 4 && buffer.getInt(0) == MAGIC;
+    }
+
+    private static DefRegistry[] readSerialized(ByteBuffer buffer) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteBufferInputStream(buffer, 0))) {
+            Object o = in.readObject();
+            if (o instanceof List) {
+                @SuppressWarnings("unchecked")
+                List<DefRegistry> l = (List<DefRegistry>) o;
+                return l.toArray(new DefRegistry[l.size()]);
+            }
+            return (DefRegistry[]) in.readObject();
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, Collection<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            out.writeUTF(string);
+        }
+    }
+
+    private static Set<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        Set<String> strings = Sets.newHashSetWithExpectedSize(count);
+        for (int i = 0; i < count; i++) {
+            strings.add(in.readUTF());
+        }
+        return strings;
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteBufferInputStream(ByteBuffer.wrap(bytes), 0))) {
+            return in.readObject();
+        }
+    }
+
+    /**
+     * The definitions of a registry, by descriptor. The descriptors come from the index, and a definition is
+     * deserialized from the buffer the first time it is asked for, and then kept.
+     */
+    private static final class LazyDefinitionMap extends AbstractMap<DefDescriptor<?>, Definition> {
+        private final ByteBuffer buffer;
+        private final Map<DefDescriptor<?>, int[]> positions;
+        private final ConcurrentMap<DefDescriptor<?>, Definition> loaded = new ConcurrentHashMap<>();
+
+        LazyDefinitionMap(ByteBuffer buffer, Map<DefDescriptor<?>, int[]> positions) {
+            this.buffer = buffer;
+            this.positions = positions;
+        }
+
+        @Override
+        public Definition get(Object key) {
+            Definition definition = loaded.get(key);
+            if (definition != null) {
+                return definition;
+            }
+            int[] position = positions.get(key);
+            if (position == null) {
+                return null;
+            }
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(position[0]);
+            slice.limit(position[0] + position[1]);
+            try (ObjectInputStream in = new ObjectInputStream(new ByteBufferInputStream(slice.slice(), 0))) {
+                definition = (Definition) in.readObject();
+            } catch (IOException | ClassNotFoundException e) {
+                throw new AuraRuntimeException("Unable to read " + key + " from registries file", e);
+            }
+            Definition existing = loaded.putIfAbsent((DefDescriptor<?>) key, definition);
+            return existing != null ? existing : definition;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return positions.containsKey(key);
+        }
+
+        @Override
+        public Set<DefDescriptor<?>> keySet() {
+            return Collections.unmodifiableSet(positions.keySet());
+        }
+
+        @Override
+        public int size() {
+            return positions.size();
+        }
+
+        @Override
+        public Set<Entry<DefDescriptor<?>, Definition>> entrySet() {
+            return new AbstractSet<Entry<DefDescriptor<?>, Definition>>() {
+                @Override
+                public Iterator<Entry<DefDescriptor<?>, Definition>> iterator() {
+                    final Iterator<DefDescriptor<?>> descriptors = positions.keySet().iterator();
+                    return new Iterator<Entry<DefDescriptor<?>, Definition>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return descriptors.hasNext();
+                        }
+
+                        @Override
+                        public Entry<DefDescriptor<?>, Definition> next() {
+                            DefDescriptor<?> descriptor = descriptors.next();
+                            return new SimpleImmutableEntry<DefDescriptor<?>, Definition>(descriptor, get(descriptor));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return positions.size();
+                }
+            };
+        }
+    }
+
+    /**
+     * Reads a buffer from a position, without moving the buffer, so that a buffer can be read by several threads.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer, int position) {
+            this.buffer = buffer.duplicate();
+            this.buffer.position(position);
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
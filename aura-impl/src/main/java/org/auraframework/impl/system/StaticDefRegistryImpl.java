@@ -36,6 +36,7 @@ public class StaticDefRegistryImpl extends DefRegistryImpl {
     private static final long serialVersionUID = 1L;
     protected final Map<DefDescriptor<?>, Definition> defs;
     private transient SourceFactory sourceFactory = null;
+    private transient volatile DescriptorIndex<DefDescriptor<?>> index;
     private String name;
 
     public StaticDefRegistryImpl(Set<DefType> defTypes, Set<String> prefixes, Set<String> namespaces,
@@ -73,7 +74,7 @@ public class StaticDefRegistryImpl extends DefRegistryImpl {
     public Set<DefDescriptor<?>> find(DescriptorFilter matcher) {
         Set<DefDescriptor<?>> ret = new HashSet<>();
 
-        for (DefDescriptor<?> key : defs.keySet()) {
+        for (DefDescriptor<?> key : getIndex().find(matcher)) {
             if (matcher.matchDescriptor(key)) {
                 ret.add(key);
             }
@@ -81,6 +82,21 @@ public class StaticDefRegistryImpl extends DefRegistryImpl {
         return ret;
     }
 
+    /**
+     * Get the index of the descriptors, built the first time it is needed, as the definitions never change.
+     */
+    private DescriptorIndex<DefDescriptor<?>> getIndex() {
+        DescriptorIndex<DefDescriptor<?>> index = this.index;
+        if (index == null) {
+            index = new DescriptorIndex<>();
+            for (DefDescriptor<?> descriptor : defs.keySet()) {
+                index.add(descriptor.getNamespace(), descriptor.getName(), descriptor);
+            }
+            this.index = index;
+        }
+        return index;
+    }
+
     @Override
     public <D extends Definition> boolean exists(DefDescriptor<D> descriptor) {
         return defs.containsKey(descriptor);
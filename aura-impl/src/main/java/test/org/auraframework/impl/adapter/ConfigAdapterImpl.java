@@ -58,6 +58,7 @@ import org.auraframework.impl.util.AuraImplFiles;
 import org.auraframework.impl.util.BrowserInfo;
 import org.auraframework.instance.BaseComponent;
 import org.auraframework.modules.ModuleNamespaceAlias;
+import org.auraframework.service.CachingService;
 import org.auraframework.service.ContextService;
 import org.auraframework.service.CSPInliningService;
 import org.auraframework.service.DefinitionService;
@@ -178,6 +179,9 @@ public class ConfigAdapterImpl implements ConfigAdapter {
     @Inject
     private ContextService contextService;
 
+    @Inject
+    private CachingService cachingService;
+
     @Inject
     private FileMonitor fileMonitor;
 
@@ -673,6 +677,7 @@ public class ConfigAdapterImpl implements ConfigAdapter {
                 CANONICAL_IMMUTABLE = ImmutableSortedSet.copyOf(CANONICAL_NAMESPACES.keySet());
             }
         }
+        invalidateAccessChecks();
     }
 
     @Override
@@ -682,6 +687,7 @@ public class ConfigAdapterImpl implements ConfigAdapter {
         synchronized (CANONICAL_NAMESPACES) {
             CANONICAL_IMMUTABLE = ImmutableSortedSet.copyOf(CANONICAL_NAMESPACES.keySet());
         }
+        invalidateAccessChecks();
     }
 
     @Override
@@ -697,6 +703,7 @@ public class ConfigAdapterImpl implements ConfigAdapter {
                 PRIVILEGED_IMMUTABLE = ImmutableSortedSet.copyOf(PRIVILEGED_NAMESPACES.keySet());
             }
         }
+        invalidateAccessChecks();
     }
 
     @Override
@@ -705,6 +712,16 @@ public class ConfigAdapterImpl implements ConfigAdapter {
         synchronized (PRIVILEGED_NAMESPACES) {
             PRIVILEGED_IMMUTABLE = ImmutableSortedSet.copyOf(PRIVILEGED_NAMESPACES.keySet());
         }
+        invalidateAccessChecks();
+    }
+
+    /**
+     * Drop the shared access checks, which may depend on the namespaces that were changed.
+     */
+    private void invalidateAccessChecks() {
+        if (cachingService != null) {
+            cachingService.invalidateAccessChecks();
+        }
     }
 
     @Override
@@ -870,6 +887,21 @@ public class ConfigAdapterImpl implements ConfigAdapter {
         return true;
     }
 
+    @Override
+    public boolean isStreamingDefinitionsEnabled() {
+        return Boolean.parseBoolean(System.getProperty("aura.streamingDefinitions"));
+    }
+
+    @Override
+    public boolean isPrecompressedResourcesEnabled() {
+        return Boolean.parseBoolean(System.getProperty("aura.precompressedResources"));
+    }
+
+    @Override
+    public boolean isActionFlushEnabled() {
+        return Boolean.parseBoolean(System.getProperty("aura.actions.flush"));
+    }
+
     @Override
     public Set<String> getModuleNamespaces() {
         return ImmutableSet.copyOf(this.moduleNamespaces);
@@ -36,7 +36,9 @@ import org.auraframework.def.HelperDef;
 import org.auraframework.def.StyleDef;
 import org.auraframework.impl.system.DefDescriptorImpl;
 import org.auraframework.service.CachingService;
+import org.auraframework.system.AccessCheckKey;
 import org.auraframework.system.DependencyEntry;
+import org.auraframework.system.DependencyKey;
 import org.auraframework.system.SourceListener;
 import org.auraframework.system.SourceListener.SourceMonitorEvent;
 import org.junit.Test;
@@ -208,19 +210,22 @@ public class CachingServiceImplTest extends AuraImplTestCase {
 
     @Test
     public void testNotifyDependentSourceChange_InvalidatesAllCachedDependencies() {
-        Set<String> keys = Sets.newHashSet(
-                getAuraTestingUtil().getNonce("some:descriptor"),
-                getAuraTestingUtil().getNonce("other:descriptor"),
-                getAuraTestingUtil().getNonce("some:extra"));
+        Set<DependencyKey> keys = Sets.newHashSet(
+                new DependencyKey(null, definitionService.getDefDescriptor(
+                        getAuraTestingUtil().getNonce("some:descriptor"), ComponentDef.class), false),
+                new DependencyKey(null, definitionService.getDefDescriptor(
+                        getAuraTestingUtil().getNonce("other:descriptor"), ComponentDef.class), false),
+                new DependencyKey(null, definitionService.getDefDescriptor(
+                        getAuraTestingUtil().getNonce("some:extra"), ComponentDef.class), false));
 
         CachingServiceImpl cachingService = new CachingServiceImpl();
         cachingService.setLoggingAdapter(loggingAdapter);
         cachingService.initializeCaches();
         testNotifyDependentSourceChange_InvalidatesAllCachedValues(cachingService,
                 cachingService.getDepsCache(),
-                new Function<String, DependencyEntry>() {
+                new Function<DependencyKey, DependencyEntry>() {
                     @Override
-                    public DependencyEntry apply(String key) {
+                    public DependencyEntry apply(DependencyKey key) {
                         return new DependencyEntry(null);
                     }
                 }, keys);
@@ -393,4 +398,83 @@ public class CachingServiceImplTest extends AuraImplTestCase {
                     }
                 }, keys);
     }
+
+    @Test
+    public void testNotifyDependentSourceChange_InvalidatesOnlyDependentsIfDescriptorChanged() {
+        DefDescriptor<?> source = definitionService.getDefDescriptor(
+                getAuraTestingUtil().getNonce("markup://some:changed"),
+                ComponentDef.class);
+        DefDescriptor<?> other = definitionService.getDefDescriptor(
+                getAuraTestingUtil().getNonce("markup://some:other"),
+                ComponentDef.class);
+
+        DependencyKey dependentKey = new DependencyKey("dependent", source, false);
+        DependencyKey unrelatedKey = new DependencyKey("unrelated", other, false);
+
+        CachingServiceImpl cachingService = new CachingServiceImpl();
+        cachingService.setLoggingAdapter(loggingAdapter);
+        cachingService.initializeCaches();
+        cachingService.getDepsCache().put(dependentKey,
+                new DependencyEntry("dependent", Sets.<DefDescriptor<?>>newHashSet(source, other), Lists.newArrayList()));
+        cachingService.getDepsCache().put(unrelatedKey,
+                new DependencyEntry("unrelated", Sets.<DefDescriptor<?>>newHashSet(other), Lists.newArrayList()));
+        cachingService.getAltStringsCache().put("dependent@markup://some:app@JS:MIN:dependent", "dependent");
+        cachingService.getAltStringsCache().put("unrelated@markup://some:app@JS:MIN:unrelated", "unrelated");
+        cachingService.getDescriptorFilterCache().put("some:*", Collections.<DefDescriptor<?>>emptySet());
+
+        cachingService.notifyDependentSourceChange(Collections.<WeakReference<SourceListener>> emptySet(),
+                source, SourceMonitorEvent.CHANGED, null);
+
+        assertNull(cachingService.getDepsCache().getIfPresent(dependentKey));
+        assertNotNull(cachingService.getDepsCache().getIfPresent(unrelatedKey));
+        assertNull(cachingService.getAltStringsCache().getIfPresent("dependent@markup://some:app@JS:MIN:dependent"));
+        assertEquals("unrelated", cachingService.getAltStringsCache().getIfPresent("unrelated@markup://some:app@JS:MIN:unrelated"));
+        assertNotNull(cachingService.getDescriptorFilterCache().getIfPresent("some:*"));
+    }
+
+    @Test
+    public void testNotifyDependentSourceChange_InvalidatesAllDependenciesIfDescriptorCreated() {
+        DefDescriptor<?> source = definitionService.getDefDescriptor(
+                getAuraTestingUtil().getNonce("markup://some:created"),
+                ComponentDef.class);
+
+        DependencyKey unrelatedKey = new DependencyKey("unrelated", source, false);
+
+        CachingServiceImpl cachingService = new CachingServiceImpl();
+        cachingService.setLoggingAdapter(loggingAdapter);
+        cachingService.initializeCaches();
+        cachingService.getDepsCache().put(unrelatedKey,
+                new DependencyEntry("unrelated", Sets.<DefDescriptor<?>>newHashSet(), Lists.newArrayList()));
+        cachingService.getAltStringsCache().put("unrelated@markup://some:app@JS:MIN:unrelated", "unrelated");
+
+        cachingService.notifyDependentSourceChange(Collections.<WeakReference<SourceListener>> emptySet(),
+                source, SourceMonitorEvent.CREATED, null);
+
+        assertNull(cachingService.getDepsCache().getIfPresent(unrelatedKey));
+        assertNull(cachingService.getAltStringsCache().getIfPresent("unrelated@markup://some:app@JS:MIN:unrelated"));
+    }
+
+    @Test
+    public void testNotifyDependentSourceChange_InvalidatesAllAccessChecksIfDescriptorChanged() {
+        DefDescriptor<?> source = definitionService.getDefDescriptor(
+                getAuraTestingUtil().getNonce("markup://some:changed"),
+                ComponentDef.class);
+        DefDescriptor<?> other = definitionService.getDefDescriptor(
+                getAuraTestingUtil().getNonce("markup://other:unrelated"),
+                ComponentDef.class);
+        AccessCheckKey sourceKey = new AccessCheckKey("other", null, source, false);
+        AccessCheckKey otherKey = new AccessCheckKey("some", null, other, false);
+
+        CachingServiceImpl cachingService = new CachingServiceImpl();
+        cachingService.setLoggingAdapter(loggingAdapter);
+        cachingService.initializeCaches();
+        cachingService.getAccessCheckCache().put(sourceKey, Boolean.FALSE);
+        cachingService.getAccessCheckCache().put(otherKey, Boolean.TRUE);
+
+        cachingService.notifyDependentSourceChange(Collections.<WeakReference<SourceListener>> emptySet(),
+                source, SourceMonitorEvent.CHANGED, null);
+
+        assertNull(cachingService.getAccessCheckCache().getIfPresent(sourceKey));
+        assertNull(cachingService.getAccessCheckCache().getIfPresent(otherKey));
+    }
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.adapter.format.json;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import org.auraframework.def.ActionDef;
+import org.auraframework.def.TypeDef;
+import org.auraframework.def.ValueDef;
+import org.auraframework.impl.adapter.format.json.MessageHandlerProvider.ActionRequest;
+import org.auraframework.impl.java.controller.BoundParams;
+import org.auraframework.impl.java.controller.JavaActionDef;
+import org.auraframework.util.json.JsonStreamReader.JsonParseException;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.Lists;
+
+public class MessageHandlerProviderTest extends UnitTestCase {
+
+    private List<ActionRequest> read(String message) {
+        return new MessageHandlerProvider(descriptor -> null).read(new StringReader(message));
+    }
+
+    /**
+     * A java action with an integer parameter 'count', that fails to convert anything but numbers.
+     */
+    private ActionDef getCountActionDef() throws Exception {
+        TypeDef type = Mockito.mock(TypeDef.class);
+        Mockito.when(type.valueOf(Mockito.any())).thenAnswer(invocation -> {
+            Object value = invocation.getArguments()[0];
+            if (!(value instanceof BigDecimal)) {
+                throw new IllegalArgumentException("Not a number: " + value);
+            }
+            return ((BigDecimal) value).intValue();
+        });
+        ValueDef count = Mockito.mock(ValueDef.class);
+        Mockito.when(count.getName()).thenReturn("count");
+        Mockito.when(count.getType()).thenReturn(type);
+        JavaActionDef def = Mockito.mock(JavaActionDef.class);
+        Mockito.when(def.getParameters()).thenReturn(Lists.newArrayList(count));
+        return def;
+    }
+
+    private ActionRequest readCountAction(String action) throws Exception {
+        ActionDef def = getCountActionDef();
+        List<ActionRequest> requests = new MessageHandlerProvider(
+                descriptor -> "java://test/ACTION$count".equals(descriptor) ? def : null)
+                .read(new StringReader("{'actions':[" + action + "]}"));
+        assertEquals(1, requests.size());
+        assertSame(def, requests.get(0).def);
+        return requests.get(0);
+    }
+
+    @Test
+    public void testReadsActionsInOrder() {
+        List<ActionRequest> requests = read("{'actions':["
+                + "{'id':'1;a','descriptor':'java://test/ACTION$first','callingDescriptor':'markup://test:cmp',"
+                + "'version':'1.0','params':{'count':3,'names':['a','b'],'record':{'name':'x'}}},"
+                + "{'descriptor':'java://test/ACTION$second','id':'2;a','unknown':{'ignored':true}}]}");
+
+        assertEquals(2, requests.size());
+        ActionRequest first = requests.get(0);
+        assertEquals("java://test/ACTION$first", first.descriptor);
+        assertEquals("1;a", first.id);
+        assertEquals("markup://test:cmp", first.callingDescriptor);
+        assertEquals("1.0", first.version);
+        assertNull(first.def);
+        Map<String, Object> params = first.params;
+        assertEquals(new BigDecimal(3), params.get("count"));
+        assertEquals(Lists.newArrayList("a", "b"), params.get("names"));
+        assertEquals("x", ((Map<?, ?>) params.get("record")).get("name"));
+
+        ActionRequest second = requests.get(1);
+        assertEquals("java://test/ACTION$second", second.descriptor);
+        assertEquals("2;a", second.id);
+        assertNull(second.params);
+        assertNull(second.callingDescriptor);
+    }
+
+    @Test
+    public void testBindsParamsAfterDescriptor() throws Exception {
+        ActionRequest request = readCountAction(
+                "{'descriptor':'java://test/ACTION$count','params':{'count':3,'other':{'name':'x'}}}");
+
+        BoundParams params = (BoundParams) request.params;
+        assertEquals(Integer.valueOf(3), params.get("count"));
+        assertTrue(params.isBound("count"));
+        assertEquals("x", ((Map<?, ?>) params.get("other")).get("name"));
+        assertFalse(params.isBound("other"));
+    }
+
+    @Test
+    public void testKeepsParamThatFailsToBind() throws Exception {
+        ActionRequest request = readCountAction("{'descriptor':'java://test/ACTION$count','params':{'count':'x'}}");
+
+        BoundParams params = (BoundParams) request.params;
+        assertEquals("x", params.get("count"));
+        assertFalse(params.isBound("count"));
+    }
+
+    @Test
+    public void testKeepsParamsBeforeDescriptor() throws Exception {
+        ActionRequest request = readCountAction("{'params':{'count':3},'descriptor':'java://test/ACTION$count'}");
+
+        assertFalse(request.params instanceof BoundParams);
+        assertEquals(new BigDecimal(3), request.params.get("count"));
+    }
+
+    @Test
+    public void testMessageWithoutActions() {
+        assertTrue(read("{'other':[1,2]}").isEmpty());
+    }
+
+    @Test
+    public void testRejectsMessageThatIsNotAnObject() {
+        try {
+            read("[{'descriptor':'java://test/ACTION$first'}]");
+            fail("Expected a parse error");
+        } catch (JsonParseException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("expected an object"));
+        }
+    }
+
+    @Test
+    public void testRejectsActionThatIsNotAnObject() {
+        try {
+            read("{'actions':['java://test/ACTION$first']}");
+            fail("Expected a parse error");
+        } catch (JsonParseException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("each action must be an object"));
+        }
+    }
+
+    @Test
+    public void testRejectsParamsThatAreNotAnObject() {
+        try {
+            read("{'actions':[{'descriptor':'java://test/ACTION$first','params':[1]}]}");
+            fail("Expected a parse error");
+        } catch (JsonParseException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("params must be an object"));
+        }
+    }
+}
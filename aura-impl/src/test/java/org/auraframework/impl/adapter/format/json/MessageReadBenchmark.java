@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.adapter.format.json;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.auraframework.def.ActionDef;
+import org.auraframework.def.TypeDef;
+import org.auraframework.def.ValueDef;
+import org.auraframework.impl.adapter.format.json.MessageHandlerProvider.ActionRequest;
+import org.auraframework.impl.java.controller.JavaActionDef;
+import org.auraframework.util.json.JsonReader;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Compare reading an action message into maps and converting the params when the actions run, the way it used to be
+ * done, with reading it into action requests that bind the params to their parameter types as they are read.
+ *
+ * The message is a batch of record saves, each with a list of records as its params, which the parameter type copies
+ * into arrays. Run with the gc profiler to see the allocation per message, e.g.
+ * <pre>
+ * java -cp ... org.openjdk.jmh.Main MessageReadBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MessageReadBenchmark {
+    @Param({ "10", "100" })
+    private int actions;
+
+    @Param({ "1", "50" })
+    private int records;
+
+    private String message;
+
+    private ActionDef saveDef;
+
+    private TypeDef recordsType;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder("{\"actions\":[");
+        for (int i = 0; i < actions; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"id\":\"").append(i).append(";a\",\"descriptor\":\"apex://RecordController/ACTION$save\",")
+                    .append("\"callingDescriptor\":\"markup://c:recordList\",\"params\":{\"records\":[");
+            for (int j = 0; j < records; j++) {
+                if (j > 0) {
+                    sb.append(',');
+                }
+                sb.append("{\"Id\":\"a0").append(j).append("\",\"Name\":\"Record ").append(j)
+                        .append("\",\"Amount\":").append(j * 100).append(",\"Active\":true}");
+            }
+            sb.append("]}}");
+        }
+        message = sb.append("]}").toString();
+
+        recordsType = Mockito.mock(TypeDef.class);
+        try {
+            Mockito.when(recordsType.valueOf(Mockito.any())).thenAnswer(invocation -> {
+                List<Object[]> converted = Lists.newArrayList();
+                for (Object record : (List<?>) invocation.getArguments()[0]) {
+                    converted.add(((Map<?, ?>) record).values().toArray());
+                }
+                return converted;
+            });
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        ValueDef parameter = Mockito.mock(ValueDef.class);
+        Mockito.when(parameter.getName()).thenReturn("records");
+        Mockito.when(parameter.getType()).thenReturn(recordsType);
+        saveDef = Mockito.mock(JavaActionDef.class);
+        Mockito.when(saveDef.getParameters()).thenReturn(Lists.newArrayList(parameter));
+    }
+
+    @Benchmark
+    public void readMaps(Blackhole bh) throws Exception {
+        Map<?, ?> map = (Map<?, ?>) new JsonReader().read(new StringReader(message));
+        for (Object action : (List<?>) map.get("actions")) {
+            Map<?, ?> actionMap = (Map<?, ?>) action;
+            bh.consume(actionMap.get("descriptor"));
+            bh.consume(actionMap.get("id"));
+            bh.consume(actionMap.get("callingDescriptor"));
+            bh.consume(recordsType.valueOf(((Map<?, ?>) actionMap.get("params")).get("records")));
+        }
+    }
+
+    @Benchmark
+    public void readRequests(Blackhole bh) {
+        MessageHandlerProvider provider = new MessageHandlerProvider(descriptor -> saveDef);
+        for (ActionRequest request : provider.read(new StringReader(message))) {
+            bh.consume(request.descriptor);
+            bh.consume(request.id);
+            bh.consume(request.callingDescriptor);
+            bh.consume(request.params.get("records"));
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.auraframework.adapter.LoggingAdapter;
+import org.auraframework.cache.Cache;
+import org.auraframework.system.LoggingContext;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+public class CaffeineCacheImplTest extends UnitTestCase {
+    @Mock
+    private LoggingAdapter loggingAdapter;
+
+    @Mock
+    private LoggingContext loggingContext;
+
+    private <K, T> Cache<K, T> getCache() {
+        com.github.benmanes.caffeine.cache.Cache<K, T> backingCache = Caffeine.newBuilder().recordStats().build();
+        return new CaffeineCacheImpl<>(backingCache, loggingAdapter);
+    }
+
+    @Test
+    public void testBuilderWithFrequencyBasedEvictionBuildsCaffeineCache() {
+        Cache<String, String> cache = new CacheImpl.Builder<String, String>()
+                .setFrequencyBasedEviction(true)
+                .build();
+
+        assertTrue(cache instanceof CaffeineCacheImpl);
+    }
+
+    @Test
+    public void testBuilderDefaultBuildsGuavaCache() {
+        Cache<String, String> cache = new CacheImpl.Builder<String, String>().build();
+
+        assertTrue(cache instanceof CacheImpl);
+    }
+
+    @Test
+    public void testPutAndGetIfPresent() {
+        Cache<String, String> cache = getCache();
+
+        cache.put("key", "value");
+
+        assertEquals("value", cache.getIfPresent("key"));
+        assertNull(cache.getIfPresent("other"));
+    }
+
+    @Test
+    public void testGetLoadsOnce() throws Exception {
+        Cache<String, String> cache = getCache();
+        @SuppressWarnings("unchecked")
+        Callable<String> loader = Mockito.mock(Callable.class);
+        Mockito.when(loader.call()).thenReturn("value");
+
+        assertEquals("value", cache.get("key", loader));
+        assertEquals("value", cache.get("key", loader));
+        Mockito.verify(loader, Mockito.times(1)).call();
+    }
+
+    @Test
+    public void testGetWrapsCheckedException() {
+        Cache<String, String> cache = getCache();
+        final IOException expected = new IOException("bad");
+
+        try {
+            cache.get("key", new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    throw expected;
+                }
+            });
+            fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertSame(expected, e.getCause());
+        }
+    }
+
+    @Test
+    public void testGetWrapsUncheckedException() throws Exception {
+        Cache<String, String> cache = getCache();
+        final IllegalStateException expected = new IllegalStateException("bad");
+
+        try {
+            cache.get("key", new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    throw expected;
+                }
+            });
+            fail("Expected UncheckedExecutionException");
+        } catch (UncheckedExecutionException e) {
+            assertSame(expected, e.getCause());
+        }
+    }
+
+    @Test
+    public void testGetRejectsNullValue() throws Exception {
+        Cache<String, String> cache = getCache();
+
+        try {
+            cache.get("key", new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return null;
+                }
+            });
+            fail("Expected InvalidCacheLoadException");
+        } catch (InvalidCacheLoadException expected) {
+        }
+        assertNull(cache.getIfPresent("key"));
+    }
+
+    @Test
+    public void testInvalidatePartial() {
+        Cache<String, String> cache = getCache();
+        cache.put("someKey", "someValue");
+        cache.put("someOtherKey", "someValue");
+        cache.put("unmatchedKey", "someValue");
+
+        cache.invalidatePartial("some");
+
+        assertEquals(Sets.newHashSet("unmatchedKey"), cache.getKeySet());
+    }
+
+    @Test
+    public void testInvalidatePartial_EmptyString() {
+        Cache<String, String> cache = getCache();
+        cache.put("someKey", "someValue");
+
+        cache.invalidatePartial("");
+
+        assertTrue(cache.getKeySet().isEmpty());
+    }
+
+    @Test
+    public void testMaximumWeightEvicts() {
+        Cache<String, String> cache = new CacheImpl.Builder<String, String>()
+                .setFrequencyBasedEviction(true)
+                .setSoftValues(false)
+                .setMaximumWeight(10, (key, value) -> value.length())
+                .build();
+        com.github.benmanes.caffeine.cache.Cache<?, ?> backingCache =
+                (com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getPrivateUnderlyingCache();
+
+        cache.put("a", "12345678");
+        cache.put("b", "12345678");
+        backingCache.cleanUp();
+
+        assertEquals(1, backingCache.estimatedSize());
+    }
+
+    @Test
+    public void testLogCacheStatusReportsCaffeineStats() throws Exception {
+        Cache<String, String> cache = getCache();
+        Mockito.when(loggingAdapter.getLoggingContext()).thenReturn(loggingContext);
+        cache.put("key", "value");
+        cache.getIfPresent("key");
+        cache.getIfPresent("missing");
+
+        cache.logCacheStatus("test ");
+
+        Mockito.verify(loggingContext, Mockito.times(1)).logCacheInfo("(unnamed)", "test hit rate=0.500", 1L,
+                new CacheStats(1, 1, 0, 0, 0, 0));
+    }
+}
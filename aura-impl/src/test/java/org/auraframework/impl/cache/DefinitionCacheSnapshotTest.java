@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.util.Map;
+
+import javax.management.AttributeList;
+
+import org.auraframework.cache.Cache;
+import org.auraframework.def.ComponentDef;
+import org.auraframework.def.ControllerDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.Definition;
+import org.auraframework.def.DescriptionDef;
+import org.auraframework.impl.documentation.DescriptionDefImpl;
+import org.auraframework.impl.system.DefDescriptorImpl;
+import org.auraframework.system.BundleSource;
+import org.auraframework.system.DefRegistry;
+import org.auraframework.system.DependencyEntry;
+import org.auraframework.system.DependencyKey;
+import org.auraframework.system.RegistrySet;
+import org.auraframework.system.Source;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class DefinitionCacheSnapshotTest extends UnitTestCase {
+
+    private final DefDescriptor<ComponentDef> component = new DefDescriptorImpl<>("markup", "snapshot", "cmp",
+            ComponentDef.class);
+
+    private final DefDescriptor<ControllerDef> controller = new DefDescriptorImpl<>("js", "snapshot", "cmp",
+            ControllerDef.class);
+
+    private final DefDescriptor<ComponentDef> other = new DefDescriptorImpl<>("markup", "snapshot", "other",
+            ComponentDef.class);
+
+    private final DependencyKey key = new DependencyKey("uid", component, false);
+
+    private final Map<DefDescriptor<?>, String> hashes = Maps.newHashMap();
+
+    private File directory;
+
+    private RegistrySet registries;
+
+    private DefRegistry registry;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        directory = Files.createTempDirectory("snapshot").toFile();
+        hashes.put(component, "markup-1");
+        hashes.put(controller, "js-1");
+        hashes.put(other, "other-1");
+
+        registry = Mockito.mock(DefRegistry.class);
+        Mockito.when(registry.isCacheable()).thenReturn(true);
+        Mockito.when(registry.getSource(Matchers.any())).thenAnswer(invocation -> {
+            DefDescriptor<?> descriptor = (DefDescriptor<?>) invocation.getArguments()[0];
+            if (descriptor.equals(component)) {
+                Map<DefDescriptor<?>, Source<?>> parts = Maps.newHashMap();
+                parts.put(component, getSource(component));
+                parts.put(controller, getSource(controller));
+                BundleSource<?> bundle = Mockito.mock(BundleSource.class);
+                Mockito.when(bundle.getBundledParts()).thenReturn(parts);
+                return bundle;
+            }
+            return getSource(descriptor);
+        });
+        registries = Mockito.mock(RegistrySet.class);
+        Mockito.when(registries.getRegistryFor(Matchers.any())).thenReturn(registry);
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+        super.tearDown();
+    }
+
+    private Source<?> getSource(DefDescriptor<?> descriptor) {
+        Source<?> source = Mockito.mock(Source.class);
+        Mockito.when(source.getHash()).thenReturn(hashes.get(descriptor));
+        return source;
+    }
+
+    private Cache<DefDescriptor<?>, Optional<? extends Definition>> getDefsCache() {
+        return new CacheImpl.Builder<DefDescriptor<?>, Optional<? extends Definition>>().setSoftValues(false).build();
+    }
+
+    private Cache<DependencyKey, DependencyEntry> getDepsCache() {
+        return new CacheImpl.Builder<DependencyKey, DependencyEntry>().setSoftValues(false).build();
+    }
+
+    private Definition getDefinition() {
+        DescriptionDefImpl.Builder builder = new DescriptionDefImpl.Builder();
+        builder.setDescriptor(new DefDescriptorImpl<>("markup", "snapshot", "description", DescriptionDef.class));
+        builder.setName("description");
+        return builder.build();
+    }
+
+    private DefinitionCacheSnapshot getSnapshot(String version) {
+        return new DefinitionCacheSnapshot(new File(directory, "defs"), version);
+    }
+
+    /**
+     * Save a cache holding both components, with an entry for the first one.
+     */
+    private int save() {
+        Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache = getDefsCache();
+        defsCache.put(component, Optional.of(getDefinition()));
+        defsCache.put(other, Optional.of(getDefinition()));
+        defsCache.put(new DefDescriptorImpl<>("markup", "snapshot", "missing", ComponentDef.class), Optional.absent());
+        Cache<DependencyKey, DependencyEntry> depsCache = getDepsCache();
+        depsCache.put(key, new DependencyEntry("uid", ImmutableSet.of(other, component), Lists.newArrayList()));
+
+        return getSnapshot("1").save(registries, defsCache, depsCache);
+    }
+
+    @Test
+    public void testRestoresUnchanged() {
+        assertEquals(2, save());
+        Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache = getDefsCache();
+        Cache<DependencyKey, DependencyEntry> depsCache = getDepsCache();
+
+        assertEquals(2, getSnapshot("1").restore(registries, defsCache, depsCache));
+
+        assertEquals(ImmutableSet.of(component, other), defsCache.getKeySet());
+        assertTrue(defsCache.getIfPresent(component).get() instanceof DescriptionDef);
+        DependencyEntry de = depsCache.getIfPresent(key);
+        assertEquals("uid", de.uid);
+        assertEquals(Lists.newArrayList(other, component), Lists.newArrayList(de.dependencies));
+    }
+
+    @Test
+    public void testSkipsChangedBundlePart() {
+        save();
+        hashes.put(controller, "js-2");
+        Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache = getDefsCache();
+        Cache<DependencyKey, DependencyEntry> depsCache = getDepsCache();
+
+        assertEquals(1, getSnapshot("1").restore(registries, defsCache, depsCache));
+
+        assertEquals(ImmutableSet.of(other), defsCache.getKeySet());
+        assertTrue(depsCache.getKeySet().isEmpty());
+    }
+
+    @Test
+    public void testSkipsUnhashableSource() {
+        hashes.remove(other);
+        assertEquals(1, save());
+        Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache = getDefsCache();
+        Cache<DependencyKey, DependencyEntry> depsCache = getDepsCache();
+
+        assertEquals(1, getSnapshot("1").restore(registries, defsCache, depsCache));
+
+        assertEquals(ImmutableSet.of(component), defsCache.getKeySet());
+        assertTrue(depsCache.getKeySet().isEmpty());
+    }
+
+    @Test
+    public void testIgnoresOtherVersion() {
+        save();
+        Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache = getDefsCache();
+
+        assertEquals(0, getSnapshot("2").restore(registries, defsCache, getDepsCache()));
+
+        assertTrue(defsCache.getKeySet().isEmpty());
+    }
+
+    @Test
+    public void testRestoreWithoutSnapshot() {
+        assertEquals(0, getSnapshot("1").restore(registries, getDefsCache(), getDepsCache()));
+    }
+
+    @Test
+    public void testSkipsSourceThatIsNull() {
+        Mockito.doReturn(null).when(registry).getSource(other);
+        assertEquals(1, save());
+        Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache = getDefsCache();
+        Cache<DependencyKey, DependencyEntry> depsCache = getDepsCache();
+
+        assertEquals(1, getSnapshot("1").restore(registries, defsCache, depsCache));
+
+        assertEquals(ImmutableSet.of(component), defsCache.getKeySet());
+        assertTrue(depsCache.getKeySet().isEmpty());
+    }
+
+    @Test
+    public void testSkipsSourceThatCantBeRead() {
+        Mockito.doThrow(new UnsupportedOperationException()).when(registry).getSource(other);
+        assertEquals(1, save());
+        Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache = getDefsCache();
+        Cache<DependencyKey, DependencyEntry> depsCache = getDepsCache();
+
+        assertEquals(1, getSnapshot("1").restore(registries, defsCache, depsCache));
+
+        assertEquals(ImmutableSet.of(component), defsCache.getKeySet());
+        assertTrue(depsCache.getKeySet().isEmpty());
+    }
+
+    @Test
+    public void testLeavesOutRegistryThatIsNotCacheable() {
+        DefRegistry compound = Mockito.mock(DefRegistry.class);
+        Mockito.when(compound.getSource(Matchers.any())).thenThrow(new UnsupportedOperationException());
+        Mockito.when(registries.getRegistryFor(other)).thenReturn(compound);
+        assertEquals(1, save());
+        Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache = getDefsCache();
+        Cache<DependencyKey, DependencyEntry> depsCache = getDepsCache();
+
+        assertEquals(1, getSnapshot("1").restore(registries, defsCache, depsCache));
+
+        assertEquals(ImmutableSet.of(component), defsCache.getKeySet());
+        assertEquals(Lists.newArrayList(other, component), Lists.newArrayList(depsCache.getIfPresent(key).dependencies));
+    }
+
+    @Test
+    public void testRefusesClassesOutsideOfSnapshot() throws Exception {
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(new File(directory, "defs")))) {
+            out.writeObject(new AttributeList());
+        }
+
+        assertEquals(0, getSnapshot("1").restore(registries, getDefsCache(), getDepsCache()));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.auraframework.def.ComponentDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.RequiredVersionDef;
+import org.auraframework.impl.system.DefDescriptorImpl;
+import org.auraframework.system.AccessCheckKey;
+import org.auraframework.system.DependencyKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Compare building and looking up the dependency and access check keys as strings, the way they used to be built,
+ * with the composite keys.
+ *
+ * Run with the gc profiler to see the allocation per lookup, e.g.
+ * <pre>
+ * java -cp ... org.openjdk.jmh.Main DependencyKeyBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DependencyKeyBenchmark {
+    private static final int SIZE = 1000;
+
+    private static final String UID = "Tn0sFhh7Sm9GyHdk9i_N2g";
+
+    private final Map<String, Object> stringDeps = Maps.newHashMap();
+
+    private final Map<DependencyKey, Object> keyDeps = Maps.newHashMap();
+
+    private final Map<String, Object> stringAccess = Maps.newHashMap();
+
+    private final Map<AccessCheckKey, Object> keyAccess = Maps.newHashMap();
+
+    private DefDescriptor<ComponentDef> descriptor;
+
+    private DefDescriptor<RequiredVersionDef> child;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < SIZE; i++) {
+            DefDescriptor<ComponentDef> desc = new DefDescriptorImpl<>("markup", "bench", "cmp" + i,
+                    ComponentDef.class);
+            DefDescriptor<RequiredVersionDef> sub = new DefDescriptorImpl<>(null, "bench", "ns" + i,
+                    RequiredVersionDef.class, desc);
+            stringDeps.put(getStringKey(UID, desc), desc);
+            keyDeps.put(new DependencyKey(UID, desc, false), desc);
+            stringAccess.put(getStringAccessKey("bench", desc, sub), desc);
+            keyAccess.put(new AccessCheckKey("bench", desc, sub, false), desc);
+            descriptor = desc;
+            child = sub;
+        }
+    }
+
+    private static String getStringKey(String uid, DefDescriptor<?> desc) {
+        return uid + "/" + desc.getDefType() + ":" + desc.getQualifiedName().toLowerCase();
+    }
+
+    private static String getStringAccessKey(String namespace, DefDescriptor<?> parent, DefDescriptor<?> desc) {
+        return namespace + ">" + parent + "." + desc + "@" + desc.getDefType();
+    }
+
+    @Benchmark
+    public Object stringDependencyKey() {
+        return stringDeps.get(getStringKey(UID, descriptor));
+    }
+
+    @Benchmark
+    public Object compositeDependencyKey() {
+        return keyDeps.get(new DependencyKey(UID, descriptor, false));
+    }
+
+    @Benchmark
+    public Object stringAccessCheckKey() {
+        return stringAccess.get(getStringAccessKey("bench", descriptor, child));
+    }
+
+    @Benchmark
+    public Object compositeAccessCheckKey() {
+        return keyAccess.get(new AccessCheckKey("bench", descriptor, child, false));
+    }
+}
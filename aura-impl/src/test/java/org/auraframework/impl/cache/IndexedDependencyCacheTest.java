@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.Definition;
+import org.auraframework.system.DependencyEntry;
+import org.auraframework.system.DependencyKey;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class IndexedDependencyCacheTest extends UnitTestCase {
+
+    private final DefDescriptor<?> shared = Mockito.mock(DefDescriptor.class);
+
+    private final DefDescriptor<?> onlyA = Mockito.mock(DefDescriptor.class);
+
+    private final DefDescriptor<?> onlyB = Mockito.mock(DefDescriptor.class);
+
+    private final DependencyKey keyA = new DependencyKey("uidA", onlyA, false);
+
+    private final DependencyKey latestA = new DependencyKey(null, onlyA, false);
+
+    private final DependencyKey keyB = new DependencyKey("uidB", onlyB, false);
+
+    private IndexedDependencyCache getCache() {
+        return new IndexedDependencyCache(new CacheImpl.Builder<DependencyKey, DependencyEntry>().setSoftValues(false));
+    }
+
+    private DependencyEntry getEntry(String uid, DefDescriptor<?>... dependencies) {
+        Set<DefDescriptor<? extends Definition>> deps = Sets.newLinkedHashSet();
+        Collections.addAll(deps, dependencies);
+        return new DependencyEntry(uid, deps, Lists.newArrayList());
+    }
+
+    @Test
+    public void testInvalidateDependentsOnlyRemovesDependents() {
+        IndexedDependencyCache cache = getCache();
+        cache.put(keyA, getEntry("uidA", shared, onlyA));
+        cache.put(latestA, getEntry("uidA", shared, onlyA));
+        cache.put(keyB, getEntry("uidB", shared, onlyB));
+
+        Set<String> uids = cache.invalidateDependents(ImmutableSet.<DefDescriptor<?>>of(onlyA));
+
+        assertEquals(ImmutableSet.of("uidA"), uids);
+        assertEquals(ImmutableSet.of(keyB), cache.getKeySet());
+    }
+
+    @Test
+    public void testInvalidateDependentsOfSharedDescriptor() {
+        IndexedDependencyCache cache = getCache();
+        cache.put(keyA, getEntry("uidA", shared, onlyA));
+        cache.put(keyB, getEntry("uidB", shared, onlyB));
+
+        Set<String> uids = cache.invalidateDependents(ImmutableSet.<DefDescriptor<?>>of(shared));
+
+        assertEquals(ImmutableSet.of("uidA", "uidB"), uids);
+        assertTrue(cache.getKeySet().isEmpty());
+    }
+
+    @Test
+    public void testInvalidatedUidsAreDroppedFromIndex() {
+        IndexedDependencyCache cache = getCache();
+        cache.put(keyA, getEntry("uidA", shared, onlyA));
+        cache.invalidateDependents(ImmutableSet.<DefDescriptor<?>>of(onlyA));
+
+        assertTrue(cache.invalidateDependents(ImmutableSet.<DefDescriptor<?>>of(shared)).isEmpty());
+    }
+
+    @Test
+    public void testEntriesWithErrorsAreNotIndexed() {
+        IndexedDependencyCache cache = getCache();
+        cache.put(latestA, new DependencyEntry(null));
+
+        assertTrue(cache.invalidateDependents(ImmutableSet.<DefDescriptor<?>>of(onlyA)).isEmpty());
+        assertEquals(ImmutableSet.of(latestA), cache.getKeySet());
+    }
+
+    @Test
+    public void testInvalidateAllClearsIndex() {
+        IndexedDependencyCache cache = getCache();
+        cache.put(keyA, getEntry("uidA", shared, onlyA));
+
+        cache.invalidateAll();
+
+        assertTrue(cache.getKeySet().isEmpty());
+        assertTrue(cache.invalidateDependents(ImmutableSet.<DefDescriptor<?>>of(shared)).isEmpty());
+    }
+
+    @Test
+    public void testInvalidatedKeyIsDroppedFromIndex() {
+        IndexedDependencyCache cache = getCache();
+        cache.put(keyA, getEntry("uidA", shared, onlyA));
+        cache.put(latestA, getEntry("uidA", shared, onlyA));
+
+        cache.invalidate(keyA);
+        assertEquals(ImmutableSet.of("uidA"), cache.invalidateDependents(ImmutableSet.<DefDescriptor<?>>of(onlyA)));
+
+        cache.put(keyA, getEntry("uidA", shared, onlyA));
+        cache.invalidate(keyA);
+        assertTrue(cache.invalidateDependents(ImmutableSet.<DefDescriptor<?>>of(shared)).isEmpty());
+    }
+
+    @Test
+    public void testEvictedEntriesAreDroppedFromIndex() {
+        IndexedDependencyCache cache = new IndexedDependencyCache(new CacheImpl.Builder<DependencyKey, DependencyEntry>()
+                .setSoftValues(false).setMaximumSize(1));
+        cache.put(keyA, getEntry("uidA", shared, onlyA));
+        cache.put(keyB, getEntry("uidB", shared, onlyB));
+
+        assertEquals(ImmutableSet.of(keyB), cache.getKeySet());
+        assertEquals(ImmutableSet.of("uidB"), cache.invalidateDependents(ImmutableSet.<DefDescriptor<?>>of(shared)));
+    }
+
+    @Test
+    public void testLatestKeyMovedToAnotherUid() {
+        IndexedDependencyCache cache = getCache();
+        cache.put(latestA, getEntry("uidA", shared, onlyA));
+        cache.put(latestA, getEntry("uidA2", shared));
+
+        assertTrue(cache.invalidateDependents(ImmutableSet.<DefDescriptor<?>>of(onlyA)).isEmpty());
+        assertEquals(ImmutableSet.of("uidA2"), cache.invalidateDependents(ImmutableSet.<DefDescriptor<?>>of(shared)));
+    }
+}
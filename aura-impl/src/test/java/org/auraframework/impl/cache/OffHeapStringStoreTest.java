@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Sets;
+
+public class OffHeapStringStoreTest extends UnitTestCase {
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        OffHeapStringStore<String> store = new OffHeapStringStore<>(1024, null);
+
+        assertTrue(store.put("JS:MIN:uid", "var a = 1;"));
+
+        assertEquals("var a = 1;", store.get("JS:MIN:uid"));
+        assertNull(store.get("JS:DEV:uid"));
+        assertEquals(10, store.getUsedBytes());
+    }
+
+    @Test
+    public void testWriteToStreamsMultipleChunks() throws Exception {
+        OffHeapStringStore<String> store = new OffHeapStringStore<>(1024 * 1024, null);
+        String value = Strings.repeat("$A.componentService.addComponent(é中😀);\n", 2000);
+        StringWriter out = new StringWriter();
+
+        store.put("key", value);
+
+        assertTrue(store.writeTo("key", out));
+        assertEquals(value, out.toString());
+    }
+
+    @Test
+    public void testWriteToMissingKey() throws Exception {
+        OffHeapStringStore<String> store = new OffHeapStringStore<>(1024, null);
+        StringWriter out = new StringWriter();
+
+        assertFalse(store.writeTo("key", out));
+        assertEquals("", out.toString());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws Exception {
+        OffHeapStringStore<String> store = new OffHeapStringStore<>(10, null);
+
+        store.put("a", "1234");
+        store.put("b", "1234");
+        store.get("a");
+        store.put("c", "1234");
+
+        assertEquals(Sets.newHashSet("a", "c"), store.getKeySet());
+        assertEquals(8, store.getUsedBytes());
+    }
+
+    @Test
+    public void testRejectsValueLargerThanCapacity() throws Exception {
+        OffHeapStringStore<String> store = new OffHeapStringStore<>(4, null);
+
+        store.put("a", "1234");
+
+        assertFalse(store.put("a", "12345"));
+        assertNull(store.get("a"));
+    }
+
+    @Test
+    public void testWriterStoresWhenClosed() throws Exception {
+        OffHeapStringStore<String> store = new OffHeapStringStore<>(4 * 1024 * 1024, null);
+        String value = Strings.repeat("$A.componentService.addComponent(é中😀);\n", 20000);
+        AtomicBoolean stored = new AtomicBoolean();
+        Writer writer = store.getWriter("key", () -> stored.set(true));
+
+        // odd sized writes split surrogate pairs and cross the encoded chunks
+        for (int i = 0; i < value.length(); i += 7) {
+            writer.write(value, i, Math.min(7, value.length() - i));
+        }
+        assertNull(store.get("key"));
+        writer.close();
+
+        assertTrue(stored.get());
+        assertEquals(value, store.get("key"));
+        assertEquals(value.getBytes(StandardCharsets.UTF_8).length, store.getUsedBytes());
+    }
+
+    @Test
+    public void testWriterDropsValueLargerThanCapacity() throws Exception {
+        OffHeapStringStore<String> store = new OffHeapStringStore<>(4, null);
+        AtomicBoolean stored = new AtomicBoolean();
+        Writer writer = store.getWriter("key", () -> stored.set(true));
+
+        writer.write("12345");
+        writer.close();
+
+        assertFalse(stored.get());
+        assertNull(store.get("key"));
+        assertEquals(0, store.getUsedBytes());
+    }
+
+    @Test
+    public void testReplaceUpdatesUsedBytes() throws Exception {
+        OffHeapStringStore<String> store = new OffHeapStringStore<>(1024, null);
+
+        store.put("a", "1234");
+        store.put("a", "12");
+
+        assertEquals("12", store.get("a"));
+        assertEquals(2, store.getUsedBytes());
+    }
+
+    @Test
+    public void testInvalidatePartial() throws Exception {
+        OffHeapStringStore<String> store = new OffHeapStringStore<>(1024, null);
+        store.put("JS:MIN:1", "a");
+        store.put("JS:DEV:1", "b");
+        store.put("CSS:1", "c");
+
+        store.invalidatePartial("JS:");
+
+        assertEquals(Sets.newHashSet("CSS:1"), store.getKeySet());
+        assertEquals(1, store.getUsedBytes());
+    }
+
+    @Test
+    public void testMemoryMappedFiles() throws Exception {
+        File directory = getTempDirectory();
+        OffHeapStringStore<String> store = new OffHeapStringStore<>(1024, directory);
+
+        store.put("key", "mapped é");
+
+        assertEquals("mapped é", store.get("key"));
+        assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void testEncodedLengthMatchesEncoder() {
+        String value = "aé中😀\ud83d";
+
+        assertEquals(value.getBytes(StandardCharsets.UTF_8).length, OffHeapStringStore.getEncodedLength(value));
+    }
+
+    private File getTempDirectory() throws Exception {
+        File directory = File.createTempFile("offHeapStringStoreTest", "");
+        directory.delete();
+        directory.mkdirs();
+        directory.deleteOnExit();
+        return directory;
+    }
+}
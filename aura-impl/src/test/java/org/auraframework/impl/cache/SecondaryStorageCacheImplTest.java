@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.auraframework.cache.Cache;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.Sets;
+
+public class SecondaryStorageCacheImplTest extends UnitTestCase {
+
+    private Cache<String, String> heap;
+
+    private OffHeapStringStore<String> secondary;
+
+    private Cache<String, String> getCache() {
+        heap = new CacheImpl.Builder<String, String>().setSoftValues(false).build();
+        secondary = new OffHeapStringStore<>(1024, null);
+        return new SecondaryStorageCacheImpl<>(heap, secondary, 8);
+    }
+
+    @Test
+    public void testBuilderWithSecondaryStorage() {
+        Cache<String, String> cache = new CacheImpl.Builder<String, String>()
+                .setUseSecondaryStorage(true)
+                .build();
+
+        assertTrue(cache instanceof SecondaryStorageCacheImpl);
+    }
+
+    @Test
+    public void testSmallValueStaysOnHeap() {
+        Cache<String, String> cache = getCache();
+
+        cache.put("key", "small");
+
+        assertEquals("small", heap.getIfPresent("key"));
+        assertFalse(secondary.contains("key"));
+        assertEquals("small", cache.getIfPresent("key"));
+    }
+
+    @Test
+    public void testOversizedValueGoesToSecondary() {
+        Cache<String, String> cache = getCache();
+
+        cache.put("key", "oversized");
+
+        assertNull(heap.getIfPresent("key"));
+        assertTrue(secondary.contains("key"));
+        assertEquals("oversized", cache.getIfPresent("key"));
+    }
+
+    @Test
+    public void testLoadedOversizedValueGoesToSecondary() throws Exception {
+        Cache<String, String> cache = getCache();
+        @SuppressWarnings("unchecked")
+        Callable<String> loader = Mockito.mock(Callable.class);
+        Mockito.when(loader.call()).thenReturn("oversized");
+
+        assertEquals("oversized", cache.get("key", loader));
+        assertEquals("oversized", cache.get("key", loader));
+
+        Mockito.verify(loader, Mockito.times(1)).call();
+        assertNull(heap.getIfPresent("key"));
+        assertTrue(secondary.contains("key"));
+    }
+
+    @Test
+    public void testWriteIfPresentStreamsFromSecondary() throws Exception {
+        Cache<String, String> cache = getCache();
+        StringWriter out = new StringWriter();
+        cache.put("key", "oversized");
+
+        assertTrue(cache.writeIfPresent("key", out));
+        assertEquals("oversized", out.toString());
+    }
+
+    @Test
+    public void testValueWriterReplacesHeapValue() throws Exception {
+        Cache<String, String> cache = getCache();
+        cache.put("key", "small");
+
+        Writer writer = cache.getValueWriter("key");
+        writer.append("captured");
+        assertEquals("small", cache.getIfPresent("key"));
+        writer.close();
+
+        assertNull(heap.getIfPresent("key"));
+        assertEquals("captured", cache.getIfPresent("key"));
+    }
+
+    @Test
+    public void testHasSecondaryStorage() {
+        assertTrue(getCache().hasSecondaryStorage());
+        assertFalse(heap.hasSecondaryStorage());
+    }
+
+    @Test
+    public void testWriteIfPresentMissing() throws Exception {
+        Cache<String, String> cache = getCache();
+
+        assertFalse(cache.writeIfPresent("key", new StringWriter()));
+    }
+
+    @Test
+    public void testReplacingWithSmallValueClearsSecondary() {
+        Cache<String, String> cache = getCache();
+
+        cache.put("key", "oversized");
+        cache.put("key", "small");
+
+        assertFalse(secondary.contains("key"));
+        assertEquals("small", cache.getIfPresent("key"));
+    }
+
+    @Test
+    public void testInvalidateClearsBothTiers() {
+        Cache<String, String> cache = getCache();
+        cache.put("JS:a", "oversized");
+        cache.put("CSS:a", "small");
+
+        cache.invalidatePartial("JS:");
+
+        assertEquals(Sets.newHashSet("CSS:a"), cache.getKeySet());
+        cache.invalidateAll();
+        assertTrue(cache.getKeySet().isEmpty());
+    }
+
+    @Test
+    public void testSizeEvictionSpillsToSecondary() {
+        Cache<String, String> cache = new CacheImpl.Builder<String, String>()
+                .setUseSecondaryStorage(true)
+                .setSoftValues(false)
+                .setConcurrencyLevel(1)
+                .setMaximumSize(1)
+                .build();
+
+        cache.put("a", "first");
+        cache.put("b", "second");
+
+        assertEquals("first", cache.getIfPresent("a"));
+        assertEquals("second", cache.getIfPresent("b"));
+    }
+
+    @Test
+    public void testSizeEvictionKeepsBuilderEvictionHandler() {
+        List<String> evicted = new ArrayList<>();
+        CacheImpl.Builder<String, String> builder = new CacheImpl.Builder<String, String>()
+                .setUseSecondaryStorage(true)
+                .setSoftValues(false)
+                .setConcurrencyLevel(1)
+                .setMaximumSize(1)
+                .addEvictionHandler((key, value) -> evicted.add(key));
+        Cache<String, String> cache = builder.build();
+
+        cache.put("a", "first");
+        cache.put("b", "second");
+
+        assertEquals(Arrays.asList("a"), evicted);
+        assertEquals("first", cache.getIfPresent("a"));
+        assertNotNull(builder.evictionHandler);
+    }
+}
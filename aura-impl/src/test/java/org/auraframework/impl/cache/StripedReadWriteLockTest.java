@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+public class StripedReadWriteLockTest extends UnitTestCase {
+
+    @Test
+    public void testReaderBlocksWriterOnAnyStripe() throws Exception {
+        StripedReadWriteLock lock = new StripedReadWriteLock(4);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread reader = new Thread(() -> {
+            lock.readLock().lock();
+            try {
+                locked.countDown();
+                done.await();
+            } catch (InterruptedException ie) {
+                // exit
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+        reader.start();
+        locked.await();
+
+        try {
+            assertFalse(lock.writeLock().tryLock());
+            assertFalse(lock.writeLock().tryLock(10, TimeUnit.MILLISECONDS));
+        } finally {
+            done.countDown();
+            reader.join();
+        }
+        assertTrue(lock.writeLock().tryLock());
+        lock.writeLock().unlock();
+    }
+
+    @Test
+    public void testFailedWriteLockReleasesStripes() throws Exception {
+        StripedReadWriteLock lock = new StripedReadWriteLock(4);
+
+        lock.readLock().lock();
+        try {
+            // a reader can't upgrade, and the stripes taken before failing must be released
+            assertFalse(lock.writeLock().tryLock(10, TimeUnit.MILLISECONDS));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // the stripes are reentrant, so only another thread can tell whether they were all released
+        AtomicBoolean written = new AtomicBoolean();
+        Thread other = new Thread(() -> {
+            if (lock.writeLock().tryLock()) {
+                written.set(true);
+                lock.writeLock().unlock();
+            }
+        });
+        other.start();
+        other.join();
+        assertTrue(written.get());
+    }
+
+    @Test
+    public void testWriterBlocksReaders() throws Exception {
+        StripedReadWriteLock lock = new StripedReadWriteLock(4);
+        AtomicBoolean read = new AtomicBoolean(true);
+
+        lock.writeLock().lock();
+        try {
+            Thread reader = new Thread(() -> read.set(lock.readLock().tryLock()));
+            reader.start();
+            reader.join();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        assertFalse(read.get());
+    }
+
+    @Test
+    public void testWriterCanReadAndReadersReenter() throws Exception {
+        StripedReadWriteLock lock = new StripedReadWriteLock(4);
+
+        lock.writeLock().lock();
+        lock.readLock().lock();
+        lock.readLock().lock();
+        lock.readLock().unlock();
+        lock.readLock().unlock();
+        lock.writeLock().unlock();
+
+        assertTrue(lock.writeLock().tryLock());
+        lock.writeLock().unlock();
+    }
+
+    @Test
+    public void testInvalidStripeCount() {
+        try {
+            new StripedReadWriteLock(0);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            assertEquals("stripeCount must be at least 1, was 0", expected.getMessage());
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package org.auraframework.impl.context;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 
@@ -29,6 +30,8 @@ import org.auraframework.impl.system.RegistryTrie;
 import org.auraframework.system.AuraContext.Authentication;
 import org.auraframework.system.AuraContext.Format;
 import org.auraframework.system.AuraContext.Mode;
+import org.auraframework.system.DependencyEntry;
+import org.auraframework.system.DependencyKey;
 import org.auraframework.system.Location;
 import org.auraframework.system.SubDefDescriptor;
 import org.auraframework.throwable.quickfix.QuickFixException;
@@ -528,4 +531,116 @@ public class AuraContextImplTest extends AuraImplTestCase {
         impl.setSystemMode(false);
         assertFalse(impl.isSystemMode());
     }
+
+    @Test
+    public void testSystemModeDefsKeptAcrossModes() {
+        FakeDescriptor desc = new FakeDescriptor("a", "b", "c", DefType.APPLICATION);
+        Definition definition = new FakeDefinition(desc);
+        AuraContextImpl impl = new AuraContextImpl(null, null, null, null, null, null, null, null, null, null);
+        impl.setSystemMode(true);
+        impl.addLocalDef(desc, definition);
+        impl.setSystemMode(false);
+        impl.setSystemMode(true);
+
+        assertEquals(definition, impl.getLocalDef(desc).orNull());
+    }
+
+    @Test
+    public void testScriptNonceIsKept() {
+        AuraContextImpl impl = new AuraContextImpl(null, null, null, null, null, null, null, null, null, null);
+        AuraContextImpl other = new AuraContextImpl(null, null, null, null, null, null, null, null, null, null);
+
+        assertNotNull(impl.getScriptNonce());
+        assertEquals(impl.getScriptNonce(), impl.getScriptNonce());
+        assertFalse(impl.getScriptNonce().equals(other.getScriptNonce()));
+    }
+
+    @Test
+    public void testAccessCheckCacheIsKept() {
+        AuraContextImpl impl = new AuraContextImpl(null, null, null, null, null, null, null, null, null, null);
+
+        assertNotNull(impl.getAccessCheckCache());
+        assertSame(impl.getAccessCheckCache(), impl.getAccessCheckCache());
+    }
+
+    @Test
+    public void testMergeAddsLoadedAndLocalDefs() {
+        FakeDescriptor loaded = new FakeDescriptor("a", "b", "loaded", DefType.APPLICATION);
+        FakeDescriptor local = new FakeDescriptor("a", "b", "local", DefType.APPLICATION);
+        Definition definition = new FakeDefinition(local);
+        AuraContextImpl impl = new AuraContextImpl(null, null, null, null, null, null, null, null, null, null);
+        AuraContextImpl other = new AuraContextImpl(null, null, null, null, null, null, null, null, null, null);
+        other.addLoaded(loaded, "uid");
+        other.addLocalDef(local, definition);
+
+        impl.merge(other);
+
+        assertEquals("uid", impl.getUid(loaded));
+        assertEquals(definition, impl.getLocalDef(local).orNull());
+    }
+
+    @Test
+    public void testMergeKeepsExistingLocalDef() {
+        FakeDescriptor desc = new FakeDescriptor("a", "b", "c", DefType.APPLICATION);
+        Definition definition = new FakeDefinition(desc);
+        AuraContextImpl impl = new AuraContextImpl(null, null, null, null, null, null, null, null, null, null);
+        AuraContextImpl other = new AuraContextImpl(null, null, null, null, null, null, null, null, null, null);
+        impl.addLocalDef(desc, definition);
+        other.addLocalDef(desc, new FakeDefinition(desc));
+
+        impl.merge(other);
+
+        assertSame(definition, impl.getLocalDef(desc).orNull());
+    }
+
+    @Test
+    public void testMergeAddsDynamicDefs() {
+        FakeDescriptor desc = new FakeDescriptor("a", "b", "c", DefType.APPLICATION);
+        Definition definition = new FakeDefinition(desc);
+        AuraContextImpl impl = new AuraContextImpl(null, null, null, null, null, null, null, null, null, null);
+        AuraContextImpl other = new AuraContextImpl(null, null, null, null, null, null, null, null, null, null);
+        impl.addLocalDef(desc, null);
+        other.addDynamicDef(definition);
+
+        impl.merge(other);
+
+        assertSame(definition, impl.getLocalDef(desc).orNull());
+        assertTrue(impl.isLocalDefNotCacheable(desc));
+        Set<DefDescriptor<?>> matched = Sets.newHashSet();
+        impl.addDynamicMatches(matched, new DescriptorFilter("a://b:c", "APPLICATION"));
+        assertEquals(Sets.<DefDescriptor<?>>newHashSet(desc), matched);
+    }
+
+    @Test
+    public void testMergeAddsDependencyEntries() {
+        FakeDescriptor desc = new FakeDescriptor("a", "b", "c", DefType.APPLICATION);
+        DependencyKey key = new DependencyKey("uid", desc, false);
+        DependencyEntry entry = new DependencyEntry("uid", Sets.<DefDescriptor<? extends Definition>>newHashSet(desc),
+                Collections.emptyList());
+        AuraContextImpl impl = new AuraContextImpl(null, null, null, null, null, null, null, null, null, null);
+        AuraContextImpl other = new AuraContextImpl(null, null, null, null, null, null, null, null, null, null);
+        other.addLocalDependencyEntry(key, entry);
+
+        impl.merge(other);
+
+        assertSame(entry, impl.getLocalDependencyEntry("uid"));
+        assertSame(entry, impl.getLocalDependencyEntry(key));
+        assertSame(entry, impl.findLocalDependencyEntry(desc));
+    }
+
+    @Test
+    public void testMergeAddsSystemModeDefs() {
+        FakeDescriptor desc = new FakeDescriptor("a", "b", "c", DefType.APPLICATION);
+        Definition definition = new FakeDefinition(desc);
+        AuraContextImpl impl = new AuraContextImpl(null, null, null, null, null, null, null, null, null, null);
+        AuraContextImpl other = new AuraContextImpl(null, null, null, null, null, null, null, null, null, null);
+        other.setSystemMode(true);
+        other.addLocalDef(desc, definition);
+
+        impl.merge(other);
+
+        assertNull(impl.getLocalDef(desc));
+        impl.setSystemMode(true);
+        assertEquals(definition, impl.getLocalDef(desc).orNull());
+    }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.java.model;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+public class JavaModelGetterTest extends UnitTestCase {
+
+    public static class Bean {
+        public String getName() {
+            return "bean";
+        }
+
+        public boolean isActive() {
+            return true;
+        }
+
+        public int getCount() {
+            return 3;
+        }
+
+        public String getBroken() {
+            throw new IllegalStateException("broken");
+        }
+    }
+
+    static class Hidden {
+        public String getName() {
+            return "hidden";
+        }
+    }
+
+    @Test
+    public void testFindsGetter() throws Exception {
+        Method getter = JavaModel.getGetter(Bean.class, "name");
+        assertEquals("getName", getter.getName());
+        assertEquals("bean", getter.invoke(new Bean()));
+    }
+
+    @Test
+    public void testFindsIs() throws Exception {
+        assertEquals(Boolean.TRUE, JavaModel.getGetter(Bean.class, "active").invoke(new Bean()));
+    }
+
+    @Test
+    public void testBoxesPrimitive() throws Exception {
+        assertEquals(Integer.valueOf(3), JavaModel.getGetter(Bean.class, "count").invoke(new Bean()));
+    }
+
+    @Test
+    public void testGetterIsShared() {
+        assertSame(JavaModel.getGetter(Bean.class, "name"), JavaModel.getGetter(Bean.class, "name"));
+    }
+
+    @Test
+    public void testMissingGetter() {
+        assertNull(JavaModel.getGetter(Bean.class, "missing"));
+        assertNull(JavaModel.getGetter(Bean.class, "missing"));
+    }
+
+    @Test
+    public void testExceptionIsWrapped() throws Exception {
+        try {
+            JavaModel.getGetter(Bean.class, "broken").invoke(new Bean());
+            fail("Expected InvocationTargetException");
+        } catch (InvocationTargetException expected) {
+            assertEquals(IllegalStateException.class, expected.getCause().getClass());
+            assertEquals("broken", expected.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testNonPublicClass() {
+        assertEquals("getName", JavaModel.getGetter(Hidden.class, "name").getName());
+    }
+}
@@ -16,12 +16,19 @@
 package org.auraframework.impl.service;
 
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
@@ -43,6 +50,7 @@ import org.auraframework.service.CachingService;
 import org.auraframework.service.ContextService;
 import org.auraframework.service.DefinitionService;
 import org.auraframework.service.LoggingService;
+import org.auraframework.system.AccessCheckKey;
 import org.auraframework.system.AuraContext;
 import org.auraframework.system.AuraContext.Authentication;
 import org.auraframework.system.AuraContext.Format;
@@ -643,6 +651,120 @@ public class DefinitionServiceImplUnitTest extends AuraImplTestCase {
     	assertTrue("hasAccess on definition with access=PRIVATE should return true only when referencingDescriptor the same as definition's descriptor", res);
     }
     
+    /**
+     * Get a mocked descriptor of a component in another namespace, to reference definitions from.
+     */
+    private DefDescriptor<ComponentDef> getReferencingDescriptor(String namespace) {
+        @SuppressWarnings("unchecked")
+        DefDescriptor<ComponentDef> descriptor = Mockito.mock(DefDescriptor.class);
+        Mockito.when(descriptor.getDefType()).thenReturn(DefType.COMPONENT);
+        Mockito.when(descriptor.getPrefix()).thenReturn("markup");
+        Mockito.when(descriptor.getName()).thenReturn("referencing");
+        Mockito.when(descriptor.getNamespace()).thenReturn(namespace);
+        return descriptor;
+    }
+
+    @Test
+    public void testHasAccessSharedAllowedSkipsRequestCache() throws QuickFixException {
+        DefinitionService definitionService = createDefinitionServiceWithMocks();
+        AuraContext context = setupContext(definitionService);
+        DefDescriptor<Definition> descriptor = getMockDescriptor();
+        Definition definition = new MockDefinition(descriptor, AuraContext.Access.PUBLIC);
+        String namespace = getUniqueNamespace();
+        AccessCheckKey key = new AccessCheckKey(namespace, null, descriptor, false);
+        // denied on its own, from another namespace, but already allowed by an earlier request
+        cachingService.getAccessCheckCache().put(key, Boolean.TRUE);
+
+        boolean res = definitionService.hasAccess(getReferencingDescriptor(namespace), definition);
+
+        assertTrue("hasAccess should use the shared decision", res);
+        assertNull(context.getAccessCheckCache().getIfPresent(key));
+    }
+
+    @Test
+    public void testHasAccessFromInternalNamespaceIsNotCached() throws QuickFixException {
+        DefinitionService definitionService = createDefinitionServiceWithMocks();
+        AuraContext context = setupContext(definitionService);
+        DefDescriptor<Definition> descriptor = getMockDescriptor();
+        Definition definition = new MockDefinition(descriptor, AuraContext.Access.PUBLIC);
+        String namespace = getUniqueNamespace();
+        Mockito.when(configAdapter.isInternalNamespace(namespace)).thenReturn(true);
+        AccessCheckKey key = new AccessCheckKey(namespace, null, descriptor, false);
+
+        boolean res = definitionService.hasAccess(getReferencingDescriptor(namespace), definition);
+
+        assertTrue("hasAccess from an internal namespace should return true", res);
+        assertNull(cachingService.getAccessCheckCache().getIfPresent(key));
+        assertNull(context.getAccessCheckCache().getIfPresent(key));
+    }
+
+    @Test
+    public void testHasAccessFromPrivilegedNamespaceIsNotCached() throws QuickFixException {
+        DefinitionService definitionService = createDefinitionServiceWithMocks();
+        AuraContext context = setupContext(definitionService);
+        DefDescriptor<Definition> descriptor = getMockDescriptor();
+        Definition definition = new MockDefinition(descriptor, AuraContext.Access.PRIVILEGED);
+        String namespace = getUniqueNamespace();
+        Mockito.when(configAdapter.isPrivilegedNamespace(namespace)).thenReturn(true);
+        AccessCheckKey key = new AccessCheckKey(namespace, null, descriptor, false);
+
+        boolean res = definitionService.hasAccess(getReferencingDescriptor(namespace), definition);
+
+        assertTrue("hasAccess on a privileged definition from a privileged namespace should return true", res);
+        assertNull(cachingService.getAccessCheckCache().getIfPresent(key));
+        assertNull(context.getAccessCheckCache().getIfPresent(key));
+    }
+
+    @Test
+    public void testHasAccessPrivateFromItselfIsNotCached() throws QuickFixException {
+        DefinitionService definitionService = createDefinitionServiceWithMocks();
+        AuraContext context = setupContext(definitionService);
+        DefDescriptor<Definition> descriptor = getMockDescriptor();
+        Definition definition = new MockDefinition(descriptor, AuraContext.Access.PRIVATE);
+        AccessCheckKey key = new AccessCheckKey(NAMESPACE, null, descriptor, true);
+
+        boolean res = definitionService.hasAccess(descriptor, definition);
+
+        assertTrue("hasAccess on a private definition from itself should return true", res);
+        assertNull(cachingService.getAccessCheckCache().getIfPresent(key));
+        assertNull(context.getAccessCheckCache().getIfPresent(key));
+    }
+
+    @Test
+    public void testHasAccessDynamicDefIsNotShared() throws QuickFixException {
+        DefinitionService definitionService = createDefinitionServiceWithMocks();
+        AuraContext context = setupContext(definitionService);
+        DefDescriptor<Definition> descriptor = getMockDescriptor();
+        Definition definition = new MockDefinition(descriptor, AuraContext.Access.PUBLIC);
+        context.addDynamicDef(definition);
+        String namespace = getUniqueNamespace();
+        AccessCheckKey key = new AccessCheckKey(namespace, null, descriptor, false);
+        // allowed by another request, for the def that other requests see
+        cachingService.getAccessCheckCache().put(key, Boolean.TRUE);
+
+        boolean res = definitionService.hasAccess(getReferencingDescriptor(namespace), definition);
+
+        assertFalse("hasAccess on a dynamic def should not use the shared decision", res);
+        assertEquals(Boolean.TRUE, cachingService.getAccessCheckCache().getIfPresent(key));
+        assertNotNull(context.getAccessCheckCache().getIfPresent(key));
+    }
+
+    @Test
+    public void testHasAccessSharedDecisionIsKeyedByAccess() throws QuickFixException {
+        DefinitionService definitionService = createDefinitionServiceWithMocks();
+        setupContext(definitionService);
+        DefDescriptor<Definition> descriptor = getMockDescriptor();
+        Definition definition = new MockDefinition(descriptor, AuraContext.Access.PRIVATE);
+        // allowed for a public def of the same descriptor, e.g. from another registry set
+        cachingService.getAccessCheckCache().put(new AccessCheckKey(NAMESPACE, null, descriptor, false), Boolean.TRUE);
+
+        boolean res = definitionService.hasAccess(getReferencingDescriptor(NAMESPACE), definition);
+
+        assertFalse("hasAccess on a private def should not use the decision for a public one", res);
+        assertEquals(Boolean.FALSE,
+                cachingService.getAccessCheckCache().getIfPresent(new AccessCheckKey(NAMESPACE, null, descriptor, true)));
+    }
+
     //todo: more test on hasAccess
     
     
@@ -719,6 +841,66 @@ public class DefinitionServiceImplUnitTest extends AuraImplTestCase {
     	assertNull("we should return null when getting Uid with null descriptor", 
     			definitionService.getUid("testUID", null));
     }
+
+    /**
+     * A second thread asking for a descriptor that is being compiled waits for that compile instead of compiling it again.
+     */
+    @Test
+    public void testConcurrentGetUidCompilesOnce() throws Exception {
+        DefinitionService definitionService = createDefinitionServiceWithMocks();
+        ThreadLocal<AuraContext> contexts = ThreadLocal.withInitial(() -> new AuraContextImpl(Mode.DEV, registries,
+                null /* defaultPrefixes */,
+                Format.JSON, Authentication.AUTHENTICATED,
+                null /* jsonContext */,
+                null /* globalProviders */,
+                configAdapter,
+                definitionService,
+                null /* testContextAdapter */));
+        Mockito.when(contextService.getCurrentContext()).thenAnswer(invocation -> contexts.get());
+        DefDescriptor<Definition> descriptor = getMockDescriptor();
+        Definition definition = Mockito.spy(new MockDefinition(descriptor));
+        CountDownLatch compiling = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            compiling.countDown();
+            release.await();
+            return null;
+        }).when(definition).validateDefinition();
+        setupMockRegistryFor(descriptor, registry1, definition);
+        Mockito.when(configAdapter.isCacheable(registry1, descriptor)).thenReturn(true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> definitionService.getUid(null, descriptor));
+            compiling.await();
+            CompletableFuture<?> inFlight = getCompileInFlight(definitionService);
+            Future<String> second = executor.submit(() -> definitionService.getUid(null, descriptor));
+            // a thread blocked in get() is a dependent of the future, so the second thread is waiting once there is one.
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (inFlight.getNumberOfDependents() == 0) {
+                assertFalse("Timed out waiting for the second thread to wait on the compile",
+                        second.isDone() || System.nanoTime() > end);
+                Thread.yield();
+            }
+            release.countDown();
+
+            assertNotNull(first.get());
+            assertEquals(first.get(), second.get());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+        Mockito.verify(definition, Mockito.times(1)).validateDefinition();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CompletableFuture<?> getCompileInFlight(DefinitionService definitionService) throws Exception {
+        Field field = DefinitionServiceImpl.class.getDeclaredField("compilesInFlight");
+        field.setAccessible(true);
+        Map<?, ? extends CompletableFuture<?>> compiles = (Map<?, ? extends CompletableFuture<?>>) field.get(definitionService);
+        assertEquals(1, compiles.size());
+        return compiles.values().iterator().next();
+    }
     
 
 //void updateLoaded(DefDescriptor<?> loading) throws QuickFixException, ClientOutOfSyncException;
@@ -794,6 +976,14 @@ public class DefinitionServiceImplUnitTest extends AuraImplTestCase {
         			Mockito.when(this.access.isPrivate()).thenReturn(true);
         			Mockito.when(this.access.requiresAuthentication()).thenReturn(true);
         			break;
+        		case PUBLIC:
+        			Mockito.when(this.access.isPublic()).thenReturn(true);
+        			Mockito.when(this.access.requiresAuthentication()).thenReturn(true);
+        			break;
+        		case PRIVILEGED:
+        			Mockito.when(this.access.isPrivileged()).thenReturn(true);
+        			Mockito.when(this.access.requiresAuthentication()).thenReturn(true);
+        			break;
         		default:
         			Mockito.when(this.access.isGlobal()).thenReturn(true);
         		}
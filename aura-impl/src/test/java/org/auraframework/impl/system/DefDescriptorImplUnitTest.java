@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.system;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.auraframework.def.ComponentDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.StyleDef;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+public class DefDescriptorImplUnitTest extends UnitTestCase {
+
+    private static DefDescriptor<ComponentDef> component(String namespace, String name) {
+        return new DefDescriptorImpl<>("markup", namespace, name, ComponentDef.class);
+    }
+
+    @Test
+    public void testInternReturnsSameInstance() {
+        DefDescriptor<ComponentDef> first = DefDescriptorImpl.intern(component("internTest", "same"));
+        DefDescriptor<ComponentDef> second = DefDescriptorImpl.intern(component("internTest", "same"));
+
+        assertSame(first, second);
+    }
+
+    @Test
+    public void testInternKeepsSpelling() {
+        DefDescriptor<ComponentDef> lower = DefDescriptorImpl.intern(component("internTest", "spelling"));
+        DefDescriptor<ComponentDef> upper = component("internTest", "SPELLING");
+
+        DefDescriptor<ComponentDef> interned = DefDescriptorImpl.intern(upper);
+
+        assertSame(upper, interned);
+        assertEquals(lower, interned);
+        assertEquals("markup://internTest:SPELLING", interned.getQualifiedName());
+    }
+
+    @Test
+    public void testInternKeepsBundleSpelling() {
+        DefDescriptor<StyleDef> lower = DefDescriptorImpl.intern(new DefDescriptorImpl<>("css", "internTest", "bundle",
+                StyleDef.class, component("internTest", "bundle")));
+        DefDescriptor<StyleDef> upper = new DefDescriptorImpl<>("css", "internTest", "bundle", StyleDef.class,
+                component("internTest", "BUNDLE"));
+
+        assertEquals(lower, upper);
+        assertSame(upper, DefDescriptorImpl.intern(upper));
+    }
+
+    @Test
+    public void testInternSeparatesDefTypes() {
+        DefDescriptor<ComponentDef> component = DefDescriptorImpl.intern(component("internTest", "types"));
+        DefDescriptor<StyleDef> style = DefDescriptorImpl.intern(
+                new DefDescriptorImpl<>("markup", "internTest", "types", StyleDef.class));
+
+        assertNotSame(component, style);
+        assertFalse(component.equals(style));
+    }
+
+    @Test
+    public void testInternAssociateDescriptor() {
+        DefDescriptor<ComponentDef> component = component("internTest", "associate");
+
+        assertSame(DefDescriptorImpl.getAssociateDescriptor(component, StyleDef.class, "css"),
+                DefDescriptorImpl.getAssociateDescriptor(component, StyleDef.class, "css"));
+    }
+
+    @Test
+    public void testDeserializedDescriptorIsInterned() throws Exception {
+        DefDescriptor<ComponentDef> interned = DefDescriptorImpl.intern(component("internTest", "serialized"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(component("internTest", "serialized"));
+        }
+
+        Object read;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = in.readObject();
+        }
+
+        assertSame(interned, read);
+    }
+
+    @Test
+    public void testEqualsIgnoresCase() {
+        assertEquals(component("internTest", "Equals"), component("internTest", "eQUALS"));
+        assertEquals(component("internTest", "Equals").hashCode(), component("internTest", "eQUALS").hashCode());
+        assertFalse(component("internTest", "equals").equals(component("internTest", "equals2")));
+    }
+}
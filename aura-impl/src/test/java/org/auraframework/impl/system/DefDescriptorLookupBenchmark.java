@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.system;
+
+import java.util.concurrent.TimeUnit;
+
+import org.auraframework.cache.Cache;
+import org.auraframework.def.ComponentDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.Definition;
+import org.auraframework.impl.cache.CacheImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.common.base.Optional;
+
+/**
+ * Compare looking up the exists and defs caches, built like those of the caching service, with a descriptor that is
+ * equal to the key but another instance, the way descriptors used to be created, and with the interned key itself.
+ *
+ * Run with e.g.
+ * <pre>
+ * java -cp ... org.openjdk.jmh.Main DefDescriptorLookupBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DefDescriptorLookupBenchmark {
+    private static final int SIZE = 10000;
+
+    private Cache<DefDescriptor<?>, Boolean> existsCache;
+
+    private Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache;
+
+    private DefDescriptor<ComponentDef> equal;
+
+    private DefDescriptor<ComponentDef> interned;
+
+    private DefDescriptor<ComponentDef> missing;
+
+    @Setup
+    public void setup() {
+        existsCache = new CacheImpl.Builder<DefDescriptor<?>, Boolean>().setInitialSize(SIZE).setMaximumSize(SIZE)
+                .setName("existsCache").build();
+        defsCache = new CacheImpl.Builder<DefDescriptor<?>, Optional<? extends Definition>>().setInitialSize(SIZE)
+                .setMaximumSize(SIZE).setName("defsCache").build();
+        for (int i = 0; i < SIZE; i++) {
+            DefDescriptor<ComponentDef> descriptor = DefDescriptorImpl.intern(
+                    new DefDescriptorImpl<>("markup", "bench", "cmp" + i, ComponentDef.class));
+            existsCache.put(descriptor, Boolean.TRUE);
+            defsCache.put(descriptor, Optional.absent());
+            interned = descriptor;
+        }
+        equal = new DefDescriptorImpl<>("markup", "bench", "cmp" + (SIZE - 1), ComponentDef.class);
+        missing = new DefDescriptorImpl<>("markup", "bench", "missing", ComponentDef.class);
+    }
+
+    @Benchmark
+    public Object existsEqual() {
+        return existsCache.getIfPresent(equal);
+    }
+
+    @Benchmark
+    public Object existsInterned() {
+        return existsCache.getIfPresent(interned);
+    }
+
+    @Benchmark
+    public Object defsEqual() {
+        return defsCache.getIfPresent(equal);
+    }
+
+    @Benchmark
+    public Object defsInterned() {
+        return defsCache.getIfPresent(interned);
+    }
+
+    @Benchmark
+    public Object defsMissing() {
+        return defsCache.getIfPresent(missing);
+    }
+}
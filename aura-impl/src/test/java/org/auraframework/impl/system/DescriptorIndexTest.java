@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.system;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.auraframework.def.ComponentDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.DefDescriptor.DefType;
+import org.auraframework.def.DescriptorFilter;
+import org.auraframework.def.Definition;
+import org.auraframework.def.StyleDef;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class DescriptorIndexTest extends UnitTestCase {
+
+    private DescriptorIndex<String> createIndex() {
+        DescriptorIndex<String> index = new DescriptorIndex<>();
+        index.add("ui", "button", "ui:button");
+        index.add("ui", "buttonGroup", "ui:buttonGroup");
+        index.add("ui", "inputText", "ui:inputText");
+        index.add("ui", "outputText", "ui:outputText");
+        index.add("aura", "text", "aura:text");
+        index.add("auradev", "button", "auradev:button");
+        return index;
+    }
+
+    private static Set<String> find(DescriptorIndex<String> index, String filter) {
+        return Sets.newHashSet(index.find(new DescriptorFilter(filter)));
+    }
+
+    @Test
+    public void testConstant() {
+        assertEquals(Sets.newHashSet("ui:button"), find(createIndex(), "ui:button"));
+    }
+
+    @Test
+    public void testAllNamesInNamespace() {
+        assertEquals(Sets.newHashSet("ui:button", "ui:buttonGroup", "ui:inputText", "ui:outputText"),
+                find(createIndex(), "ui:*"));
+    }
+
+    @Test
+    public void testNamePrefix() {
+        assertEquals(Sets.newHashSet("ui:button", "ui:buttonGroup"), find(createIndex(), "ui:button*"));
+    }
+
+    @Test
+    public void testNameSuffix() {
+        assertEquals(Sets.newHashSet("ui:inputText", "ui:outputText"), find(createIndex(), "ui:*Text"));
+    }
+
+    @Test
+    public void testNamespaceGlob() {
+        assertEquals(Sets.newHashSet("ui:button", "auradev:button"), find(createIndex(), "*:button"));
+        assertEquals(Sets.newHashSet("aura:text", "auradev:button"), find(createIndex(), "aura*:*"));
+    }
+
+    @Test
+    public void testIgnoresCase() {
+        assertEquals(Sets.newHashSet("ui:buttonGroup"), find(createIndex(), "UI:BUTTONGROUP"));
+        assertEquals(Sets.newHashSet("ui:button", "ui:buttonGroup"), find(createIndex(), "Ui:BUTTON*"));
+    }
+
+    @Test
+    public void testNoMatch() {
+        assertTrue(find(createIndex(), "ui:missing*").isEmpty());
+        assertTrue(find(createIndex(), "missing:*").isEmpty());
+    }
+
+    @Test
+    public void testValuesWithSameName() {
+        DescriptorIndex<String> index = createIndex();
+        index.add("ui", "button", "ui:button.css");
+
+        assertEquals(Sets.newHashSet("ui:button", "ui:button.css"), find(index, "ui:button"));
+    }
+
+    @Test
+    public void testStaticRegistryFind() {
+        DefDescriptor<ComponentDef> button = new DefDescriptorImpl<>("markup", "ui", "button", ComponentDef.class);
+        DefDescriptor<StyleDef> buttonStyle = new DefDescriptorImpl<>("css", "ui", "button", StyleDef.class);
+        DefDescriptor<ComponentDef> text = new DefDescriptorImpl<>("markup", "ui", "outputText", ComponentDef.class);
+        Map<DefDescriptor<?>, Definition> defs = new HashMap<>();
+        defs.put(button, null);
+        defs.put(buttonStyle, null);
+        defs.put(text, null);
+        StaticDefRegistryImpl registry = new StaticDefRegistryImpl(Sets.newHashSet(DefType.COMPONENT, DefType.STYLE),
+                Sets.newHashSet("markup", "css"), Sets.newHashSet("ui"), defs);
+
+        assertEquals(Sets.newHashSet(button), registry.find(new DescriptorFilter("markup://ui:but*", DefType.COMPONENT)));
+        assertEquals(Sets.newHashSet(button, text), registry.find(new DescriptorFilter("ui:*", DefType.COMPONENT)));
+        assertEquals(Sets.newHashSet(buttonStyle), registry.find(new DescriptorFilter("css://ui:*", "*")));
+    }
+}
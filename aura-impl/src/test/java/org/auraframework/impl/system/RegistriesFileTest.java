@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.system;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.DefDescriptor.DefType;
+import org.auraframework.def.DescriptionDef;
+import org.auraframework.def.DescriptorFilter;
+import org.auraframework.def.Definition;
+import org.auraframework.impl.documentation.DescriptionDefImpl;
+import org.auraframework.system.DefRegistry;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class RegistriesFileTest extends UnitTestCase {
+
+    private static DescriptionDef createDef(String namespace, String name) {
+        DescriptionDefImpl.Builder builder = new DescriptionDefImpl.Builder();
+        builder.setDescriptor(new DefDescriptorImpl<>("markup", namespace, name, DescriptionDef.class));
+        builder.setName(name);
+        return builder.build();
+    }
+
+    private static StaticDefRegistryImpl createRegistry(String namespace, Definition... defs) {
+        return new StaticDefRegistryImpl(Sets.newHashSet(DefType.DESCRIPTION), Sets.newHashSet("markup"),
+                Sets.newHashSet(namespace), Lists.newArrayList(defs));
+    }
+
+    private static ByteBuffer write(StaticDefRegistryImpl... registries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RegistriesFile.write(Lists.newArrayList(registries), out);
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    private static int countLoaded(DefRegistry registry) throws Exception {
+        Object defs = ((StaticDefRegistryImpl) registry).defs;
+        Field loaded = defs.getClass().getDeclaredField("loaded");
+        loaded.setAccessible(true);
+        return ((Map<?, ?>) loaded.get(defs)).size();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        DescriptionDef one = createDef("first", "one");
+        DescriptionDef two = createDef("first", "two");
+        DescriptionDef three = createDef("second", "three");
+
+        DefRegistry[] registries = RegistriesFile.read(write(createRegistry("first", one, two),
+                createRegistry("second", three)));
+
+        assertEquals(2, registries.length);
+        assertEquals(Sets.newHashSet("first"), registries[0].getNamespaces());
+        assertEquals(Sets.newHashSet("markup"), registries[0].getPrefixes());
+        assertEquals(Sets.newHashSet(DefType.DESCRIPTION), registries[0].getDefTypes());
+        assertEquals(Sets.newHashSet("second"), registries[1].getNamespaces());
+
+        DescriptionDef read = registries[0].getDef(one.getDescriptor());
+        assertEquals(one.getDescriptor(), read.getDescriptor());
+        assertEquals("one", read.getName());
+        assertEquals("three", registries[1].getDef(three.getDescriptor()).getName());
+        assertNull(registries[1].getDef(one.getDescriptor()));
+    }
+
+    @Test
+    public void testFindAndExistsDoNotLoadDefinitions() throws Exception {
+        DescriptionDef one = createDef("first", "one");
+        DescriptionDef two = createDef("first", "two");
+        DefRegistry registry = RegistriesFile.read(write(createRegistry("first", one, two)))[0];
+
+        assertTrue(registry.exists(one.getDescriptor()));
+        assertFalse(registry.exists(createDef("first", "missing").getDescriptor()));
+        Set<DefDescriptor<?>> found = registry.find(new DescriptorFilter("markup://first:*", DefType.DESCRIPTION));
+        assertEquals(Sets.newHashSet(one.getDescriptor(), two.getDescriptor()), found);
+
+        assertEquals(0, countLoaded(registry));
+    }
+
+    @Test
+    public void testDefinitionIsLoadedOnce() throws Exception {
+        DescriptionDef one = createDef("first", "one");
+        DefRegistry registry = RegistriesFile.read(write(createRegistry("first", one, createDef("first", "two"))))[0];
+
+        DescriptionDef first = registry.getDef(one.getDescriptor());
+        assertSame(first, registry.getDef(one.getDescriptor()));
+        assertEquals(1, countLoaded(registry));
+    }
+
+    @Test
+    public void testReadsMappedBufferFromOffset() throws Exception {
+        ByteBuffer file = write(createRegistry("first", createDef("first", "one")));
+        ByteBuffer direct = ByteBuffer.allocateDirect(file.remaining());
+        direct.put(file).flip();
+
+        DefRegistry registry = RegistriesFile.read(direct)[0];
+
+        assertEquals("one", registry.getDef(createDef("first", "one").getDescriptor()).getName());
+    }
+
+    @Test
+    public void testRejectsUnknownVersion() throws Exception {
+        ByteBuffer file = write(createRegistry("first", createDef("first", "one")));
+        file.putInt(4, RegistriesFile.VERSION + 1);
+
+        try {
+            RegistriesFile.read(file);
+            fail("Expected an unknown version to be rejected");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("version"));
+        }
+    }
+
+    private static void assertRejected(ByteBuffer file, String message) throws Exception {
+        try {
+            RegistriesFile.read(file);
+            fail("Expected a damaged file to be rejected");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains(message));
+        }
+    }
+
+    @Test
+    public void testCorruptDefinitionIsRejectedOnRead() throws Exception {
+        ByteBuffer file = write(createRegistry("first", createDef("first", "one")));
+        // the first definition starts right after the header
+        file.put(RegistriesFile.HEADER_LENGTH, (byte) 0);
+
+        assertRejected(file, "checksum");
+    }
+
+    @Test
+    public void testIndexOutsideFileIsRejectedOnRead() throws Exception {
+        ByteBuffer file = write(createRegistry("first", createDef("first", "one")));
+        file.putInt(8, file.limit() + 1);
+
+        assertRejected(file, "index");
+    }
+
+    @Test
+    public void testDefinitionOutsideDefinitionsIsRejectedOnRead() throws Exception {
+        DescriptionDef one = createDef("first", "one");
+        ByteBuffer file = write(createRegistry("first", one));
+        // the index ends with the offset and length of the last definition
+        file.putInt(file.limit() - 4, file.limit());
+
+        assertRejected(file, one.getDescriptor().toString());
+    }
+
+    @Test
+    public void testReadsSerializedRegistries() throws Exception {
+        DescriptionDef one = createDef("first", "one");
+        List<DefRegistry> registries = new ArrayList<>();
+        registries.add(createRegistry("first", one));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(registries);
+        }
+        ByteBuffer file = ByteBuffer.wrap(bytes.toByteArray());
+
+        assertFalse(RegistriesFile.hasMagic(file));
+        DefRegistry[] read = RegistriesFile.read(file);
+
+        assertEquals(1, read.length);
+        assertEquals("one", read[0].getDef(one.getDescriptor()).getName());
+    }
+}
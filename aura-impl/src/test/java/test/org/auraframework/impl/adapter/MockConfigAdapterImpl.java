@@ -201,6 +201,9 @@ public class MockConfigAdapterImpl extends ConfigAdapterImpl implements MockConf
     private Supplier<String> csrfTokenFunction = null;
 	private Supplier<String> jwtTokenFunction = null;
     private Boolean isLockerServiceEnabledGlobally;
+    private Boolean isStreamingDefinitionsEnabled;
+    private Boolean isPrecompressedResourcesEnabled;
+    private Boolean isActionFlushEnabled;
 
     public MockConfigAdapterImpl() {
         super();
@@ -220,6 +223,9 @@ public class MockConfigAdapterImpl extends ConfigAdapterImpl implements MockConf
         csrfTokenFunction = null;
         jwtTokenFunction = null;
         isLockerServiceEnabledGlobally = null;
+        isStreamingDefinitionsEnabled = null;
+        isPrecompressedResourcesEnabled = null;
+        isActionFlushEnabled = null;
     }
 
     @Override
@@ -418,4 +424,34 @@ public class MockConfigAdapterImpl extends ConfigAdapterImpl implements MockConf
     public boolean isLockerServiceEnabled() {
         return (isLockerServiceEnabledGlobally == null) ? super.isLockerServiceEnabled() : isLockerServiceEnabledGlobally;
     }
+
+    @Override
+    public void setStreamingDefinitionsEnabled(boolean enabled) {
+        isStreamingDefinitionsEnabled = enabled;
+    }
+
+    @Override
+    public boolean isStreamingDefinitionsEnabled() {
+        return (isStreamingDefinitionsEnabled == null) ? super.isStreamingDefinitionsEnabled() : isStreamingDefinitionsEnabled;
+    }
+
+    @Override
+    public void setPrecompressedResourcesEnabled(boolean enabled) {
+        isPrecompressedResourcesEnabled = enabled;
+    }
+
+    @Override
+    public boolean isPrecompressedResourcesEnabled() {
+        return (isPrecompressedResourcesEnabled == null) ? super.isPrecompressedResourcesEnabled() : isPrecompressedResourcesEnabled;
+    }
+
+    @Override
+    public void setActionFlushEnabled(boolean enabled) {
+        isActionFlushEnabled = enabled;
+    }
+
+    @Override
+    public boolean isActionFlushEnabled() {
+        return (isActionFlushEnabled == null) ? super.isActionFlushEnabled() : isActionFlushEnabled;
+    }
 }
@@ -25,6 +25,7 @@ import org.auraframework.http.AuraBaseServlet;
 import org.auraframework.integration.test.util.AuraHttpTestCase;
 import org.auraframework.system.AuraContext.Format;
 import org.auraframework.util.AuraTextUtil;
+import org.auraframework.util.json.CborEncoder;
 import org.auraframework.util.json.JsonEncoder;
 import org.junit.Test;
 
@@ -54,6 +55,7 @@ public class AuraFormatsHttpTest extends AuraHttpTestCase {
         FORMAT_CONTENTTYPE.put(Format.MANIFEST, "text/cache-manifest;charset=" + AuraBaseServlet.UTF_ENCODING);
         FORMAT_CONTENTTYPE.put(Format.SVG, "image/svg+xml;charset=" + AuraBaseServlet.UTF_ENCODING);
         FORMAT_CONTENTTYPE.put(Format.ENCRYPTIONKEY, "text/plain;charset=" + AuraBaseServlet.UTF_ENCODING);
+        FORMAT_CONTENTTYPE.put(Format.CBOR, CborEncoder.MIME_TYPE + ";charset=" + AuraBaseServlet.UTF_ENCODING);
     }
 
     private void requestAndAssertContentType(HttpRequestBase method, String url, Format format, boolean expectHeaders)
@@ -76,6 +78,10 @@ public class AuraFormatsHttpTest extends AuraHttpTestCase {
     }
 
     private void postOnAuraServlet(Format f, Boolean causeException) throws Exception {
+        postOnAuraServlet(f, f, causeException);
+    }
+
+    private void postOnAuraServlet(Format f, Format expected, Boolean causeException) throws Exception {
         Map<String, Object> message = new HashMap<>();
         Map<String, Object> actionInstance = new HashMap<>();
         actionInstance.put("descriptor",
@@ -90,11 +96,11 @@ public class AuraFormatsHttpTest extends AuraHttpTestCase {
         }
         params.put("aura.context", String.format("{\"mode\":\"FTEST\",\"fwuid\":\"%s\"}",
                 configAdapter.getAuraFrameworkNonce()));
-        params.put("aura.format", "JSON");
+        params.put("aura.format", f.toString());
         HttpPost post = obtainPostMethod("/aura", params);
         requestAndAssertContentType(post,
-                "java://org.auraframework.components.test.java.controller.JavaTestController/ACTION$getString", f,
-                !causeException);
+                "java://org.auraframework.components.test.java.controller.JavaTestController/ACTION$getString",
+                expected, !causeException);
     }
 
     /**
@@ -120,6 +126,12 @@ public class AuraFormatsHttpTest extends AuraHttpTestCase {
                 // Non Quick fix exception
                 getOnAuraServlet(format, "", false);
                 break;
+            case CBOR:
+                // Valid component post request
+                postOnAuraServlet(format, false);
+                // Exception, written as json
+                postOnAuraServlet(format, Format.JSON, true);
+                break;
             case JS:// No implementation for this format
             case CSS:// No implementation for this format
             case SVG:// No implementation for this format
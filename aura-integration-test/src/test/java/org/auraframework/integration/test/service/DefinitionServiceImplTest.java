@@ -46,6 +46,7 @@ import org.auraframework.system.AuraContext.Format;
 import org.auraframework.system.AuraContext.Mode;
 import org.auraframework.system.DefRegistry;
 import org.auraframework.system.DependencyEntry;
+import org.auraframework.system.DependencyKey;
 import org.auraframework.system.SourceLoader;
 import org.auraframework.test.source.StringSourceLoader;
 import org.auraframework.test.source.StringSourceLoader.NamespaceAccess;
@@ -890,13 +891,13 @@ public class DefinitionServiceImplTest extends AuraImplTestCase {
         DefDescriptor<?> descriptor = definitionService.getDefDescriptor("markup://ui:button", ComponentDef.class);
         
         CachingService cachingService = definitionServiceImpl.getCachingService();
-        Cache<String, DependencyEntry> depsCache = cachingService.getDepsCache();
+        Cache<DependencyKey, DependencyEntry> depsCache = cachingService.getDepsCache();
         
         // first call to perform side effect of adding definition to defsCache
         String uid = definitionServiceImpl.getUid(null, descriptor);
         Boolean foundit = false;
-        for(String key : depsCache.getKeySet()) {
-            if(key.contains("markup://ui:button")) {
+        for(DependencyKey key : depsCache.getKeySet()) {
+            if(key.toString().contains("markup://ui:button")) {
                 foundit = true;
             }
         }
@@ -905,8 +906,8 @@ public class DefinitionServiceImplTest extends AuraImplTestCase {
         // remove DE from depsCache
         depsCache.invalidateAll();
         foundit = false;
-        for(String key : depsCache.getKeySet()) {
-            if(key.contains("markup://ui:button")) {
+        for(DependencyKey key : depsCache.getKeySet()) {
+            if(key.toString().contains("markup://ui:button")) {
                 foundit = true;
             }
         }
@@ -918,8 +919,8 @@ public class DefinitionServiceImplTest extends AuraImplTestCase {
         // perform another getUid()->compileDE() and verify DE is put in depsCache even though definition is already in defsCache
         definitionService.getUid(uid, descriptor);
         foundit = false;
-        for(String key : depsCache.getKeySet()) {
-            if(key.contains("markup://ui:button")) {
+        for(DependencyKey key : depsCache.getKeySet()) {
+            if(key.toString().contains("markup://ui:button")) {
                 foundit = true;
             }
         }
@@ -20,6 +20,7 @@ import static org.mockito.Mockito.when;
 import static org.junit.Assert.assertThat;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
@@ -28,6 +29,11 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -42,10 +48,12 @@ import org.auraframework.def.DefinitionAccess;
 import org.auraframework.def.TypeDef;
 import org.auraframework.def.ValueDef;
 import org.auraframework.impl.AuraImplTestCase;
+import org.auraframework.impl.ServerServiceImpl;
 import org.auraframework.instance.AbstractActionImpl;
 import org.auraframework.instance.Action;
 import org.auraframework.instance.ActionDelegate;
 import org.auraframework.instance.Component;
+import org.auraframework.service.CachingService;
 import org.auraframework.service.DefinitionService;
 import org.auraframework.service.InstanceService;
 import org.auraframework.service.ServerService;
@@ -64,6 +72,7 @@ import org.auraframework.util.json.JsonStreamReader;
 import org.hamcrest.CoreMatchers;
 import org.junit.Test;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -76,6 +85,9 @@ public class ServerServiceImplTest extends AuraImplTestCase {
     @Inject
     private ServerService serverService;
 
+    @Inject
+    private CachingService cachingService;
+
     public ServerServiceImplTest() {
         super();
         setShouldSetupContext(false);
@@ -257,6 +269,43 @@ public class ServerServiceImplTest extends AuraImplTestCase {
         }
     };
 
+    /**
+     * An action that can run concurrently, and waits until all of the actions sharing its latch are running.
+     */
+    private class ConcurrentEmptyAction extends EmptyAction {
+        private final CountDownLatch running;
+        private final DefDescriptor<ComponentDef> loaded;
+        private final String loadedUid;
+        private AuraContext runContext;
+        private boolean overlapped;
+
+        public ConcurrentEmptyAction(String name, CountDownLatch running, DefinitionService definitionService) {
+            super(null, name, definitionService);
+            this.running = running;
+            this.loaded = definitionService.getDefDescriptor("markup://concurrent:" + name.replace(" ", ""),
+                    ComponentDef.class);
+            this.loadedUid = "uid-" + name.replace(" ", "");
+        }
+
+        @Override
+        public boolean isConcurrent() {
+            return true;
+        }
+
+        @Override
+        public void run() throws AuraExecutionException {
+            this.runContext = contextService.getCurrentContext();
+            runContext.addLoaded(loaded, loadedUid);
+            running.countDown();
+            try {
+                this.overlapped = running.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            super.run();
+        }
+    }
+
     private static class ShareCmpAction extends ActionDelegate {
 
         private Map<String, Object> componentAttributes = null;
@@ -416,6 +465,64 @@ public class ServerServiceImplTest extends AuraImplTestCase {
                 Arrays.asList("first action", "second action", "third action"));
     }
 
+    /**
+     * Test that the response is flushed after each action when action flush is enabled.
+     */
+    @Test
+    public void testActionFlushEnabled() throws Exception {
+        contextService.startContext(Mode.UTEST, Format.JSON, Authentication.AUTHENTICATED);
+        List<Action> actions = Lists.newArrayList(new EmptyAction(definitionService), new EmptyAction(definitionService));
+        final AtomicInteger flushes = new AtomicInteger();
+        StringWriter sw = new StringWriter() {
+            @Override
+            public void flush() {
+                flushes.incrementAndGet();
+            }
+        };
+
+        serverService.run(new Message(actions), contextService.getCurrentContext(), sw, null);
+        int unflushed = flushes.getAndSet(0);
+        getMockConfigAdapter().setActionFlushEnabled(true);
+        serverService.run(new Message(actions), contextService.getCurrentContext(), sw, null);
+
+        assertEquals("Response should be flushed once per action", unflushed + actions.size(), flushes.get());
+    }
+
+    /**
+     * Concurrent actions run at the same time, each in its own context, and are still written in order. What they
+     * load in their own contexts is added to the request context.
+     */
+    @Test
+    public void testConcurrentActions() throws Exception {
+        contextService.startContext(Mode.UTEST, Format.JSON, Authentication.AUTHENTICATED);
+        CountDownLatch running = new CountDownLatch(3);
+        List<ConcurrentEmptyAction> actions = Lists.newArrayList(
+                new ConcurrentEmptyAction("first action", running, definitionService),
+                new ConcurrentEmptyAction("second action", running, definitionService),
+                new ConcurrentEmptyAction("third action", running, definitionService));
+        Message message = new Message(Lists.<Action>newArrayList(actions));
+        StringWriter sw = new StringWriter();
+        ServerServiceImpl serverServiceImpl = (ServerServiceImpl) serverService;
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        serverServiceImpl.setActionExecutor(executor);
+        try {
+            serverService.run(message, contextService.getCurrentContext(), sw, null);
+        } finally {
+            serverServiceImpl.setActionExecutor(null);
+            executor.shutdown();
+        }
+
+        validateEmptyActionSerialization(sw.toString(), null,
+                Arrays.asList("first action", "second action", "third action"));
+        for (ConcurrentEmptyAction action : actions) {
+            assertTrue("actions should run at the same time", action.overlapped);
+            assertNotNull(action.runContext);
+            assertNotSame(contextService.getCurrentContext(), action.runContext);
+            assertEquals(action.loadedUid, contextService.getCurrentContext().getUid(action.loaded));
+        }
+    }
+
     /**
      * This test is for W-2063110 Running the same action twice in a list since we output right after the run, we can
      * reuse the action. the second run will over-write the previous run's returnValue(unless we change the run()), but
@@ -482,6 +589,29 @@ public class ServerServiceImplTest extends AuraImplTestCase {
         assertEquals("Expected extras to be in " + json, "that", json.get("this"));
     }
 
+    /**
+     * The CBOR response is one indefinite length map, with the extras written as text.
+     */
+    @Test
+    public void testSimpleActionWithExtrasInCbor() throws Exception {
+        contextService.startContext(Mode.UTEST, Format.CBOR, Authentication.AUTHENTICATED);
+
+        Action a = new EmptyAction(definitionService);
+        List<Action> actions = Lists.newArrayList(a);
+        Map<String, String> extras = Maps.newHashMap();
+        Message message = new Message(actions);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        extras.put("this", "that");
+        serverService.run(message, contextService.getCurrentContext(), out, extras);
+
+        byte[] bytes = out.toByteArray();
+        assertEquals(0xbf, bytes[0] & 0xff);
+        assertEquals(0xff, bytes[bytes.length - 1] & 0xff);
+        // text(4) "this", text(4) "that", text(7) "actions"
+        String response = new String(bytes, Charsets.ISO_8859_1);
+        assertTrue(response.startsWith("\u00bf\u0064this\u0064that\u0067actions"));
+    }
+
     /**
      * Sanity check to make sure that app.css does not have duplicate copy of component CSS. Component CSS was being
      * added twice, once because they were part of preload namespace and a second time because of component dependency.
@@ -635,6 +765,37 @@ public class ServerServiceImplTest extends AuraImplTestCase {
                 firstOutput.equals(secondOutput));
     }
 
+    /**
+     * Verify that enabling streaming definitions writes the same output as building them, and fills the cache.
+     *
+     * Definitions are only streamed when the alt strings cache has secondary storage, otherwise they are built.
+     */
+    @Test
+    public void testWriteDefinitionsStreaming() throws Exception {
+        DefDescriptor<ApplicationDef> appDesc = definitionService
+                .getDefDescriptor("appCache:withpreload", ApplicationDef.class);
+        AuraContext context = contextService
+                .startContext(Mode.DEV, AuraContext.Format.JS, AuraContext.Authentication.AUTHENTICATED, appDesc);
+        final String uid = definitionService.getUid(null, appDesc);
+        context.addLoaded(appDesc, uid);
+        Set<DefDescriptor<?>> dependencies = definitionService.getDependencies(uid);
+
+        StringWriter output = new StringWriter();
+        serverService.writeDefinitions(dependencies, output);
+        String built = output.toString();
+
+        cachingService.getAltStringsCache().invalidateAll();
+        getMockConfigAdapter().setStreamingDefinitionsEnabled(true);
+        output = new StringWriter();
+        serverService.writeDefinitions(dependencies, output);
+        assertEquals("Streamed definitions should match built definitions", built, output.toString());
+
+        // now from the cache filled while streaming
+        output = new StringWriter();
+        serverService.writeDefinitions(dependencies, output);
+        assertEquals("Cached streamed definitions should match built definitions", built, output.toString());
+    }
+
     /**
      * Verify that metrics service writes data out.
      */
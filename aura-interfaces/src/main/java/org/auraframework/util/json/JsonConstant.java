@@ -107,7 +107,7 @@ public enum JsonConstant {
         }
     }
 
-    public static JsonConstant valueOf(Character c) {
+    public static JsonConstant valueOf(char c) {
 
         JsonConstant ret = null;
         int charVal = c;
@@ -25,4 +25,10 @@ import org.auraframework.modules.ModulesCompilerData;
 interface ModulesCompiler {
     
     ModulesCompilerData compile(String entry, Map<String, String> sources) throws Exception;
+
+    /**
+     * Release what the compiler holds on to, such as runtimes. The compiler can still be used afterwards.
+     */
+    default void shutdown() {
+    }
 }
@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.modules.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.auraframework.def.module.ModuleDef.CodeType;
+import org.auraframework.modules.ModulesCompilerData;
+import org.auraframework.util.json.JsonEncoder;
+import org.auraframework.util.json.JsonReader;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * ModulesCompiler that keeps what another compiler compiles, in memory and on disk, by a hash of the compiler
+ * version, the entry and the sources. A module is only compiled again when one of those has changed, so restarts and
+ * rebuilds only compile the modules whose sources changed.
+ *
+ * Each compiled module is a json file in the directory, named by its hash, so a directory can be shared by servers
+ * that run the same compiler as the same user. Files that cannot be read are compiled again. Compiler errors are not
+ * kept.
+ *
+ * The directory is created readable by its owner only. Where the file system has owners and permissions, a directory
+ * or file that belongs to another user, or that others can write to, is never read, since its content is served as
+ * code.
+ */
+final class ModulesCompilerCache implements ModulesCompiler {
+
+    private static final Logger logger = Logger.getLogger(ModulesCompilerCache.class.getName());
+
+    /**
+     * Part of every key, to be changed when the format of the files changes.
+     */
+    private static final String FORMAT_VERSION = "1";
+
+    private static final Set<PosixFilePermission> OTHERS_WRITE = EnumSet.of(PosixFilePermission.GROUP_WRITE,
+            PosixFilePermission.OTHERS_WRITE);
+
+    private final ModulesCompiler compiler;
+    private final String compilerVersion;
+    private final File directory;
+    private final UserPrincipal owner;
+    private final Cache<String, ModulesCompilerData> memory;
+
+    /**
+     * @param compiler the compiler for modules that are not in the cache.
+     * @param compilerVersion the version of the compiler, such as a hash of its script.
+     * @param directory the directory for the files, or null to keep modules in memory only.
+     * @param size the most modules to keep in memory.
+     */
+    ModulesCompilerCache(ModulesCompiler compiler, String compilerVersion, File directory, long size) {
+        this.compiler = compiler;
+        this.compilerVersion = compilerVersion;
+        this.directory = directory;
+        this.memory = CacheBuilder.newBuilder().maximumSize(size).build();
+        this.owner = directory != null ? createDirectory(directory.toPath()) : null;
+    }
+
+    /**
+     * Create the directory for the files, or check that an existing one is safe to read.
+     *
+     * @return the user the files must belong to, or null if the file system doesn't have owners.
+     * @throws IllegalArgumentException if the directory can't be created, or is not safe to read.
+     */
+    private static UserPrincipal createDirectory(Path path) {
+        try {
+            if (!supportsPosix(path)) {
+                Files.createDirectories(path);
+                return null;
+            }
+            if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+                Files.createDirectories(path.toAbsolutePath().getParent());
+                Files.createDirectory(path,
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            }
+            UserPrincipal user = path.getFileSystem().getUserPrincipalLookupService()
+                    .lookupPrincipalByName(System.getProperty("user.name"));
+            if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS) || !isSafe(path, user)) {
+                throw new IllegalArgumentException("Modules compiler cache " + path
+                        + " must be a directory that only " + user.getName() + " can write to");
+            }
+            return user;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to create modules compiler cache in " + path, e);
+        }
+    }
+
+    private static boolean supportsPosix(Path path) {
+        return path.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+
+    /**
+     * Check that a file or directory belongs to a user, and that no one else can write to it.
+     */
+    private static boolean isSafe(Path path, UserPrincipal user) throws IOException {
+        PosixFileAttributes attributes = Files.readAttributes(path, PosixFileAttributes.class,
+                LinkOption.NOFOLLOW_LINKS);
+        return attributes.owner().equals(user) && Collections.disjoint(attributes.permissions(), OTHERS_WRITE);
+    }
+
+    /**
+     * Get the version of a compiler, a hash of its script and of the options it is always given.
+     */
+    static String versionOf(File script, String options) throws IOException {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putBytes(Files.readAllBytes(script.toPath()));
+        putString(hasher, options);
+        return hasher.hash().toString();
+    }
+
+    @Override
+    public ModulesCompilerData compile(String entry, Map<String, String> sources) throws Exception {
+        String key = getKey(entry, sources);
+        ModulesCompilerData data = memory.getIfPresent(key);
+        if (data == null) {
+            data = read(key);
+            if (data == null) {
+                data = compiler.compile(entry, sources);
+                write(key, data);
+            }
+            memory.put(key, data);
+        }
+        return data;
+    }
+
+    @Override
+    public void shutdown() {
+        compiler.shutdown();
+    }
+
+    String getKey(String entry, Map<String, String> sources) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        putString(hasher, FORMAT_VERSION);
+        putString(hasher, compilerVersion);
+        putString(hasher, entry);
+        for (Entry<String, String> source : new TreeMap<>(sources).entrySet()) {
+            putString(hasher, source.getKey());
+            putString(hasher, source.getValue());
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Put a string with its length, so that the strings before and after it cannot run together.
+     */
+    private static void putString(Hasher hasher, String value) {
+        hasher.putInt(value.length()).putString(value, StandardCharsets.UTF_8);
+    }
+
+    private File getFile(String key) {
+        return new File(directory, key + ".json");
+    }
+
+    private ModulesCompilerData read(String key) {
+        if (directory == null) {
+            return null;
+        }
+        File file = getFile(key);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            if (!Files.isRegularFile(file.toPath(), LinkOption.NOFOLLOW_LINKS)
+                    || (owner != null && !isSafe(file.toPath(), owner))) {
+                logger.log(Level.WARNING, "ModulesCompilerCache: ignoring " + file
+                        + ", it was not written by this cache");
+                return null;
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "ModulesCompilerCache: unable to check " + file, e);
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            Map<?, ?> json = (Map<?, ?>) new JsonReader().read(reader);
+            Map<CodeType, String> codes = new EnumMap<>(CodeType.class);
+            for (Entry<?, ?> code : ((Map<?, ?>) json.get("codes")).entrySet()) {
+                codes.put(CodeType.valueOf((String) code.getKey()), (String) code.getValue());
+            }
+            return new ModulesCompilerData(codes, toSet(json.get("bundleDependencies")), toSet(json.get("labels")));
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "ModulesCompilerCache: unable to read " + file + ", compiling again", e);
+            file.delete();
+            return null;
+        }
+    }
+
+    private static HashSet<String> toSet(Object json) {
+        HashSet<String> set = new HashSet<>();
+        for (Object value : (List<?>) json) {
+            set.add((String) value);
+        }
+        return set;
+    }
+
+    /**
+     * Write a module to a temporary file that is then moved into place, so that a file is never read before it has
+     * been written in full.
+     */
+    private void write(String key, ModulesCompilerData data) {
+        if (directory == null) {
+            return;
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        Map<String, String> codes = new LinkedHashMap<>();
+        for (Entry<CodeType, String> code : data.codes.entrySet()) {
+            codes.put(code.getKey().name(), code.getValue());
+        }
+        json.put("codes", codes);
+        json.put("bundleDependencies", new ArrayList<>(data.bundleDependencies));
+        json.put("labels", new ArrayList<>(data.labels));
+
+        File file = getFile(key);
+        File temp = null;
+        try {
+            if (owner != null) {
+                temp = Files.createTempFile(directory.toPath(), key, ".tmp",
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))).toFile();
+            } else {
+                temp = File.createTempFile(key, ".tmp", directory);
+            }
+            try (Writer writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+                JsonEncoder.serialize(json, writer);
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "ModulesCompilerCache: unable to write " + file, e);
+            if (temp != null) {
+                temp.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.modules.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.auraframework.modules.ModulesCompilerData;
+import org.auraframework.util.j2v8.J2V8Util;
+import org.json.JSONObject;
+
+import com.eclipsesource.v8.JavaVoidCallback;
+import com.eclipsesource.v8.NodeJS;
+import com.eclipsesource.v8.V8;
+import com.eclipsesource.v8.V8Array;
+import com.eclipsesource.v8.utils.MemoryManager;
+
+/**
+ * ModulesCompiler implementation that keeps a pool of J2V8 runtimes with the compiler already loaded, so that a
+ * compile does not pay for starting node and loading the compiler, the way {@link ModulesCompilerJ2V8} does.
+ *
+ * A runtime compiles one module at a time. Up to the size of the pool modules are compiled at once, each on its own
+ * runtime, and more compiles wait for one of those to finish. Runtimes are started as they are first needed, and a
+ * runtime that fails is released and replaced by a new one.
+ */
+final class ModulesCompilerJ2V8Pool implements ModulesCompiler {
+
+    private static final Logger logger = Logger.getLogger(ModulesCompilerJ2V8Pool.class.getName());
+
+    /**
+     * Loads the compiler, and defines the function that starts a compile. The compile is started from an immediate,
+     * so that node runs the promise callbacks as it handles its messages.
+     */
+    private static final String LOADER_SCRIPT = ""
+            + "const compiler = require('" + ModulesCompilerUtil.COMPILER_JS_PATH + "');"
+            + "global.compileModule = function(entry, options) {"
+            + "  setImmediate(function() {"
+            + "    compiler.compile(entry, JSON.parse(options)).then(onResultCallback).catch(onErrorCallback);"
+            + "  });"
+            + "};";
+
+    private final Semaphore available;
+    private final BlockingQueue<PooledRuntime> idle = new LinkedBlockingQueue<>();
+
+    /**
+     * @param size the most runtimes to keep, and so the most modules to compile at once.
+     */
+    ModulesCompilerJ2V8Pool(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("pool size must be at least 1: " + size);
+        }
+        this.available = new Semaphore(size);
+    }
+
+    @Override
+    public ModulesCompilerData compile(String entry, Map<String, String> sources) throws Exception {
+        JSONObject input = ModulesCompilerUtil.generateCompilerInput(entry, sources);
+        String options = input.getJSONObject("options").toString();
+
+        CompletableFuture<ModulesCompilerData> future;
+        available.acquire();
+        try {
+            // with a permit held, every runtime that is not idle is in use by another permit, so there is room to
+            // start one
+            PooledRuntime runtime = idle.poll();
+            if (runtime == null) {
+                runtime = new PooledRuntime();
+            } else {
+                runtime.lock();
+            }
+            try {
+                future = runtime.compile(entry, options);
+            } catch (Exception | Error e) {
+                logger.log(Level.WARNING, "ModulesCompilerJ2V8Pool: releasing runtime after " + entry, e);
+                runtime.release();
+                throw e;
+            }
+            runtime.unlock();
+            idle.add(runtime);
+        } finally {
+            available.release();
+        }
+        return future.get();
+    }
+
+    /**
+     * Release the runtimes that are not in use. Runtimes are started again as they are needed.
+     */
+    @Override
+    public void shutdown() {
+        PooledRuntime runtime;
+        while ((runtime = idle.poll()) != null) {
+            runtime.lock();
+            runtime.release();
+        }
+    }
+
+    /**
+     * A node runtime with the compiler loaded. It must be locked by the thread that uses it.
+     */
+    private static final class PooledRuntime {
+        private final NodeJS nodeJS;
+        private String entry;
+        private CompletableFuture<ModulesCompilerData> future;
+
+        /**
+         * Start a runtime, locked by the current thread.
+         */
+        PooledRuntime() throws IOException {
+            nodeJS = J2V8Util.createNodeJS();
+            try {
+                JavaVoidCallback onErrorCallback = (receiver, parameters) -> {
+                    String error = parameters.toString();
+                    future.completeExceptionally(new RuntimeException(error));
+                    logger.warning("ModulesCompilerJ2V8Pool: error " + entry + ": " + error);
+                };
+                JavaVoidCallback onResultCallback = (receiver, parameters) -> {
+                    future.complete(ModulesCompilerUtil.parseCompilerOutput(parameters.getObject(0)));
+                };
+                nodeJS.getRuntime().registerJavaMethod(onErrorCallback, "onErrorCallback");
+                nodeJS.getRuntime().registerJavaMethod(onResultCallback, "onResultCallback");
+
+                File loaderScript = ModulesCompilerUtil.createTempScriptFile(LOADER_SCRIPT, "loader");
+                try {
+                    nodeJS.exec(loaderScript);
+                    while (nodeJS.isRunning()) {
+                        nodeJS.handleMessage();
+                    }
+                } finally {
+                    loaderScript.delete();
+                }
+            } catch (IOException | RuntimeException | Error e) {
+                nodeJS.release();
+                throw e;
+            }
+        }
+
+        CompletableFuture<ModulesCompilerData> compile(String entry, String options) {
+            this.entry = entry;
+            this.future = new CompletableFuture<>();
+            V8 runtime = nodeJS.getRuntime();
+            MemoryManager memoryManager = new MemoryManager(runtime);
+            try {
+                V8Array parameters = new V8Array(runtime).push(entry).push(options);
+                runtime.executeVoidFunction("compileModule", parameters);
+                // node does not report that it is running until it has handled the immediate
+                do {
+                    nodeJS.handleMessage();
+                } while (!future.isDone() && nodeJS.isRunning());
+            } finally {
+                memoryManager.release();
+            }
+            if (!future.isDone()) {
+                throw new IllegalStateException("ModulesCompilerJ2V8Pool: compiler did not finish " + entry);
+            }
+            return future;
+        }
+
+        void lock() {
+            nodeJS.getRuntime().getLocker().acquire();
+        }
+
+        void unlock() {
+            nodeJS.getRuntime().getLocker().release();
+        }
+
+        void release() {
+            nodeJS.release();
+        }
+    }
+}
@@ -15,23 +15,82 @@
  */
 package org.auraframework.modules.impl;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
 import org.auraframework.annotations.Annotations.ServiceComponent;
 import org.auraframework.modules.ModulesCompilerData;
 import org.auraframework.service.LoggingService;
 import org.auraframework.service.ModulesCompilerService;
+import org.auraframework.util.j2v8.J2V8Util;
+import org.json.JSONException;
 
 @ServiceComponent
 public class ModulesCompilerServiceImpl implements ModulesCompilerService {
     
-    private static final ModulesCompiler compiler = new ModulesCompilerNode();
+    private static final Logger logger = Logger.getLogger(ModulesCompilerServiceImpl.class.getName());
+
+    private static final ModulesCompiler compiler = createCache(createCompiler());
 
     @Inject
     private LoggingService loggingService;
 
+    /**
+     * Compile with node, or with a pool of J2V8 runtimes when the system property aura.modules.compiler is "j2v8"
+     * and J2V8 is available. The size of the pool is aura.modules.compiler.pool, by default one runtime for each
+     * processor.
+     */
+    private static ModulesCompiler createCompiler() {
+        if ("j2v8".equals(System.getProperty("aura.modules.compiler")) && J2V8Util.isJ2V8Available()) {
+            int size = Integer.getInteger("aura.modules.compiler.pool", Runtime.getRuntime().availableProcessors());
+            return new ModulesCompilerJ2V8Pool(size);
+        }
+        return new ModulesCompilerNode();
+    }
+
+    /**
+     * Keep the most recently used aura.modules.compilerCacheSize compiled modules in memory, unless the system
+     * property aura.modules.compilerCache is false. They are also kept on disk only when aura.modules.compilerCacheDir
+     * names a directory for them, which is created readable by its owner only.
+     */
+    private static ModulesCompiler createCache(ModulesCompiler compiler) {
+        if (!Boolean.parseBoolean(System.getProperty("aura.modules.compilerCache", "true"))) {
+            return compiler;
+        }
+        String directory = System.getProperty("aura.modules.compilerCacheDir");
+        long size = Long.getLong("aura.modules.compilerCacheSize", 1000L);
+        String version;
+        try {
+            version = ModulesCompilerCache.versionOf(new File(ModulesCompilerUtil.COMPILER_JS_PATH),
+                    ModulesCompilerUtil.generateCompilerOptions().toString());
+        } catch (IOException | JSONException e) {
+            logger.log(Level.WARNING, "ModulesCompilerServiceImpl: not caching compiled modules", e);
+            return compiler;
+        }
+        if (directory != null) {
+            try {
+                return new ModulesCompilerCache(compiler, version, new File(directory), size);
+            } catch (IllegalArgumentException e) {
+                logger.log(Level.WARNING, "ModulesCompilerServiceImpl: caching compiled modules in memory only", e);
+            }
+        }
+        return new ModulesCompilerCache(compiler, version, null, size);
+    }
+
+    /**
+     * Release the runtimes of the shared compiler, so that they do not outlive the application.
+     */
+    @PreDestroy
+    public void shutdown() {
+        compiler.shutdown();
+    }
+
     @Override
     public final ModulesCompilerData compile(String entry, Map<String, String> sources) throws Exception {
         long startNanos = System.nanoTime();
@@ -74,11 +74,19 @@ public final class ModulesCompilerUtil {
         return file;
     }
 
-    static JSONObject generateCompilerInput(String entry, Map<String, String> sources) throws JSONException {
+    /**
+     * The options passed to the compiler along with the sources of a module.
+     */
+    static JSONObject generateCompilerOptions() throws JSONException {
         JSONObject options = new JSONObject();
         options.put("format", "amd");
         options.put("mode", "all");
         options.put("mapNamespaceFromPath", true);
+        return options;
+    }
+
+    static JSONObject generateCompilerInput(String entry, Map<String, String> sources) throws JSONException {
+        JSONObject options = generateCompilerOptions();
 
         // add entries for all files in the bundle
         JSONObject sourcesObject = new JSONObject();
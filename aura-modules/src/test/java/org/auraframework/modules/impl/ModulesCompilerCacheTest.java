@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.modules.impl;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.auraframework.def.module.ModuleDef.CodeType;
+import org.auraframework.modules.ModulesCompilerData;
+import org.auraframework.util.IOUtil;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class ModulesCompilerCacheTest extends UnitTestCase {
+
+    private static final String ENTRY = "modules/moduletest/moduletest.js";
+
+    /**
+     * Compiles a module to its sources, and counts the compiles.
+     */
+    private static class CountingCompiler implements ModulesCompiler {
+        int count;
+        int shutdowns;
+
+        @Override
+        public ModulesCompilerData compile(String entry, Map<String, String> sources) throws Exception {
+            count++;
+            if (sources.containsKey("error")) {
+                throw new RuntimeException("compile error " + count);
+            }
+            Map<CodeType, String> codes = new EnumMap<>(CodeType.class);
+            codes.put(CodeType.DEV, "dev " + sources.get(entry));
+            codes.put(CodeType.PROD, "prod " + sources.get(entry));
+            codes.put(CodeType.COMPAT, "compat " + sources.get(entry));
+            return new ModulesCompilerData(codes, Sets.newHashSet("x-test"), Sets.newHashSet("Section.label"));
+        }
+
+        @Override
+        public void shutdown() {
+            shutdowns++;
+        }
+    }
+
+    private File directory;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        directory = new File(IOUtil.newTempDir("modulesCache"));
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        IOUtil.delete(directory);
+        super.tearDown();
+    }
+
+    private static Map<String, String> sources(String js) {
+        Map<String, String> sources = new LinkedHashMap<>();
+        sources.put(ENTRY, js);
+        sources.put("modules/moduletest/moduletest.html", "<template></template>");
+        return sources;
+    }
+
+    @Test
+    public void testCompilesOnce() throws Exception {
+        CountingCompiler compiler = new CountingCompiler();
+        ModulesCompilerCache cache = new ModulesCompilerCache(compiler, "1", directory, 10);
+
+        ModulesCompilerData first = cache.compile(ENTRY, sources("a"));
+        ModulesCompilerData second = cache.compile(ENTRY, sources("a"));
+
+        assertEquals(1, compiler.count);
+        assertSame(first, second);
+        assertEquals("dev a", second.codes.get(CodeType.DEV));
+    }
+
+    @Test
+    public void testReadsFromDisk() throws Exception {
+        new ModulesCompilerCache(new CountingCompiler(), "1", directory, 10).compile(ENTRY, sources("a"));
+
+        CountingCompiler compiler = new CountingCompiler();
+        ModulesCompilerData data = new ModulesCompilerCache(compiler, "1", directory, 10).compile(ENTRY, sources("a"));
+
+        assertEquals(0, compiler.count);
+        assertEquals("dev a", data.codes.get(CodeType.DEV));
+        assertEquals("prod a", data.codes.get(CodeType.PROD));
+        assertEquals("compat a", data.codes.get(CodeType.COMPAT));
+        assertEquals(Sets.newHashSet("x-test"), data.bundleDependencies);
+        assertEquals(Sets.newHashSet("Section.label"), data.labels);
+    }
+
+    @Test
+    public void testCompilesChangedSources() throws Exception {
+        CountingCompiler compiler = new CountingCompiler();
+        ModulesCompilerCache cache = new ModulesCompilerCache(compiler, "1", directory, 10);
+
+        cache.compile(ENTRY, sources("a"));
+        ModulesCompilerData data = cache.compile(ENTRY, sources("b"));
+
+        assertEquals(2, compiler.count);
+        assertEquals("dev b", data.codes.get(CodeType.DEV));
+    }
+
+    @Test
+    public void testCompilesForNewCompilerVersion() throws Exception {
+        new ModulesCompilerCache(new CountingCompiler(), "1", directory, 10).compile(ENTRY, sources("a"));
+
+        CountingCompiler compiler = new CountingCompiler();
+        new ModulesCompilerCache(compiler, "2", directory, 10).compile(ENTRY, sources("a"));
+
+        assertEquals(1, compiler.count);
+    }
+
+    @Test
+    public void testKeyDoesNotDependOnOrder() {
+        ModulesCompilerCache cache = new ModulesCompilerCache(new CountingCompiler(), "1", null, 10);
+        Map<String, String> reversed = new LinkedHashMap<>();
+        reversed.put("modules/moduletest/moduletest.html", "<template></template>");
+        reversed.put(ENTRY, "a");
+
+        assertEquals(cache.getKey(ENTRY, sources("a")), cache.getKey(ENTRY, reversed));
+    }
+
+    @Test
+    public void testKeyKeepsStringsApart() {
+        ModulesCompilerCache cache = new ModulesCompilerCache(new CountingCompiler(), "1", null, 10);
+        Map<String, String> one = new LinkedHashMap<>();
+        one.put("ab", "c");
+        Map<String, String> other = new LinkedHashMap<>();
+        other.put("a", "bc");
+
+        assertFalse(cache.getKey(ENTRY, one).equals(cache.getKey(ENTRY, other)));
+    }
+
+    @Test
+    public void testCompilesAgainForUnreadableFile() throws Exception {
+        ModulesCompilerCache first = new ModulesCompilerCache(new CountingCompiler(), "1", directory, 10);
+        first.compile(ENTRY, sources("a"));
+        File file = new File(directory, first.getKey(ENTRY, sources("a")) + ".json");
+        Files.write(file.toPath(), "{\"codes\":".getBytes(StandardCharsets.UTF_8));
+
+        CountingCompiler compiler = new CountingCompiler();
+        ModulesCompilerData data = new ModulesCompilerCache(compiler, "1", directory, 10).compile(ENTRY, sources("a"));
+
+        assertEquals(1, compiler.count);
+        assertEquals("dev a", data.codes.get(CodeType.DEV));
+    }
+
+    @Test
+    public void testDoesNotKeepErrors() throws Exception {
+        CountingCompiler compiler = new CountingCompiler();
+        ModulesCompilerCache cache = new ModulesCompilerCache(compiler, "1", directory, 10);
+        Map<String, String> sources = sources("a");
+        sources.put("error", "");
+
+        for (int i = 1; i <= 2; i++) {
+            try {
+                cache.compile(ENTRY, sources);
+                fail("should report the compile error");
+            } catch (RuntimeException expected) {
+                assertEquals("compile error " + i, expected.getMessage());
+            }
+        }
+        assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void testMemoryOnly() throws Exception {
+        CountingCompiler compiler = new CountingCompiler();
+        ModulesCompilerCache cache = new ModulesCompilerCache(compiler, "1", null, 10);
+
+        cache.compile(ENTRY, sources("a"));
+        cache.compile(ENTRY, sources("a"));
+
+        assertEquals(1, compiler.count);
+    }
+
+    @Test
+    public void testShutdownReleasesCompiler() throws Exception {
+        CountingCompiler compiler = new CountingCompiler();
+        ModulesCompilerCache cache = new ModulesCompilerCache(compiler, "1", null, 10);
+
+        cache.shutdown();
+
+        assertEquals(1, compiler.shutdowns);
+    }
+
+    @Test
+    public void testVersionDependsOnOptions() throws Exception {
+        File script = new File(directory, "compiler.js");
+        Files.write(script.toPath(), "compile()".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(ModulesCompilerCache.versionOf(script, "{\"format\":\"amd\"}"),
+                ModulesCompilerCache.versionOf(script, "{\"format\":\"amd\"}"));
+        assertFalse(ModulesCompilerCache.versionOf(script, "{\"format\":\"amd\"}")
+                .equals(ModulesCompilerCache.versionOf(script, "{\"format\":\"es\"}")));
+    }
+
+    private boolean supportsPosix() {
+        return directory.toPath().getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+
+    @Test
+    public void testCreatesDirectoryForOwnerOnly() throws Exception {
+        if (!supportsPosix()) {
+            return;
+        }
+        File cacheDirectory = new File(directory, "cache");
+        new ModulesCompilerCache(new CountingCompiler(), "1", cacheDirectory, 10).compile(ENTRY, sources("a"));
+
+        assertEquals(PosixFilePermissions.fromString("rwx------"),
+                Files.getPosixFilePermissions(cacheDirectory.toPath()));
+        File[] files = cacheDirectory.listFiles();
+        assertEquals(1, files.length);
+        assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(files[0].toPath()));
+    }
+
+    @Test
+    public void testRejectsDirectoryOthersCanWrite() throws Exception {
+        if (!supportsPosix()) {
+            return;
+        }
+        Files.setPosixFilePermissions(directory.toPath(), PosixFilePermissions.fromString("rwxrwxrwx"));
+
+        try {
+            new ModulesCompilerCache(new CountingCompiler(), "1", directory, 10);
+            fail("should reject a directory that others can write to");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testIgnoresFileOthersCanWrite() throws Exception {
+        if (!supportsPosix()) {
+            return;
+        }
+        ModulesCompilerCache first = new ModulesCompilerCache(new CountingCompiler(), "1", directory, 10);
+        first.compile(ENTRY, sources("a"));
+        File file = new File(directory, first.getKey(ENTRY, sources("a")) + ".json");
+        Files.setPosixFilePermissions(file.toPath(), PosixFilePermissions.fromString("rw-rw-rw-"));
+
+        CountingCompiler compiler = new CountingCompiler();
+        ModulesCompilerData data = new ModulesCompilerCache(compiler, "1", directory, 10).compile(ENTRY, sources("a"));
+
+        assertEquals(1, compiler.count);
+        assertEquals("dev a", data.codes.get(CodeType.DEV));
+    }
+}
@@ -15,8 +15,14 @@
  */
 package org.auraframework.modules.impl;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.auraframework.def.module.ModuleDef.CodeType;
 import org.auraframework.modules.ModulesCompilerData;
@@ -44,6 +50,51 @@ public class ModulesCompilerTest extends UnitTestCase {
         testModulesCompiler(new ModulesCompilerJ2V8());
     }
 
+    @Test
+    @Ignore("J2V8 tests sometimes flap")
+    public void testModulesCompilerJ2V8Pool() throws Exception {
+        ModulesCompilerJ2V8Pool compiler = new ModulesCompilerJ2V8Pool(2);
+        try {
+            // the second compile reuses the runtime of the first
+            testModulesCompiler(compiler);
+            testModulesCompiler(compiler);
+        } finally {
+            compiler.shutdown();
+        }
+    }
+
+    @Test
+    @Ignore("J2V8 tests sometimes flap")
+    public void testModulesCompilerJ2V8PoolConcurrent() throws Exception {
+        ModulesCompilerJ2V8Pool compiler = new ModulesCompilerJ2V8Pool(2);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    testModulesCompiler(compiler);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+            compiler.shutdown();
+        }
+    }
+
+    @Test
+    public void testModulesCompilerJ2V8PoolSize() throws Exception {
+        try {
+            new ModulesCompilerJ2V8Pool(0);
+            fail("should reject an empty pool");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
     private void testModulesCompiler(ModulesCompiler compiler) throws Exception {
         String entry = "modules/moduletest/moduletest.js";
         String sourceTemplate = Files.toString(getResourceFile("/testdata/modules/moduletest/moduletest.html"),
@@ -95,6 +146,19 @@ public class ModulesCompilerTest extends UnitTestCase {
         }
     }
 
+    @Test
+    @Ignore("J2V8 tests sometimes flap")
+    public void testModulesCompilerJ2V8PoolErrorInHtml() throws Exception {
+        ModulesCompilerJ2V8Pool compiler = new ModulesCompilerJ2V8Pool(1);
+        try {
+            testModulesCompilerErrorInHtml(compiler);
+            // the runtime is still good after an error
+            testModulesCompiler(compiler);
+        } finally {
+            compiler.shutdown();
+        }
+    }
+
     @Test
     public void testModulesCompilerNodeErrorInJs() throws Exception {
         testModulesCompilerErrorInJs(new ModulesCompilerNode());
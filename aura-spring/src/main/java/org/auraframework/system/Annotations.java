@@ -50,6 +50,21 @@ public interface Annotations {
     @interface CabooseAction {
     }
 
+    /**
+     * Marks a method as safe to run at the same time as other concurrent actions in the same request.
+     *
+     * Concurrent actions that are next to each other in a request are run on a shared pool, each with its own
+     * context, and their results are still written in the order of the request. Only mark actions that do not
+     * depend on other actions in the request or change anything in the context other than firing events.
+     * The pool is off unless aura.actions.concurrency is set.
+     *
+     * The AuraEnabled annotation is still required to use this method as a server action.
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.METHOD)
+    @interface ConcurrentAction {
+    }
+
     @Retention(RetentionPolicy.RUNTIME)
     @Target(ElementType.METHOD)
     @interface AuraEnabled {
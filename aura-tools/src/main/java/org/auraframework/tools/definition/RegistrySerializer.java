@@ -19,7 +19,6 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
@@ -37,6 +36,7 @@ import org.auraframework.def.Definition;
 import org.auraframework.def.DescriptorFilter;
 import org.auraframework.def.RootDefinition;
 import org.auraframework.impl.source.BundleSourceImpl;
+import org.auraframework.impl.system.RegistriesFile;
 import org.auraframework.impl.system.StaticDefRegistryImpl;
 import org.auraframework.service.ContextService;
 import org.auraframework.service.RegistryService;
@@ -58,8 +58,9 @@ import com.google.common.collect.Sets;
  * This requires a components directory, an output directory, and optionally can take
  * a set of namespaces to exclude.
  *
- * Note that the output file is a binary object file that is a set of registries,
- * one per namespace, that contain all of the defs that are in the namespaces.
+ * Note that the output file is a binary file that is a set of registries,
+ * one per namespace, that contain all of the defs that are in the namespaces,
+ * in the format of {@link RegistriesFile}.
  */
 public class RegistrySerializer {
     private static final Log log = LogFactory.getLog(RegistrySerializer.class);
@@ -229,7 +230,7 @@ public class RegistrySerializer {
      * @throws RegistrySerializerException if there is an error.
      */
     public void write(@Nonnull OutputStream out, DefRegistry master) throws RegistrySerializerException {
-        List<DefRegistry> regs = Lists.newArrayList();
+        List<StaticDefRegistryImpl> regs = Lists.newArrayList();
 
         Set<String> namespaces = master.getNamespaces();
         if (excluded != null) {
@@ -241,7 +242,7 @@ public class RegistrySerializer {
         }
 
         for (String name : namespaces) {
-            DefRegistry reg = getRegistry(master, name);
+            StaticDefRegistryImpl reg = getRegistry(master, name);
             if (reg != null) {
                 regs.add(reg);
             }
@@ -250,11 +251,9 @@ public class RegistrySerializer {
             return;
         }
 
-        ObjectOutputStream objectOut = null;
         try {
             try {
-                objectOut = new ObjectOutputStream(out);
-                objectOut.writeObject(regs);
+                RegistriesFile.write(regs, out);
             } finally {
                 out.close();
             }
@@ -272,7 +271,7 @@ public class RegistrySerializer {
      *
      * @param namespace the namespace for which we want to retrieve a static registry.
      */
-    private DefRegistry getRegistry(@Nonnull DefRegistry master, @Nonnull String namespace) {
+    private StaticDefRegistryImpl getRegistry(@Nonnull DefRegistry master, @Nonnull String namespace) {
         Set<String> prefixes = Sets.newHashSet();
         Set<DefType> types = Sets.newHashSet();
         Set<DefDescriptor<?>> descriptors;
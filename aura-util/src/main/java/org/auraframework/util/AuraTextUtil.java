@@ -15,7 +15,9 @@
  */
 package org.auraframework.util;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.util.ArrayList;
@@ -219,6 +221,94 @@ public class AuraTextUtil {
         return TrieMatcher.replaceMultiple(in, JSON_SEARCH_REPLACE);
     }
 
+    /**
+     * Escapes a string for JSON straight onto an appendable, the same as {@link #escapeForJSONString(String)}.
+     *
+     * The runs of chars that need no escaping are appended from the string as they are, so a string with nothing to
+     * escape is appended whole, without copying it.
+     *
+     * @param out where to append the escaped string
+     * @param in the incoming (unsafe) string
+     */
+    public static void appendEscapedJSONString(Appendable out, CharSequence in) throws IOException {
+        int length = in.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = in.charAt(i);
+            String replacement;
+            int matched = 1;
+            switch (c) {
+            case '\\':
+                replacement = "\\\\";
+                break;
+            case '\n':
+            case '\u2028':
+                replacement = "\\n";
+                break;
+            case '\r':
+                replacement = "\\r";
+                break;
+            case '\t':
+                replacement = "\\t";
+                break;
+            case '"':
+                replacement = "\\\"";
+                break;
+            case '<':
+                replacement = "\\u003C";
+                break;
+            case '>':
+                replacement = "\\u003E";
+                break;
+            case '\u2029':
+                replacement = "\\u2029";
+                break;
+            case '\u0000':
+                replacement = "";
+                break;
+            case '!':
+                if (i + 2 >= length || in.charAt(i + 1) != '-' || in.charAt(i + 2) != '-') {
+                    continue;
+                }
+                replacement = "\\u0021--";
+                matched = 3;
+                break;
+            case '*':
+                if (i + 1 >= length || in.charAt(i + 1) != '/') {
+                    continue;
+                }
+                replacement = "\\u002A/";
+                matched = 2;
+                break;
+            default:
+                continue;
+            }
+            appendRange(out, in, start, i);
+            out.append(replacement);
+            i += matched - 1;
+            start = i + 1;
+        }
+        if (start == 0) {
+            out.append(in);
+        } else {
+            appendRange(out, in, start, length);
+        }
+    }
+
+    /**
+     * Append part of a string, writing it straight from the string to a writer, where append would copy it first.
+     */
+    private static void appendRange(Appendable out, CharSequence in, int start, int end) throws IOException {
+        if (start == end) {
+            return;
+        }
+        if (out instanceof Writer && in instanceof String) {
+            ((Writer) out).write((String) in, start, end - start);
+        } else {
+            out.append(in, start, end);
+        }
+    }
+
     /**
      * Properly escapes string for JSON Function.
      *
@@ -0,0 +1,363 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util.json;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+import org.auraframework.util.UncloseableOutputStream;
+
+import com.google.common.io.CountingOutputStream;
+
+/**
+ * java -> CBOR (RFC 7049) encoder.
+ *
+ * This writes the same values as {@link JsonEncoder}, through the same serializers, in the compact binary form of
+ * CBOR. Maps and arrays are written with indefinite lengths, so that they can be streamed as they are serialized, the
+ * same as json.
+ *
+ * The values map onto CBOR as follows:
+ * <ol>
+ * <li>Strings: text strings, without the escaping that json needs to be safe in a page
+ * <li>Integers, and numbers without a fraction: integers
+ * <li>Other numbers: floats
+ * <li>true, false, null and undefined literals: the simple values
+ * <li>Other literals, such as javascript functions: text strings tagged with {@link #LITERAL_TAG}
+ * <li>Dates: epoch seconds, tagged 1
+ * <li>Binary streams: byte strings
+ * </ol>
+ *
+ * Comments and formatting are not written.
+ */
+public class CborEncoder extends JsonEncoder {
+    public static final String MIME_TYPE = "application/cbor";
+
+    /**
+     * The tag for a text string that holds a javascript literal, such as a function.
+     */
+    public static final int LITERAL_TAG = 27000;
+
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_BYTES = 2;
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_TAG = 6;
+
+    private static final int ARRAY_BEGIN = 0x9f;
+    private static final int MAP_BEGIN = 0xbf;
+    private static final int BREAK = 0xff;
+    private static final int FALSE = 0xf4;
+    private static final int TRUE = 0xf5;
+    private static final int NULL = 0xf6;
+    private static final int UNDEFINED = 0xf7;
+    private static final int FLOAT = 0xfa;
+    private static final int DOUBLE = 0xfb;
+
+    private static final int TAG_EPOCH = 1;
+
+    private final OutputStream out;
+    private CountingOutputStream currentBinaryStream;
+    private long currentBinaryStreamLength;
+
+    protected CborEncoder(OutputStream out, JsonSerializationContext context) {
+        super(null, null, context);
+        this.out = new BufferedOutputStream(out, 8192);
+    }
+
+    /**
+     * Creates an encoder that streams CBOR to the given OutputStream, one element at a time.<br>
+     * <br>
+     * Note that you will need to call {@link #close()} when you are done to ensure that all bytes have been written
+     * out to the given OutputStream.
+     *
+     * @param out The OutputStream to write the encoded objects to. This must not be null.
+     * @param context The JSON serialization context to use for output
+     * @return A new encoder that you can use for streaming to the given OutputStream
+     */
+    public static CborEncoder createCborStream(@Nonnull OutputStream out, JsonSerializationContext context) {
+        if (out == null) {
+            throw new IllegalArgumentException("out must not be null");
+        }
+        return new CborEncoder(out, context);
+    }
+
+    @Override
+    public void writeIndent() throws IOException {
+    }
+
+    @Override
+    public void writeBreak() throws IOException {
+    }
+
+    @Override
+    public void writeComma() throws IOException {
+    }
+
+    @Override
+    public void writeMapSeparator() throws IOException {
+    }
+
+    @Override
+    public void writeMapBegin() throws IOException {
+        out.write(MAP_BEGIN);
+        pushIndent(IndentType.BRACE);
+    }
+
+    @Override
+    public void writeMapEnd() throws IOException {
+        popIndent(IndentType.BRACE, "Json.writeMapBegin must be called before calling Json.writeMapEnd");
+        out.write(BREAK);
+    }
+
+    @Override
+    public void writeArrayBegin() throws IOException {
+        out.write(ARRAY_BEGIN);
+        pushIndent(IndentType.SQUARE);
+    }
+
+    @Override
+    public void writeArrayEnd() throws IOException {
+        popIndent(IndentType.SQUARE, "Json.writeArrayBegin must be called before calling Json.writeArrayEnd");
+        out.write(BREAK);
+    }
+
+    @Override
+    public void writeCommentBegin() throws IOException {
+        pushIndent(IndentType.COMMENT);
+    }
+
+    @Override
+    public void writeCommentEnd() throws IOException {
+        popIndent(IndentType.COMMENT, "Json.writeCommentEnd must be preceded by Json.writeCommentBegin");
+    }
+
+    @Override
+    public void writeCommentBody(String body) throws IOException {
+        checkIndent(IndentType.COMMENT, "Json.writeCommentBody must be preceded by Json.writeCommentBegin");
+    }
+
+    /**
+     * Write a literal as the CBOR value it stands for, or as a tagged string if it has none.
+     */
+    @Override
+    public void writeLiteral(Object value) throws IOException {
+        if (value instanceof Boolean) {
+            out.write((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Number) {
+            writeNumber((Number) value);
+        } else {
+            String literal = value.toString();
+            switch (literal) {
+            case "null":
+                out.write(NULL);
+                break;
+            case "undefined":
+                out.write(UNDEFINED);
+                break;
+            case "true":
+                out.write(TRUE);
+                break;
+            case "false":
+                out.write(FALSE);
+                break;
+            default:
+                writeHead(MAJOR_TAG, LITERAL_TAG);
+                writeText(literal);
+            }
+        }
+    }
+
+    @Override
+    public void writeString(Object value) throws IOException {
+        writeText(value.toString());
+    }
+
+    @Override
+    public void writeDate(Date value) throws IOException {
+        writeHead(MAJOR_TAG, TAG_EPOCH);
+        writeInteger(Math.floorDiv(value.getTime(), 1000L));
+    }
+
+    /**
+     * Start a byte string of the given length, and return an OutputStream that the caller writes exactly that many
+     * bytes to, before calling {@link #writeBinaryStreamEnd()}.
+     */
+    @Override
+    public OutputStream writeBinaryStreamBegin(long streamLength) throws IOException {
+        if (currentBinaryStream != null) {
+            throw new IllegalStateException("Previous binary stream was not ended");
+        }
+        writeHead(MAJOR_BYTES, streamLength);
+        currentBinaryStreamLength = streamLength;
+        return currentBinaryStream = new CountingOutputStream(new UncloseableOutputStream(out));
+    }
+
+    @Override
+    public void writeBinaryStreamEnd() throws IOException {
+        if (currentBinaryStream == null) {
+            throw new IllegalStateException("Binary stream was not started");
+        }
+        if (currentBinaryStreamLength != currentBinaryStream.getCount()) {
+            throw new IllegalStateException("Length of the binary stream was written out as "
+                    + currentBinaryStreamLength + " bytes, but " + currentBinaryStream.getCount()
+                    + " bytes were actually written to the OutputStream returned by writeBinaryStreamBegin()");
+        }
+        currentBinaryStream = null;
+        currentBinaryStreamLength = 0;
+    }
+
+    /**
+     * There is no text to append to in CBOR.
+     */
+    @Override
+    public Appendable getAppendable() {
+        throw new UnsupportedOperationException("CBOR is not written to an Appendable");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Writes out any buffered bytes and then closes the OutputStream.
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeNumber(Number value) throws IOException {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof AtomicInteger || value instanceof AtomicLong) {
+            writeInteger(value.longValue());
+        } else if (value instanceof BigDecimal) {
+            BigDecimal bd = (BigDecimal) value;
+            if (bd.scale() <= 0 && bd.precision() - bd.scale() < 19) {
+                writeInteger(bd.longValue());
+            } else {
+                writeDouble(bd.doubleValue());
+            }
+        } else if (value instanceof BigInteger && ((BigInteger) value).bitLength() < 64) {
+            writeInteger(value.longValue());
+        } else if (value instanceof Float) {
+            out.write(FLOAT);
+            writeBytes(Float.floatToIntBits(value.floatValue()), 4);
+        } else {
+            writeDouble(value.doubleValue());
+        }
+    }
+
+    private void writeDouble(double value) throws IOException {
+        out.write(DOUBLE);
+        writeBytes(Double.doubleToLongBits(value), 8);
+    }
+
+    private void writeInteger(long value) throws IOException {
+        if (value < 0) {
+            writeHead(MAJOR_NEGATIVE, -1 - value);
+        } else {
+            writeHead(MAJOR_UNSIGNED, value);
+        }
+    }
+
+    /**
+     * Write the head of an item, with the major type and its argument in the fewest bytes.
+     */
+    private void writeHead(int major, long argument) throws IOException {
+        int type = major << 5;
+        if (argument < 24) {
+            out.write(type | (int) argument);
+        } else if (argument < 0x100) {
+            out.write(type | 24);
+            out.write((int) argument);
+        } else if (argument < 0x10000) {
+            out.write(type | 25);
+            writeBytes(argument, 2);
+        } else if (argument < 0x100000000L) {
+            out.write(type | 26);
+            writeBytes(argument, 4);
+        } else {
+            out.write(type | 27);
+            writeBytes(argument, 8);
+        }
+    }
+
+    private void writeBytes(long value, int count) throws IOException {
+        for (int shift = (count - 1) * 8; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    private static boolean isSurrogatePair(String value, int index) {
+        return Character.isHighSurrogate(value.charAt(index)) && index + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(index + 1));
+    }
+
+    /**
+     * Write a text string, encoding it as UTF-8 straight onto the output. A lone surrogate is written as '?', the
+     * same as {@link String#getBytes(java.nio.charset.Charset)} does.
+     */
+    private void writeText(String value) throws IOException {
+        int length = value.length();
+        long bytes = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (isSurrogatePair(value, i)) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                bytes += 1;
+            } else {
+                bytes += 3;
+            }
+        }
+        writeHead(MAJOR_TEXT, bytes);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out.write(c);
+            } else if (c < 0x800) {
+                out.write(0xc0 | (c >> 6));
+                out.write(0x80 | (c & 0x3f));
+            } else if (isSurrogatePair(value, i)) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out.write(0xf0 | (codePoint >> 18));
+                out.write(0x80 | ((codePoint >> 12) & 0x3f));
+                out.write(0x80 | ((codePoint >> 6) & 0x3f));
+                out.write(0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                out.write('?');
+            } else {
+                out.write(0xe0 | (c >> 12));
+                out.write(0x80 | ((c >> 6) & 0x3f));
+                out.write(0x80 | (c & 0x3f));
+            }
+        }
+    }
+}
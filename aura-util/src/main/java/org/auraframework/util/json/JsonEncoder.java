@@ -16,12 +16,16 @@
 package org.auraframework.util.json;
 
 import java.io.DataOutputStream;
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.math.BigDecimal;
-import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -30,7 +34,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.TimeZone;
 
 import javax.annotation.Nonnull;
 
@@ -596,7 +599,7 @@ public class JsonEncoder implements Json {
     @Override
     public void writeString(Object value) throws IOException {
         out.append('"');
-        out.append(AuraTextUtil.escapeForJSONString(value.toString()));
+        AuraTextUtil.appendEscapedJSONString(out, value.toString());
         out.append('"');
     }
 
@@ -611,17 +614,19 @@ public class JsonEncoder implements Json {
     public void writeDate(Date value) throws IOException {
         out.append('"');
         // Use the ISO DateTime format to write the date.
-        synchronized (ISO8601FORMAT) {
-            out.append(ISO8601FORMAT.format(value));
+        try {
+            ISO8601FORMAT.formatTo(Instant.ofEpochMilli(value.getTime()), out);
+        } catch (DateTimeException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
         }
         out.append('"');
     }
 
-    private static final SimpleDateFormat ISO8601FORMAT;
-    static {
-        ISO8601FORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
-        ISO8601FORMAT.setTimeZone(TimeZone.getTimeZone("GMT"));
-    }
+    private static final DateTimeFormatter ISO8601FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'")
+            .withZone(ZoneOffset.UTC);
 
     /**
      * Write a map in a predictable order
@@ -862,6 +867,17 @@ public class JsonEncoder implements Json {
         return out;
     }
 
+    /**
+     * Flush what has been written so far to the underlying stream, if it can be flushed.
+     *
+     * This lets a caller send complete parts of a long response as soon as they are written.
+     */
+    public void flush() throws IOException {
+        if (out instanceof Flushable) {
+            ((Flushable) out).flush();
+        }
+    }
+
     private boolean isFormatting() {
         return serializationContext.format();
     }
@@ -41,9 +41,7 @@ import static org.auraframework.util.json.JsonConstant.WHITESPACE;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PushbackReader;
 import java.io.Reader;
-import java.io.StringReader;
 import java.math.BigDecimal;
 import java.util.ArrayDeque;
 import java.util.List;
@@ -112,6 +110,12 @@ public class JsonStreamReader {
     // Allowing any amount of bytes would allow someone to compromise our servers.
     // 4mb seems to be industry standard here.
     private static final int MAX_LENGTH = 4194304;
+
+    // Chars are read from the reader into a buffer, and the last two chars read are kept in it across fills so that
+    // they can be unread.
+    private static final int BUFFER_SIZE = 8192;
+    private static final int PUSHBACK = 2;
+
     private static JsonHandlerProvider defaultProvider = new JsonHandlerProviderImpl();
     private static Map<Character, Character> escapes = Maps.newHashMapWithExpectedSize(13);
     static {
@@ -128,7 +132,10 @@ public class JsonStreamReader {
         escapes.put('v', '\u000B');
     }
 
-    private final PushbackReader reader;
+    private final Reader reader;
+    private final char[] buffer;
+    private int position = 0;
+    private int limit = 0;
 
     private JsonConstant currentToken;
     private Object current;
@@ -151,7 +158,8 @@ public class JsonStreamReader {
         if (reader == null) {
             throw new JsonParseException("Reader cannot be null");
         }
-        this.reader = new PushbackReader(reader, 2);
+        this.reader = reader;
+        this.buffer = new char[BUFFER_SIZE];
         this.binaryInput = binaryInput == null ? null
                 : (binaryInput instanceof DataInputStream ? (DataInputStream) binaryInput : new DataInputStream(
                         binaryInput));
@@ -159,7 +167,14 @@ public class JsonStreamReader {
     }
 
     public JsonStreamReader(String string, JsonHandlerProvider provider) {
-        this(createStringReader(string), null, provider);
+        if (string == null) {
+            throw new JsonParseException("String cannot be null");
+        }
+        this.reader = null;
+        this.buffer = string.toCharArray();
+        this.limit = buffer.length;
+        this.binaryInput = null;
+        this.provider = provider;
     }
 
     /**
@@ -216,13 +231,6 @@ public class JsonStreamReader {
         lengthLimitsEnabled = false;
     }
 
-    private static StringReader createStringReader(String string) {
-        if (string == null) {
-            throw new JsonParseException("String cannot be null");
-        }
-        return new StringReader(string);
-    }
-
     public JsonStreamReader(Reader reader) {
         this(reader, null, null);
     }
@@ -693,9 +701,13 @@ public class JsonStreamReader {
     }
 
     private String readString(JsonConstant delim, boolean keepEscapers) throws IOException, JsonEndOfStreamException {
+        markPosition(1);
+        String buffered = readBufferedString(delim.getToken());
+        if (buffered != null) {
+            return buffered;
+        }
         StringBuilder sb = new StringBuilder();
         boolean isEscaped = false;
-        markPosition(1);
         try {
             while (true) {
                 char c = readChar();
@@ -726,6 +738,33 @@ public class JsonStreamReader {
         return sb.toString();
     }
 
+    /**
+     * Read a string that ends in the buffer, without escapes or newlines, straight out of the buffer.
+     *
+     * @param delim the closing quote.
+     * @return the string, with the closing quote consumed, or null if the string has to be read a char at a time.
+     */
+    private String readBufferedString(char delim) {
+        for (int i = position; i < limit; i++) {
+            char c = buffer[i];
+            if (c == delim) {
+                int length = i - position;
+                charNum += length + 1;
+                if (charNum > MAX_LENGTH && lengthLimitsEnabled) {
+                    throw new JsonStreamParseException("Input too long.");
+                }
+                colNum += length + 1;
+                String result = new String(buffer, position, length);
+                position = i + 1;
+                return result;
+            }
+            if (c == '\\' || c == '\n') {
+                return null;
+            }
+        }
+        return null;
+    }
+
     /**
      * This method consumes what we expect to be a comment. It should be called
      * after consuming the '/' character, but before either the second '/' or
@@ -923,9 +962,7 @@ public class JsonStreamReader {
     }
 
     private char readChar() throws IOException, JsonEndOfStreamException {
-        int i = reader.read();
-
-        if (i == -1) {
+        if (position == limit && !fill()) {
             throw new JsonEndOfStreamException("End of stream unexpectedly reached.");
         }
 
@@ -940,7 +977,7 @@ public class JsonStreamReader {
             throw new JsonStreamParseException("Input too long.");
         }
 
-        char c = (char) i;
+        char c = buffer[position++];
 
         if (c == '\n') {
             prevColNum = colNum;
@@ -953,8 +990,43 @@ public class JsonStreamReader {
         return c;
     }
 
+    /**
+     * Fill the buffer once all of it has been read, keeping the last chars read so that they can still be unread.
+     *
+     * In binary mode the binary data follows the json in the same stream, so only one char is read at a time, to
+     * never read past the start of the binary data.
+     *
+     * @return false at the end of the stream.
+     */
+    private boolean fill() throws IOException {
+        if (reader == null) {
+            return false;
+        }
+        int keep = Math.min(limit, PUSHBACK);
+        System.arraycopy(buffer, limit - keep, buffer, 0, keep);
+        position = limit = keep;
+        int read = binaryInput == null ? reader.read(buffer, limit, buffer.length - limit) : 0;
+        if (read == 0) {
+            // Binary mode, or a reader that gave nothing back, read a single char.
+            int i = reader.read();
+            if (i == -1) {
+                return false;
+            }
+            buffer[limit++] = (char) i;
+            return true;
+        }
+        if (read == -1) {
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    /**
+     * Step back over the last char read, which is always still in the buffer.
+     */
     private void unreadChar(char c) throws IOException {
-        reader.unread(c);
+        position--;
         charNum--;
         if (c == '\n') {
             colNum = prevColNum;
@@ -999,7 +1071,9 @@ public class JsonStreamReader {
     }
 
     public void close() throws IOException {
-        reader.close();
+        if (reader != null) {
+            reader.close();
+        }
     }
 
     private void assertTokenType(JsonConstant expected, JsonConstant actual) {
@@ -15,6 +15,8 @@
  */
 package org.auraframework.util.text;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
 import java.util.regex.Matcher;
@@ -28,8 +30,8 @@ import java.util.regex.Pattern;
  * 
  * Note that for the moment, this is case insensitive...
  */
-@SuppressWarnings("serial")
 public class GlobMatcher implements Serializable {
+    private static final long serialVersionUID = -5546971782525830244L;
     private static final Pattern stringPattern = Pattern.compile("[a-zA-Z0-9_*]*");
     private static final String ALL_STRING = "*";
     private static final Pattern STAR = Pattern.compile("\\*");
@@ -39,6 +41,14 @@ public class GlobMatcher implements Serializable {
     private final boolean all;
     private final boolean constant;
 
+    /**
+     * The text before the first star and after the last one. A glob with a single star is matched with these alone,
+     * without a regular expression.
+     */
+    private transient String head;
+    private transient String tail;
+    private transient boolean singleStar;
+
     public GlobMatcher(String glob) {
         if (!stringPattern.matcher(glob).matches()) {
             throw new IllegalArgumentException("Illegal glob pattern: " + glob);
@@ -49,9 +59,13 @@ public class GlobMatcher implements Serializable {
             this.pattern = null;
             this.constant = false;
         } else if (glob.contains(ALL_STRING)) {
-            // Might need to add '.' and an escape mechanism or '/'
-            Matcher matcher = STAR.matcher(glob);
-            this.pattern = Pattern.compile(matcher.replaceAll(".*"), Pattern.CASE_INSENSITIVE);
+            if (glob.indexOf('*') == glob.lastIndexOf('*')) {
+                this.pattern = null;
+            } else {
+                // Might need to add '.' and an escape mechanism or '/'
+                Matcher matcher = STAR.matcher(glob);
+                this.pattern = Pattern.compile(matcher.replaceAll(".*"), Pattern.CASE_INSENSITIVE);
+            }
             this.constant = false;
             this.all = false;
         } else {
@@ -59,6 +73,20 @@ public class GlobMatcher implements Serializable {
             this.constant = true;
             this.all = false;
         }
+        initParts();
+    }
+
+    private void initParts() {
+        int first = original.indexOf('*');
+        int last = original.lastIndexOf('*');
+        this.head = first < 0 ? original : original.substring(0, first);
+        this.tail = last < 0 ? "" : original.substring(last + 1);
+        this.singleStar = first >= 0 && first == last;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        initParts();
     }
 
     public boolean isConstant() {
@@ -69,12 +97,25 @@ public class GlobMatcher implements Serializable {
         return this.all;
     }
 
+    /**
+     * Get the text that every match starts with, ignoring case: the whole glob when it is constant, otherwise the
+     * text before the first star.
+     */
+    public String getPrefix() {
+        return this.head;
+    }
+
     public boolean match(String toMatch) {
         if (this.all) {
             return true;
         }
         if (this.constant) {
             return this.original.equalsIgnoreCase(toMatch);
+        } else if (this.singleStar) {
+            return toMatch.length() >= this.head.length() + this.tail.length()
+                    && toMatch.regionMatches(true, 0, this.head, 0, this.head.length())
+                    && toMatch.regionMatches(true, toMatch.length() - this.tail.length(), this.tail, 0,
+                            this.tail.length());
         } else {
             return this.pattern.matcher(toMatch).matches();
         }
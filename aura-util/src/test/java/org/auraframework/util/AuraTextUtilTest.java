@@ -15,12 +15,15 @@
  */
 package org.auraframework.util;
 
+import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.List;
 
 import org.auraframework.util.test.util.UnitTestCase;
 import org.junit.Test;
 
+import com.google.common.collect.Lists;
+
 public class AuraTextUtilTest extends UnitTestCase {
     /**
      * A simple input/expected pair for testing.
@@ -205,6 +208,24 @@ public class AuraTextUtilTest extends UnitTestCase {
         }
     }
 
+    @Test
+    public void testAppendEscapedJSONString() throws Exception {
+        List<String> inputs = Lists.newArrayList("", "abc", "a<!-- b -->c", "/* a */", "!-", "!", "*", "a*",
+                "tab\there\r\n", "\u2028\u2029\u0000", "\\\"", "x\"y\"z");
+        for (StringPair p : JSON_STRING_PAIRS) {
+            inputs.add(p.input);
+        }
+        for (String input : inputs) {
+            StringBuilder sb = new StringBuilder();
+            AuraTextUtil.appendEscapedJSONString(sb, input);
+            assertEquals(input, AuraTextUtil.escapeForJSONString(input), sb.toString());
+
+            StringWriter sw = new StringWriter();
+            AuraTextUtil.appendEscapedJSONString(sw, input);
+            assertEquals(input, AuraTextUtil.escapeForJSONString(input), sw.toString());
+        }
+    }
+
     private static class SplitMatch {
         public final String input;
         public final String delimiter;
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Map;
+
+import org.auraframework.util.javascript.Literal;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * The expected encodings are the examples from RFC 7049, appendix A.
+ */
+public class CborEncoderTest extends UnitTestCase {
+
+    private static String encode(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CborEncoder encoder = CborEncoder.createCborStream(bytes, new DefaultJsonSerializationContext(false, false));
+        encoder.writeValue(value);
+        encoder.close();
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes.toByteArray()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testIntegers() throws IOException {
+        assertEquals("00", encode(0));
+        assertEquals("17", encode(23));
+        assertEquals("1818", encode(24));
+        assertEquals("1864", encode(100));
+        assertEquals("1903e8", encode(1000));
+        assertEquals("1a000f4240", encode(1000000));
+        assertEquals("1b000000e8d4a51000", encode(1000000000000L));
+        assertEquals("20", encode(-1));
+        assertEquals("3903e7", encode(-1000));
+        assertEquals("0a", encode(new BigDecimal("10")));
+    }
+
+    @Test
+    public void testFloats() throws IOException {
+        assertEquals("fb3ff8000000000000", encode(1.5));
+        assertEquals("fb3ff8000000000000", encode(new BigDecimal("1.5")));
+        assertEquals("fa47c35000", encode(100000.0f));
+    }
+
+    @Test
+    public void testStrings() throws IOException {
+        assertEquals("60", encode(""));
+        assertEquals("6161", encode("a"));
+        assertEquals("62c3bc", encode("ü"));
+        assertEquals("63e6b0b4", encode("水"));
+        assertEquals("64f0908591", encode("𐅑"));
+        // Nothing is escaped the way it is for json
+        assertEquals("643c212d2d", encode("<!--"));
+    }
+
+    @Test
+    public void testLiterals() throws IOException {
+        assertEquals("f5", encode(true));
+        assertEquals("f4", encode(false));
+        assertEquals("f6", encode(null));
+        assertEquals("f7", encode(new Literal("undefined")));
+        assertEquals("d9697863663b7d", encode(new Literal("f;}")));
+    }
+
+    @Test
+    public void testDate() throws IOException {
+        assertEquals("c11a514b67b0", encode(new Date(1363896240000L)));
+    }
+
+    @Test
+    public void testArraysAndMaps() throws IOException {
+        assertEquals("9fff", encode(Lists.newArrayList()));
+        assertEquals("9f019f0203ffff", encode(Lists.newArrayList(1, Lists.newArrayList(2, 3))));
+
+        Map<String, Object> map = Maps.newLinkedHashMap();
+        map.put("a", 1);
+        map.put("b", Lists.newArrayList(2, 3));
+        assertEquals("bf61610161629f0203ffff", encode(map));
+    }
+
+    @Test
+    public void testBinaryStream() throws IOException {
+        assertEquals("4401020304", encode(new byte[] { 1, 2, 3, 4 }));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util.json;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measure reading an action message with the json stream reader, from a reader, as a request body is read, and from
+ * a string.
+ *
+ * The message is a batch of record saves, with a context like the one a client sends. Run it before and after a
+ * change to the reader to compare, e.g.
+ * <pre>
+ * java -cp ... org.openjdk.jmh.Main JsonStreamReaderBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonStreamReaderBenchmark {
+    @Param({ "1", "10", "100" })
+    private int actions;
+
+    @Param({ "1", "50" })
+    private int records;
+
+    private String message;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder("{\"actions\":[");
+        for (int i = 0; i < actions; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"id\":\"").append(i).append(";a\",\"descriptor\":\"apex://RecordController/ACTION$save\",")
+                    .append("\"callingDescriptor\":\"markup://c:recordList\",\"params\":{\"records\":[");
+            for (int j = 0; j < records; j++) {
+                if (j > 0) {
+                    sb.append(',');
+                }
+                sb.append("{\"Id\":\"a0").append(j).append("\",\"Name\":\"Record \\\"").append(j)
+                        .append("\\\"\",\"Amount\":").append(j * 100).append(".5,\"Active\":true,\"Owner\":null}");
+            }
+            sb.append("]}}");
+        }
+        sb.append("],\"context\":{\"mode\":\"PROD\",\"fwuid\":\"Tn0sFhh7Sm9GyHdk9i_N2g\",")
+                .append("\"app\":\"c:recordApp\",\"loaded\":{\"APPLICATION@markup://c:recordApp\":\"1234567890\"},")
+                .append("\"dn\":[],\"globals\":{},\"uad\":false}}");
+        message = sb.toString();
+    }
+
+    @Benchmark
+    public Object readFromReader() throws IOException {
+        JsonStreamReader reader = new JsonStreamReader(new StringReader(message));
+        reader.next();
+        return reader.getValue();
+    }
+
+    @Benchmark
+    public Object readFromString() throws IOException {
+        JsonStreamReader reader = new JsonStreamReader(message);
+        reader.next();
+        return reader.getValue();
+    }
+}
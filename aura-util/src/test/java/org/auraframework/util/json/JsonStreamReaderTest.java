@@ -21,6 +21,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.io.StringReader;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -106,6 +107,40 @@ public class JsonStreamReaderTest extends UnitTestCase {
         assertTrue(obj.getValue() instanceof List);
     }
 
+    /**
+     * Read values that cross the reader buffer, from a reader that hands back a few chars at a time, and check that
+     * they read the same as from a string.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testReadAcrossBufferFills() throws Exception {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 2000; i++) {
+            if (i > 0) {
+                sb.append(",\n");
+            }
+            sb.append("// entry ").append(i).append("\n");
+            sb.append("{\"key\":\"value ").append(i).append(" \\\"quoted\\\"\",'n':").append(i).append("}");
+        }
+        String json = sb.append("]").toString();
+
+        Reader reader = new StringReader(json) {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                return super.read(cbuf, off, Math.min(len, 7));
+            }
+        };
+        jsonStreamReader = new JsonStreamReader(reader);
+        jsonStreamReader.next();
+        List<Object> fromReader = (List<Object>) jsonStreamReader.getValue();
+
+        assertEquals(parseAndRetrieve(json), fromReader);
+        assertEquals(2000, fromReader.size());
+        Map<String, Object> last = (Map<String, Object>) fromReader.get(1999);
+        assertEquals("value 1999 \"quoted\"", last.get("key"));
+        assertEquals(new BigDecimal(1999), last.get("n"));
+    }
+
     private static final ParseFailure [] literal_failures = {
         new ParseFailure("class as key", "class", 1, 1, "class", "Reserved word used as a literal"),
     };
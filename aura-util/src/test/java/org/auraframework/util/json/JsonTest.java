@@ -23,6 +23,7 @@ import java.io.OutputStream;
 import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -79,6 +80,14 @@ public class JsonTest extends UnitTestCase {
         assertEquals("0", JsonEncoder.serialize(0x00));
     }
 
+    @Test
+    public void testSerializeDate() throws IOException {
+        assertEquals("\"1970-01-01T00:00:00Z\"", JsonEncoder.serialize(new Date(0)));
+        assertEquals("\"2013-03-14T15:09:26Z\"", JsonEncoder.serialize(new Date(1363273766535L)));
+        // sql dates do not convert to an instant themselves
+        assertEquals("\"2013-03-14T15:09:26Z\"", JsonEncoder.serialize(new java.sql.Date(1363273766535L)));
+    }
+
     @Test
     public void testSerializeBoolean() throws IOException {
         assertEquals("true", JsonEncoder.serialize(true));
@@ -781,4 +790,19 @@ public class JsonTest extends UnitTestCase {
         jsonSkipNull.close();
         assertEquals("fail with Json Stream Skip null", expect2, new String(baos.toByteArray(), Charsets.UTF_8) );
     }
+
+    @Test
+    public void testFlushSendsWrittenOutput() throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream(512);
+        JsonEncoder json = JsonEncoder.createJsonStream(baos, false, false);
+        json.writeArrayBegin();
+        json.writeArrayEntry("first");
+
+        json.flush();
+
+        assertEquals("[\"first\"", new String(baos.toByteArray(), Charsets.UTF_8));
+        json.writeArrayEnd();
+        json.close();
+        assertEquals("[\"first\"]", new String(baos.toByteArray(), Charsets.UTF_8));
+    }
 }
@@ -15,6 +15,10 @@
  */
 package org.auraframework.util.text;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -122,4 +126,38 @@ public class GlobMatcherTest extends UnitTestCase {
     public void testCaseInsensitive() {
         matchCheck(INSENSITIVE);
     }
+
+    private static GMTSet[] MANY_STARS = new GMTSet[] {
+            new GMTSet("b*a*h", false, new String[] { "bah", "bXaYh", "BAXH" }, new String[] { "bha", "bah2", "ba" }),
+            new GMTSet("*ah*", false, new String[] { "ah", "bah2", "xAHx" }, new String[] { "humbug", "ba" }), };
+
+    @Test
+    public void testManyStars() {
+        matchCheck(MANY_STARS);
+    }
+
+    @Test
+    public void testPrefix() {
+        assertEquals("bah", new GlobMatcher("bah").getPrefix());
+        assertEquals("bah", new GlobMatcher("bah*").getPrefix());
+        assertEquals("b", new GlobMatcher("b*a*h").getPrefix());
+        assertEquals("", new GlobMatcher("*bah").getPrefix());
+        assertEquals("", new GlobMatcher("*").getPrefix());
+    }
+
+    @Test
+    public void testSerializedMatcherMatches() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new GlobMatcher("b*ah"));
+        }
+        GlobMatcher gm;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            gm = (GlobMatcher) in.readObject();
+        }
+
+        assertTrue(gm.match("bXYZah"));
+        assertFalse(gm.match("bah2"));
+        assertEquals("b", gm.getPrefix());
+    }
 }
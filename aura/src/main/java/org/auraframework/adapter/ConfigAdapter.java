@@ -204,6 +204,27 @@ public interface ConfigAdapter extends AuraAdapter {
      */
     boolean isModulesEnabled();
 
+    /**
+     * @return whether app.js definitions are streamed to the response as they are serialized on a
+     *         cache miss, instead of being written once they are all built. They are captured off the
+     *         heap for the cache as they are streamed, so this only applies when the alt strings cache has
+     *         secondary storage
+     */
+    boolean isStreamingDefinitionsEnabled();
+
+    /**
+     * @return whether app.js, app.css and framework resources are served from a cache of their encoded and
+     *         gzipped bytes, with ETags, instead of being encoded and compressed on every request
+     */
+    boolean isPrecompressedResourcesEnabled();
+
+    /**
+     * @return whether the action response is flushed after each action, so that the client gets the results
+     *         of a long request as they are written. Once flushed, the response is committed, and a later
+     *         failure can no longer change its status
+     */
+    boolean isActionFlushEnabled();
+
     /**
      * @return Set of registered module namespaces
      */
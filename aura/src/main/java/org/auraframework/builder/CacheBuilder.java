@@ -15,6 +15,8 @@
  */
 package org.auraframework.builder;
 
+import java.util.function.ToIntBiFunction;
+
 import org.auraframework.adapter.LoggingAdapter;
 import org.auraframework.cache.Cache;
 
@@ -80,6 +82,29 @@ public interface CacheBuilder<K, T> {
 	 */
 	CacheBuilder<K, T> setConcurrencyLevel(int concurrencyLevel);
 
+	/**
+	 * Set true to hint that the cache should decide admission and eviction
+	 * by access frequency as well as recency, so that a scan of cold entries
+	 * does not push out the hot ones.
+	 *
+	 * @param frequencyBasedEviction
+	 *            - default false. not required.
+	 * @return the same CacheBuilder with this property set
+	 */
+	CacheBuilder<K, T> setFrequencyBasedEviction(boolean frequencyBasedEviction);
+
+	/**
+	 * Set a hint to bound the cache by total weight instead of by number of
+	 * entries. This overrides the maximum size.
+	 *
+	 * @param maximumWeight
+	 *            - the total weight allowed before evictions occur
+	 * @param weigher
+	 *            - computes the weight of an entry, must be non-negative
+	 * @return the same CacheBuilder with this property set
+	 */
+	CacheBuilder<K, T> setMaximumWeight(long maximumWeight, ToIntBiFunction<? super K, ? super T> weigher);
+
 	Cache<K, T> build();
 
 	/** Associates a human-readable name with the cache */
@@ -15,6 +15,9 @@
  */
 package org.auraframework.cache;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -50,4 +53,51 @@ public interface Cache<K,T> {
 	Object getPrivateUnderlyingCache();
 
 	void logCacheStatus(String extraMessage);
+
+	/**
+	 * Write the value for a key to a writer, if it is present. Caches that keep values outside
+	 * of the heap stream them without building the whole value in memory.
+	 *
+	 * @param key the key to look up
+	 * @param out the writer to write the value to
+	 * @return true if the value was present and written
+	 * @throws IOException if the writer fails
+	 */
+	default boolean writeIfPresent(K key, Writer out) throws IOException {
+		T value = getIfPresent(key);
+		if (value == null) {
+			return false;
+		}
+		out.append(value.toString());
+		return true;
+	}
+
+	/**
+	 * Whether large values are kept outside of the heap, so that {@link #getValueWriter(Object)}
+	 * stores a value in chunks as it is written rather than building it in memory.
+	 *
+	 * @return true if the cache has secondary storage
+	 */
+	default boolean hasSecondaryStorage() {
+		return false;
+	}
+
+	/**
+	 * Get a writer for a string value that is put under a key when the writer is closed, so that a
+	 * large value can be captured while it is written elsewhere. Caches that keep values outside of
+	 * the heap store it in chunks as it is written, without building the whole value in memory; others
+	 * build it in memory. Nothing is put if the writer is not closed, e.g. when writing the value fails.
+	 *
+	 * @param key the key to put the value under
+	 * @return the writer
+	 */
+	@SuppressWarnings("unchecked")
+	default Writer getValueWriter(final K key) {
+		return new StringWriter() {
+			@Override
+			public void close() {
+				put(key, (T) toString());
+			}
+		};
+	}
 }
@@ -68,4 +68,13 @@ public interface ActionDef extends Definition {
      * get the parameters that can be logged.
      */
     List<String> getLoggableParams();
+
+    /**
+     * Can this action run at the same time as other concurrent actions in the same request.
+     *
+     * @return true if the action may be run on another thread, with its own context.
+     */
+    default boolean isConcurrent() {
+        return false;
+    }
 }
@@ -15,8 +15,10 @@
  */
 package org.auraframework.http;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.ExecutionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -28,10 +30,13 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.http.HttpHeaders;
 import org.auraframework.adapter.ConfigAdapter;
 import org.auraframework.http.resource.FileStaticResource;
+import org.auraframework.service.CachingService;
 import org.auraframework.system.StaticResource;
 import org.auraframework.util.IOUtil;
 import org.auraframework.util.resource.ResourceLoader;
 
+import com.google.common.base.Throwables;
+
 public class AuraFrameworkServlet extends AuraBaseServlet {
 
     private static final long serialVersionUID = 6034969764380397480L;
@@ -43,6 +48,8 @@ public class AuraFrameworkServlet extends AuraBaseServlet {
     public static final String RESOURCES_FORMAT = "%s/auraFW/resources/%s/%s";
 
     private ConfigAdapter configAdapter;
+
+    private EncodedResourceWriter encodedResourceWriter;
     
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
@@ -197,6 +204,27 @@ public class AuraFrameworkServlet extends AuraBaseServlet {
                 servletUtilAdapter.setShortCache(response);
             }
 
+            if (matchedUid && (js || mimeType.startsWith("text/")) && encodedResourceWriter != null
+                    && configAdapter.isPrecompressedResourcesEnabled()) {
+                //
+                // The content cannot change without changing the nonce, so we only read and compress
+                // it once.
+                //
+                final InputStream resourceStream = in;
+                String key = String.format("FW:%s:%s%s:%s", currentUid, root, file, isProduction ? "PROD" : "DEV");
+                try {
+                    encodedResourceWriter.write(request, response, key, () -> {
+                        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                        IOUtil.copyStream(resourceStream, bytes);
+                        return bytes.toByteArray();
+                    });
+                } catch (ExecutionException ee) {
+                    Throwables.propagateIfInstanceOf(ee.getCause(), IOException.class);
+                    throw Throwables.propagate(ee.getCause());
+                }
+                return;
+            }
+
             IOUtil.copyStream(in, response.getOutputStream());
         } finally {
             if (in != null) {
@@ -213,4 +241,9 @@ public class AuraFrameworkServlet extends AuraBaseServlet {
     public void setConfigAdapter(ConfigAdapter configAdapter) {
         this.configAdapter = configAdapter;
     }
+
+    @Inject
+    public void setCachingService(CachingService cachingService) {
+        this.encodedResourceWriter = new EncodedResourceWriter(cachingService.getEncodedResourceCache());
+    }
 }
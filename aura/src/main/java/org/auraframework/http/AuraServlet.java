@@ -16,6 +16,7 @@
 package org.auraframework.http;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringReader;
 import java.net.URI;
@@ -409,10 +410,11 @@ public class AuraServlet extends AuraBaseServlet {
             return;
         }
         try {
-            if (context.getFormat() != Format.JSON) {
-                throw new AuraRuntimeException("Invalid request, post must use JSON");
+            Format format = context.getFormat();
+            if (format != Format.JSON && format != Format.CBOR) {
+                throw new AuraRuntimeException("Invalid request, post must use JSON or CBOR");
             }
-            response.setContentType(servletUtilAdapter.getContentType(Format.JSON));
+            response.setContentType(servletUtilAdapter.getContentType(format));
             String msg = messageParam.get(request);
             if (msg == null) {
                 throw new AuraHandledException("Invalid request, no message");
@@ -485,10 +487,17 @@ public class AuraServlet extends AuraBaseServlet {
             	attributes.put("token", configAdapter.getCSRFToken());
             }
 
-            PrintWriter out = response.getWriter();
-            written = true;
-            out.write(CSRF_PROTECT);
-            serverService.run(message, context, out, attributes);
+            if (format == Format.CBOR) {
+                // A binary response cannot be read as a script, so it needs no CSRF prefix.
+                OutputStream out = response.getOutputStream();
+                written = true;
+                serverService.run(message, context, out, attributes);
+            } else {
+                PrintWriter out = response.getWriter();
+                written = true;
+                out.write(CSRF_PROTECT);
+                serverService.run(message, context, out, attributes);
+            }
         } catch (InvalidParamException | MissingParamException ipe) {
             servletUtilAdapter.handleServletException(new SystemErrorException(ipe), false, context, request, response, false);
             return;
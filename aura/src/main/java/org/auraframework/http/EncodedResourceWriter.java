@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.http.HttpHeaders;
+import org.auraframework.cache.Cache;
+
+import com.google.common.base.Splitter;
+import com.google.common.hash.Hashing;
+
+/**
+ * Writes immutable resources from a cache of their encoded bytes.
+ *
+ * Each resource is encoded as UTF-8 and gzipped once, and the bytes for the encoding the client accepts are
+ * written straight to the response, with a strong ETag derived from the resource key. The key must change
+ * whenever the content does, which holds for the uid based keys of app.js, app.css and framework resources.
+ *
+ * Text resources that have their own cache of the text, such as app.js and app.css, are written rather than loaded,
+ * and only their gzipped bytes are kept here. See {@link #writeText}.
+ *
+ * The response has a Content-Encoding header when gzipped, which tells the compressing filter to leave it
+ * alone. Brotli is not offered, as there is no java encoder for it available to the framework.
+ */
+public class EncodedResourceWriter {
+    public static final String GZIP = "gzip";
+
+    private static final String GZIP_SUFFIX = "|gzip";
+
+    private final Cache<String, byte[]> cache;
+
+    /**
+     * A text resource that is written out rather than loaded, so that it is not held as a whole.
+     */
+    public interface TextSource {
+        void writeTo(Writer out) throws Exception;
+    }
+
+    public EncodedResourceWriter(Cache<String, byte[]> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Write a resource, loading and encoding it on a cache miss.
+     *
+     * Nothing is written to the response if the loader fails, so that the caller can still report the error.
+     *
+     * @param request the request, for the accepted encodings and ETag.
+     * @param response the response to write to.
+     * @param key the key of the resource, which must change whenever its content does.
+     * @param loader the loader for the identity encoded bytes of the resource.
+     * @throws ExecutionException if the loader failed.
+     * @throws IOException if the response could not be written.
+     */
+    public void write(HttpServletRequest request, HttpServletResponse response, String key, Callable<byte[]> loader)
+            throws ExecutionException, IOException {
+        String encoding = getAcceptedEncoding(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        if (isNotModified(request, response, key, encoding)) {
+            return;
+        }
+
+        final byte[] identity = cache.get(key, loader);
+        byte[] bytes = identity;
+        if (GZIP.equals(encoding)) {
+            bytes = cache.get(key + GZIP_SUFFIX, () -> gzip(identity));
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        response.setContentLength(bytes.length);
+        response.getOutputStream().write(bytes);
+    }
+
+    /**
+     * Write a text resource, keeping only its gzipped bytes.
+     *
+     * On a miss the source is written through a gzip stream, so the only other copy of the resource made is the
+     * compressed one. A client that does not accept gzip gets the source written straight to the response, and if the
+     * source fails then, part of it may have been written. With gzip, nothing is written if the source fails.
+     *
+     * @param request the request, for the accepted encodings and ETag.
+     * @param response the response to write to.
+     * @param key the key of the resource, which must change whenever its content does.
+     * @param source the source of the text of the resource.
+     * @throws ExecutionException if the source failed.
+     * @throws IOException if the response could not be written.
+     */
+    public void writeText(HttpServletRequest request, HttpServletResponse response, String key, TextSource source)
+            throws ExecutionException, IOException {
+        String encoding = getAcceptedEncoding(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        if (isNotModified(request, response, key, encoding)) {
+            return;
+        }
+
+        if (GZIP.equals(encoding)) {
+            byte[] bytes = cache.get(key + GZIP_SUFFIX, () -> gzip(source));
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+            response.setContentLength(bytes.length);
+            response.getOutputStream().write(bytes);
+        } else {
+            try {
+                source.writeTo(response.getWriter());
+            } catch (Exception e) {
+                throw new ExecutionException(e);
+            }
+        }
+    }
+
+    /**
+     * Set the ETag and Vary headers, and answer a request for a resource the client already has.
+     *
+     * @return true if the response is a 304 and nothing else should be written.
+     */
+    private static boolean isNotModified(HttpServletRequest request, HttpServletResponse response, String key,
+            String encoding) {
+        String etag = getETag(key, encoding);
+
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the UTF-8 encoding of a string, for loaders of text resources.
+     */
+    public static byte[] encode(CharSequence value) {
+        return value.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Choose the encoding to send for an Accept-Encoding header.
+     *
+     * @param acceptEncoding the header value, may be null.
+     * @return {@link #GZIP}, or null for the identity encoding.
+     */
+    static String getAcceptedEncoding(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        boolean wildcard = false;
+        for (String coding : Splitter.on(',').trimResults().omitEmptyStrings().split(acceptEncoding)) {
+            int semicolon = coding.indexOf(';');
+            String name = (semicolon < 0 ? coding : coding.substring(0, semicolon)).trim();
+            boolean accepted = semicolon < 0 || getQuality(coding.substring(semicolon + 1)) > 0;
+            if (name.equalsIgnoreCase(GZIP) || name.equalsIgnoreCase("x-gzip")) {
+                // an explicit gzip, even with q=0, overrides the wildcard
+                return accepted ? GZIP : null;
+            } else if (name.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        return wildcard ? GZIP : null;
+    }
+
+    private static float getQuality(String params) {
+        for (String param : Splitter.on(';').trimResults().split(params)) {
+            if (param.startsWith("q=")) {
+                try {
+                    return Float.parseFloat(param.substring(2));
+                } catch (NumberFormatException nfe) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Get the strong ETag for an encoding of a resource.
+     *
+     * Each encoding gets its own tag, as the bytes differ.
+     */
+    static String getETag(String key, String encoding) {
+        String hash = Hashing.md5().hashString(key, StandardCharsets.UTF_8).toString();
+        return "\"" + hash + (encoding != null ? "-" + encoding : "") + "\"";
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : Splitter.on(',').trimResults().split(ifNoneMatch)) {
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(baos)) {
+            gzip.write(bytes);
+        }
+        return baos.toByteArray();
+    }
+
+    private static byte[] gzip(TextSource source) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(8192);
+        try (Writer out = new OutputStreamWriter(new GZIPOutputStream(baos), StandardCharsets.UTF_8)) {
+            source.writeTo(out);
+        }
+        return baos.toByteArray();
+    }
+}
@@ -42,6 +42,10 @@ public class AppCss extends AuraResourceImpl {
         }
 
         try {
+            if (isPrecompressionEnabled() && writeEncoded(request, response, serverService.getAppCssCacheKey(),
+                    out -> serverService.writeAppCss(dependencies, out))) {
+                return;
+            }
             serverService.writeAppCss(dependencies, response.getWriter());
         } catch (Throwable t) {
             servletUtilAdapter.handleServletException(t, false, context, request, response, false);
@@ -45,6 +45,14 @@ public class AppJs extends AuraResourceImpl {
         }
 
         try {
+            if (isPrecompressionEnabled() && writeEncoded(request, response, serverService.getDefinitionsCacheKey(),
+                    out -> {
+                        out.append(APPJS_PREPEND);
+                        serverService.writeDefinitions(dependencies, out);
+                        out.append(APPJS_APPEND);
+                    })) {
+                return;
+            }
             PrintWriter writer = response.getWriter();
             writer.append(APPJS_PREPEND);
             serverService.writeDefinitions(dependencies, writer);
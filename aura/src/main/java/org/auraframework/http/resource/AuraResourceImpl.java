@@ -19,6 +19,7 @@ package org.auraframework.http.resource;
 import java.io.IOException;
 import java.util.Enumeration;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
@@ -29,8 +30,10 @@ import org.auraframework.adapter.ConfigAdapter;
 import org.auraframework.adapter.ExceptionAdapter;
 import org.auraframework.adapter.ServletUtilAdapter;
 import org.auraframework.annotations.Annotations.ServiceComponent;
+import org.auraframework.http.EncodedResourceWriter;
 import org.auraframework.http.ManifestUtil;
 import org.auraframework.http.RequestParam.StringParam;
+import org.auraframework.service.CachingService;
 import org.auraframework.service.ContextService;
 import org.auraframework.service.DefinitionService;
 import org.auraframework.service.InstanceService;
@@ -56,6 +59,7 @@ public abstract class AuraResourceImpl implements AuraResource {
     protected InstanceService instanceService;
     protected ExceptionAdapter exceptionAdapter;
     protected ManifestUtil manifestUtil;
+    protected CachingService cachingService;
 
     public AuraResourceImpl(String name, Format format) {
         this(name, format, false);
@@ -162,6 +166,48 @@ public abstract class AuraResourceImpl implements AuraResource {
         this.contextService = contextService;
     }
 
+    /**
+     * Injection override.
+     *
+     * @param cachingService the cachingService to set
+     */
+    @Inject
+    public void setCachingService(CachingService cachingService) {
+        this.cachingService = cachingService;
+    }
+
+    /**
+     * Write the resource through the cache of encoded resources, if enabled.
+     *
+     * Only the gzipped resource is cached, the source is written straight to the response for other clients.
+     *
+     * @param key the cache key of the resource, which changes whenever the content does, may be null.
+     * @param source the source of the content of the resource.
+     * @return false if nothing was written, because the resource is not cacheable or the cache is not enabled.
+     * @throws Exception from the source.
+     */
+    protected boolean writeEncoded(HttpServletRequest request, HttpServletResponse response, String key,
+            EncodedResourceWriter.TextSource source) throws Exception {
+        if (key == null) {
+            return false;
+        }
+        try {
+            new EncodedResourceWriter(cachingService.getEncodedResourceCache()).writeText(request, response,
+                    getName() + ":" + key, source);
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            throw (cause instanceof Exception) ? (Exception) cause : ee;
+        }
+        return true;
+    }
+
+    /**
+     * Whether resources should be written from the cache of encoded resources.
+     */
+    protected boolean isPrecompressionEnabled() {
+        return cachingService != null && configAdapter.isPrecompressedResourcesEnabled();
+    }
+
     @PostConstruct
     public void initManifest() {
         this.manifestUtil = new ManifestUtil(definitionService, contextService, configAdapter);
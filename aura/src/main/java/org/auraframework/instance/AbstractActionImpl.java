@@ -149,6 +149,11 @@ public abstract class AbstractActionImpl<T extends ActionDef> implements Action
         this.callerVersion = callerVersion;
     }
 
+    @Override
+    public boolean isConcurrent() {
+        return actionDef.isConcurrent();
+    }
+
     private String actionId;
     @Nonnull private final List<Action> actions;
     private boolean storable;
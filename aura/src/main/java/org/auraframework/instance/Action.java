@@ -139,4 +139,13 @@ public interface Action extends Instance<ActionDef> {
     String getCallerVersion();
 
     void setCallerVersion(String callerVersion);
+
+    /**
+     * Can this action run at the same time as other concurrent actions in the same request.
+     *
+     * @see ActionDef#isConcurrent()
+     */
+    default boolean isConcurrent() {
+        return false;
+    }
 }
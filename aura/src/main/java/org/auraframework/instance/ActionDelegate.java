@@ -136,5 +136,10 @@ public abstract class ActionDelegate implements Action {
 		original.setCallerVersion(callerVersion);
 	}
 
+    @Override
+    public boolean isConcurrent() {
+        return original.isConcurrent();
+    }
+
     private Action original;
 }
@@ -24,7 +24,9 @@ import org.auraframework.builder.CacheBuilder;
 import org.auraframework.cache.Cache;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.Definition;
+import org.auraframework.system.AccessCheckKey;
 import org.auraframework.system.DependencyEntry;
+import org.auraframework.system.DependencyKey;
 import org.auraframework.system.RegistrySet;
 import org.auraframework.system.SourceListener;
 import org.auraframework.system.SourceListener.SourceMonitorEvent;
@@ -62,13 +64,30 @@ public interface CachingService extends AuraService {
 
     Cache<String, Set<DefDescriptor<?>>> getDescriptorFilterCache();
 
-    Cache<String, DependencyEntry> getDepsCache();
+    Cache<DependencyKey, DependencyEntry> getDepsCache();
 
     Cache<String, String> getClientLibraryOutputCache();
 
+    /**
+     * The UTF-8 encoded and compressed bytes of immutable resources, keyed by uid based keys.
+     */
+    Cache<String, byte[]> getEncodedResourceCache();
+
     Cache<DefDescriptor.DescriptorKey, DefDescriptor<? extends Definition>> getDefDescriptorByNameCache();
 
     Cache<RegistrySet.RegistrySetKey, RegistrySet> getRegistrySetCache();
+
+    /**
+     * Whether a namespace has access to a definition, shared by all requests and cleared when sources change.
+     */
+    Cache<AccessCheckKey, Boolean> getAccessCheckCache();
+
+    /**
+     * Drop the shared access checks, e.g. when the namespaces they depend on are changed in the configuration.
+     */
+    default void invalidateAccessChecks() {
+        getAccessCheckCache().invalidateAll();
+    }
     
     Lock getReadLock();
 
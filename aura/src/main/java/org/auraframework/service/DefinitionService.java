@@ -17,6 +17,7 @@ package org.auraframework.service;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import org.auraframework.Aura;
 import org.auraframework.def.BaseComponentDef;
@@ -233,6 +234,20 @@ public interface DefinitionService extends AuraService {
 
     /**
      * make sure all of our registries are built.
+     *
+     * This runs on the calling thread, unless aura.warmCaches.parallelism is set to more than one thread.
+     * If aura.warmCaches.snapshot names a file, the caches are first restored from it, and saved to it once warm.
      */
     void warmCaches();
+
+    /**
+     * make sure all of our registries are built, warming each namespace as a separate task.
+     *
+     * Each task compiles with its own context, the compiled definitions all go to the shared definition cache.
+     * This returns once all of the tasks are done. The caches are restored from and saved to the snapshot as
+     * for {@link #warmCaches()}.
+     *
+     * @param executor the executor for the tasks.
+     */
+    void warmCaches(ExecutorService executor);
 }
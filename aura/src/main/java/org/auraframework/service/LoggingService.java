@@ -15,6 +15,7 @@
  */
 package org.auraframework.service;
 
+import java.util.Collections;
 import java.util.Map;
 
 import org.auraframework.Aura;
@@ -66,6 +67,23 @@ public interface LoggingService extends AuraService {
      */
     void release();
     
+    /**
+     * Get the stats of the actions run in the current logging context, by action name.
+     *
+     * The default has no stats.
+     */
+    default Map<String, Map<String, Long>> getActionStats() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Add the stats of actions run in another logging context, e.g. on another thread.
+     *
+     * The default drops them.
+     */
+    default void addActionStats(Map<String, Map<String, Long>> stats) {
+    }
+
     /**
      * Start timers for an action.
      */
@@ -16,6 +16,7 @@
 package org.auraframework.service;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 import java.util.Map;
 import java.util.Set;
@@ -59,6 +60,22 @@ public interface ServerService extends AuraService {
     void run(Message message, AuraContext context, Writer out, Map<?, ?> extras)
             throws QuickFixException, IOException;
 
+    /**
+     * Run a set of actions and write out the results in CBOR, the compact binary form of JSON.
+     *
+     * The results are the same as for {@link #run(Message, AuraContext, Writer, Map)}, written by the same
+     * serializers.
+     *
+     * @param message non-null, The message containing the actions.
+     * @param context non-null, the context to use.
+     * @param out non-null, where to write the output.
+     * @param extras (can be null) the extras to write.
+     * @throws QuickFixException if there was a problem instantiating components.
+     * @throws IOException if it is unable to write the output.
+     */
+    void run(Message message, AuraContext context, OutputStream out, Map<?, ?> extras)
+            throws QuickFixException, IOException;
+
     /**
      * write out CSS.
      * 
@@ -69,6 +86,15 @@ public interface ServerService extends AuraService {
      * @throws QuickFixException if the definitions could not be compiled.
      */
     void writeAppCss(Set<DefDescriptor<?>> dependencies, Writer out) throws IOException, QuickFixException;
+
+    /**
+     * Get the key under which the CSS written by {@link #writeAppCss(Set, Writer)} is cached.
+     *
+     * The key changes whenever the CSS does.
+     *
+     * @return the key, or null if the CSS is not cacheable.
+     */
+    String getAppCssCacheKey();
     
     <T extends BaseComponentDef> Component writeTemplate(AuraContext context, T value, Map<String, Object> componentAttributes, Appendable out) throws IOException, QuickFixException;
 
@@ -91,6 +117,15 @@ public interface ServerService extends AuraService {
      */
     void writeDefinitions(Set<DefDescriptor<?>> dependencies, Writer out) throws IOException, QuickFixException;
 
+    /**
+     * Get the key under which the definitions written by {@link #writeDefinitions(Set, Writer)} are cached.
+     *
+     * The key changes whenever the definitions do.
+     *
+     * @return the key, or null if the definitions are not cacheable.
+     */
+    String getDefinitionsCacheKey();
+
     /**
      * Write out a set of components in JSON.
      * 
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.system;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.auraframework.def.DefDescriptor;
+
+/**
+ * The key for an access check, the namespace a definition is referenced from and the definition.
+ *
+ * The key also says whether the definition is private, since a definition of the same descriptor can come from
+ * another registry set with another access.
+ *
+ * The hash is computed once, from cached hashes, so that checking access does not build a string per check.
+ */
+public final class AccessCheckKey {
+    private final String referencingNamespace;
+    private final DefDescriptor<?> parentDescriptor;
+    private final DefDescriptor<?> descriptor;
+    private final boolean privateAccess;
+    private final int hashCode;
+
+    /**
+     * Create a key.
+     *
+     * @param referencingNamespace the namespace of the reference, null is the same as empty.
+     * @param parentDescriptor the descriptor of the parent, for definitions that have one.
+     * @param descriptor the descriptor of the referenced definition.
+     * @param privateAccess whether the referenced definition is private.
+     */
+    public AccessCheckKey(@CheckForNull String referencingNamespace, @CheckForNull DefDescriptor<?> parentDescriptor,
+            @Nonnull DefDescriptor<?> descriptor, boolean privateAccess) {
+        this.referencingNamespace = (referencingNamespace == null) ? "" : referencingNamespace;
+        this.parentDescriptor = parentDescriptor;
+        this.descriptor = descriptor;
+        this.privateAccess = privateAccess;
+        int hash = this.referencingNamespace.hashCode();
+        hash = 31 * hash + ((parentDescriptor == null) ? 0 : parentDescriptor.hashCode());
+        hash = 31 * hash + descriptor.hashCode();
+        this.hashCode = 31 * hash + (privateAccess ? 1 : 0);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof AccessCheckKey)) {
+            return false;
+        }
+        AccessCheckKey ak = (AccessCheckKey) obj;
+        return ak.hashCode == hashCode
+                && ak.privateAccess == privateAccess
+                && ak.referencingNamespace.equals(referencingNamespace)
+                && (ak.parentDescriptor == parentDescriptor
+                        || ak.parentDescriptor != null && ak.parentDescriptor.equals(parentDescriptor))
+                && ak.descriptor.equals(descriptor);
+    }
+
+    @Override
+    public String toString() {
+        return referencingNamespace + ">"
+                + (parentDescriptor == null ? "" : parentDescriptor + ".") + descriptor + "@" + descriptor.getDefType()
+                + (privateAccess ? " (private)" : "");
+    }
+}
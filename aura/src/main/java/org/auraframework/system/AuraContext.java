@@ -114,7 +114,11 @@ public interface AuraContext {
     }
 
     enum Format {
-        MANIFEST, CSS, JS, JSON, HTML, SVG, ENCRYPTIONKEY
+        MANIFEST, CSS, JS, JSON, HTML, SVG, ENCRYPTIONKEY,
+        /**
+         * Action responses in the compact binary form of JSON, for API clients.
+         */
+        CBOR
     }
 
     enum Authentication {
@@ -661,16 +665,25 @@ public interface AuraContext {
     /**
      * Put a dependency entry in the local map of dependency entries.
      *
-     * @param key a global key to use to store the entry.
+     * The entry can then be found by key, and by uid if it has one.
+     *
+     * @param key a key to use to store the entry.
      */
-    void addLocalDependencyEntry(String key, DependencyEntry de);
+    void addLocalDependencyEntry(DependencyKey key, DependencyEntry de);
 
     /**
-     * Put a dependency entry in the local map of dependency entries.
+     * Get a dependency entry from the local map of dependency entries.
      *
-     * @param key a global key or uid to find the entry.
+     * @param uid the uid to find the entry.
      */
-    DependencyEntry getLocalDependencyEntry(String key);
+    DependencyEntry getLocalDependencyEntry(String uid);
+
+    /**
+     * Get a dependency entry from the local map of dependency entries.
+     *
+     * @param key the key the entry was stored with.
+     */
+    DependencyEntry getLocalDependencyEntry(DependencyKey key);
 
     /**
      * Find a local dependency entry for a def if one exists.
@@ -682,6 +695,28 @@ public interface AuraContext {
      */
     DependencyEntry findLocalDependencyEntry(DefDescriptor<?> descriptor);
 
+    /**
+     * Add the defs of another context that runs part of the same request, such as a concurrent action.
+     *
+     * This adds the loaded descriptors, local and dynamic defs, and local dependency entries of the other context, so
+     * that what it found or created can be used and serialized in this one. Client events are not added. The other
+     * context must not be changed while this runs.
+     *
+     * The default adds only what the other methods of this interface expose: the loaded descriptors and the local
+     * defs. Implementations should add their dynamic defs and dependency entries as well.
+     *
+     * @param other the context to add from.
+     */
+    default void merge(AuraContext other) {
+        for (Map.Entry<DefDescriptor<?>, String> entry : other.getLoaded().entrySet()) {
+            addLoaded(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<DefDescriptor<? extends Definition>, Definition> entry : other.filterLocalDefs(null)
+                .entrySet()) {
+            addLocalDef(entry.getKey(), entry.getValue());
+        }
+    }
+
     /**
      * Set that the current component was or was not loaded in the current context.
      * Primarily for App.js. We'll include a component class for each component in 
@@ -704,7 +739,7 @@ public interface AuraContext {
     /**
      * Get the access check cache.
      */
-    Cache<String, String> getAccessCheckCache();
+    Cache<AccessCheckKey, String> getAccessCheckCache();
 
     /**
      * Get the set of registries associated with this context.
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.system;
+
+import java.io.Serializable;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.auraframework.def.DefDescriptor;
+
+/**
+ * The key for a dependency entry, a descriptor with an optional uid.
+ *
+ * The hash is computed once, from the hashes of the uid and the descriptor, which are both cached, so keys are
+ * cheap to build and compare. Descriptors compare ignoring case, as the lower cased names used for keys before.
+ */
+public final class DependencyKey implements Serializable {
+    private static final long serialVersionUID = -6245087421395532712L;
+
+    private final String uid;
+    private final DefDescriptor<?> descriptor;
+    private final boolean modulesEnabled;
+    private final int hashCode;
+
+    /**
+     * Create a key.
+     *
+     * @param uid the uid for the entry, or null for the key that finds the latest entry for the descriptor.
+     * @param descriptor the top level descriptor of the entry.
+     * @param modulesEnabled whether the entry was compiled with modules enabled.
+     */
+    public DependencyKey(@CheckForNull String uid, @Nonnull DefDescriptor<?> descriptor, boolean modulesEnabled) {
+        this.uid = uid;
+        this.descriptor = descriptor;
+        this.modulesEnabled = modulesEnabled;
+        int hash = (uid == null) ? 0 : uid.hashCode();
+        hash = 31 * hash + descriptor.hashCode();
+        this.hashCode = 31 * hash + (modulesEnabled ? 1 : 0);
+    }
+
+    @CheckForNull
+    public String getUid() {
+        return uid;
+    }
+
+    @Nonnull
+    public DefDescriptor<?> getDescriptor() {
+        return descriptor;
+    }
+
+    public boolean isModulesEnabled() {
+        return modulesEnabled;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof DependencyKey)) {
+            return false;
+        }
+        DependencyKey dk = (DependencyKey) obj;
+        return dk.hashCode == hashCode && dk.modulesEnabled == modulesEnabled
+                && (dk.uid == uid || dk.uid != null && dk.uid.equals(uid))
+                && dk.descriptor.equals(descriptor);
+    }
+
+    /**
+     * The key in the form used before keys were objects, for logging.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        if (uid != null) {
+            sb.append(uid).append('/');
+        }
+        sb.append(descriptor.getDefType()).append(':').append(descriptor.getQualifiedName().toLowerCase());
+        if (modulesEnabled) {
+            sb.append(":m");
+        }
+        return sb.toString();
+    }
+}
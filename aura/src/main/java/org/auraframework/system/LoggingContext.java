@@ -15,6 +15,7 @@
  */
 package org.auraframework.system;
 
+import java.util.Collections;
 import java.util.Map;
 
 import org.auraframework.instance.Action;
@@ -31,6 +32,23 @@ public interface LoggingContext {
     
     void stopAction(String actionName);
 
+    /**
+     * Get the stats of the actions run in this context, by action name.
+     *
+     * The default has no stats.
+     */
+    default Map<String, Map<String, Long>> getActionStats() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Add the stats of actions run in another context, e.g. on another thread.
+     *
+     * The default drops them.
+     */
+    default void addActionStats(Map<String, Map<String, Long>> stats) {
+    }
+
     void startTimer(String name);
     
     void startTimer(String name, Map<String, String> context);
@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.http.HttpHeaders;
+import org.auraframework.cache.Cache;
+import org.auraframework.util.IOUtil;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.google.common.collect.Maps;
+
+public class EncodedResourceWriterTest extends UnitTestCase {
+
+    private final Map<String, byte[]> entries = Maps.newHashMap();
+
+    @SuppressWarnings("unchecked")
+    private EncodedResourceWriter getWriter() throws Exception {
+        Cache<String, byte[]> cache = Mockito.mock(Cache.class);
+        Mockito.when(cache.get(Matchers.anyString(), Matchers.any(Callable.class))).thenAnswer(invocation -> {
+            String key = (String) invocation.getArguments()[0];
+            byte[] value = entries.get(key);
+            if (value == null) {
+                value = ((Callable<byte[]>) invocation.getArguments()[1]).call();
+                entries.put(key, value);
+            }
+            return value;
+        });
+        return new EncodedResourceWriter(cache);
+    }
+
+    @Test
+    public void testWritesIdentity() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        getWriter().write(request, response, "key", () -> EncodedResourceWriter.encode("var a = 'é';"));
+
+        assertEquals("var a = 'é';", new String(response.getContentAsByteArray(), StandardCharsets.UTF_8));
+        assertEquals(13, response.getContentLength());
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(EncodedResourceWriter.getETag("key", null), response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void testWritesGzip() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        getWriter().write(request, response, "key", () -> EncodedResourceWriter.encode("var a = 1;"));
+
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+        assertEquals(EncodedResourceWriter.getETag("key", "gzip"), response.getHeader(HttpHeaders.ETAG));
+        GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtil.copyStream(in, out);
+        assertEquals("var a = 1;", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void testLoadsAndCompressesOnce() throws Exception {
+        EncodedResourceWriter writer = getWriter();
+        @SuppressWarnings("unchecked")
+        Callable<byte[]> loader = Mockito.mock(Callable.class);
+        Mockito.when(loader.call()).thenReturn(EncodedResourceWriter.encode("var a = 1;"));
+
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, (i % 2 == 0) ? "gzip" : "identity");
+            writer.write(request, new MockHttpServletResponse(), "key", loader);
+        }
+
+        Mockito.verify(loader, Mockito.times(1)).call();
+        assertEquals(2, entries.size());
+    }
+
+    @Test
+    public void testNotModified() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, EncodedResourceWriter.getETag("key", "gzip"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        @SuppressWarnings("unchecked")
+        Callable<byte[]> loader = Mockito.mock(Callable.class);
+
+        getWriter().write(request, response, "key", loader);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        Mockito.verifyZeroInteractions(loader);
+    }
+
+    @Test
+    public void testETagOfOtherEncodingIsModified() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, EncodedResourceWriter.getETag("key", "gzip"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        getWriter().write(request, response, "key", () -> EncodedResourceWriter.encode("a"));
+
+        assertEquals(200, response.getStatus());
+        assertEquals("a", response.getContentAsString());
+    }
+
+    @Test
+    public void testLoaderFailureWritesNothing() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Exception expected = new Exception();
+
+        try {
+            getWriter().write(request, response, "key", () -> {
+                throw expected;
+            });
+            fail("Expected an exception from the loader");
+        } catch (Exception e) {
+            assertSame(expected, e instanceof ExecutionException ? e.getCause() : e);
+        }
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    public void testWritesTextGzipped() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        getWriter().writeText(request, response, "key", out -> out.append("var a = 'é';"));
+
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(EncodedResourceWriter.getETag("key", "gzip"), response.getHeader(HttpHeaders.ETAG));
+        GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtil.copyStream(in, out);
+        assertEquals("var a = 'é';", out.toString("UTF-8"));
+        assertEquals(response.getContentAsByteArray().length, response.getContentLength());
+    }
+
+    @Test
+    public void testWritesTextIdentityWithoutCaching() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        getWriter().writeText(request, response, "key", out -> out.append("var a = 1;"));
+
+        assertEquals("var a = 1;", response.getContentAsString());
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(EncodedResourceWriter.getETag("key", null), response.getHeader(HttpHeaders.ETAG));
+        assertTrue(entries.isEmpty());
+    }
+
+    @Test
+    public void testWritesTextGzippedOnce() throws Exception {
+        EncodedResourceWriter writer = getWriter();
+        AtomicInteger writes = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+            writer.writeText(request, new MockHttpServletResponse(), "key", out -> {
+                writes.incrementAndGet();
+                out.append("var a = 1;");
+            });
+        }
+
+        assertEquals(1, writes.get());
+        assertEquals(1, entries.size());
+    }
+
+    @Test
+    public void testTextSourceFailureWritesNothingGzipped() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Exception expected = new Exception();
+
+        try {
+            getWriter().writeText(request, response, "key", out -> {
+                out.append("var a");
+                throw expected;
+            });
+            fail("Expected an exception from the source");
+        } catch (Exception e) {
+            assertSame(expected, e instanceof ExecutionException ? e.getCause() : e);
+        }
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    public void testGetAcceptedEncoding() {
+        assertNull(EncodedResourceWriter.getAcceptedEncoding(null));
+        assertNull(EncodedResourceWriter.getAcceptedEncoding(""));
+        assertNull(EncodedResourceWriter.getAcceptedEncoding("identity"));
+        assertNull(EncodedResourceWriter.getAcceptedEncoding("br, deflate"));
+        assertEquals("gzip", EncodedResourceWriter.getAcceptedEncoding("gzip"));
+        assertEquals("gzip", EncodedResourceWriter.getAcceptedEncoding("deflate, GZIP;q=0.5"));
+        assertEquals("gzip", EncodedResourceWriter.getAcceptedEncoding("x-gzip"));
+        assertEquals("gzip", EncodedResourceWriter.getAcceptedEncoding("*"));
+        assertNull(EncodedResourceWriter.getAcceptedEncoding("gzip;q=0"));
+        assertNull(EncodedResourceWriter.getAcceptedEncoding("*, gzip;q=0"));
+        assertNull(EncodedResourceWriter.getAcceptedEncoding("*;q=0"));
+    }
+}
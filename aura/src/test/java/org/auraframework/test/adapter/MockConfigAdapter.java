@@ -47,4 +47,10 @@ public interface MockConfigAdapter extends ConfigAdapter, MockBean {
 	void setJwtToken(Supplier<String> tokenFunction);
 
 	void setLockerServiceEnabled(boolean isLockerServiceEnabled);
+
+	void setStreamingDefinitionsEnabled(boolean isStreamingDefinitionsEnabled);
+
+	void setPrecompressedResourcesEnabled(boolean isPrecompressedResourcesEnabled);
+
+	void setActionFlushEnabled(boolean isActionFlushEnabled);
 }